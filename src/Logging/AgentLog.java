@@ -0,0 +1,313 @@
+/*
+ *     Copyright 2010, 2015, 2017 Julian de Hoog (julian@dehoog.ca),
+ *     Victor Spirin (victor.spirin@cs.ox.ac.uk),
+ *     Christian Clausen (christian.clausen@uni-bremen.de
+ *
+ *     This file is part of MRESim 2.3, a simulator for testing the behaviour
+ *     of multiple robots exploring unknown environments.
+ *
+ *     If you use MRESim, I would appreciate an acknowledgement and/or a citation
+ *     of our papers:
+ *
+ *     @inproceedings{deHoog2009,
+ *         title = "Role-Based Autonomous Multi-Robot Exploration",
+ *         author = "Julian de Hoog, Stephen Cameron and Arnoud Visser",
+ *         year = "2009",
+ *         booktitle =
+ *     "International Conference on Advanced Cognitive Technologies and Applications (COGNITIVE)",
+ *         location = "Athens, Greece",
+ *         month = "November",
+ *     }
+ *
+ *     @incollection{spirin2015mresim,
+ *       title={MRESim, a Multi-robot Exploration Simulator for the Rescue Simulation League},
+ *       author={Spirin, Victor and de Hoog, Julian and Visser, Arnoud and Cameron, Stephen},
+ *       booktitle={RoboCup 2014: Robot World Cup XVIII},
+ *       pages={106--117},
+ *       year={2015},
+ *       publisher={Springer}
+ *     }
+ *
+ *     MRESim is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     MRESim is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License along with MRESim.
+ *     If not, see <http://www.gnu.org/licenses/>.
+ */
+package Logging;
+
+import agents.Agent.AgentState;
+import config.RobotConfig;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Agent log as written by SimulationFramework.logAgents, parsed once into an in-memory table so
+ * replaying it (RunFromLog) looks up position, goal, role and state of any agent at any row in
+ * O(1) instead of reading the file up to that line on every call.
+ *
+ * A line is "time" followed by a record per agent: x, y, goal x, goal y, role, state and, in logs
+ * written since totalSpareTime was added, spare time. Rows are indexed by line number like
+ * RunFromLog always did. All agents replaying the same file share one table; only the tables of the
+ * last few files opened are kept for sharing, older ones are left to their current users.
+ *
+ * Binary agent logs written by RunRecorder are read as well, either given directly or found next
+ * to a text log name that does not exist.
+ */
+public class AgentLog {
+
+    private static final int MAX_OPEN = 4;
+    // least recently opened tables are dropped first
+    private static final LinkedHashMap<String, AgentLog> OPEN = new LinkedHashMap<String, AgentLog>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, AgentLog> eldest) {
+            return size() > MAX_OPEN;
+        }
+    };
+
+    private final String fileName;
+    private final long lastModified;
+    private final long length;
+    private int rows;
+    private int stride;             // agents per row
+    private int[] agentsInRow;      // -1 if the row could not be parsed
+    private int[] x;
+    private int[] y;
+    private int[] goalX;
+    private int[] goalY;
+    private byte[] role;            // roletype ordinal, -1 if unknown
+    private byte[] state;           // AgentState ordinal, -1 if unknown
+
+    private AgentLog(File file) {
+        this.fileName = file.getPath();
+        this.lastModified = file.lastModified();
+        this.length = file.length();
+    }
+
+    /**
+     * @return the parsed log, shared with other callers as long as the file did not change; null if
+     * the file does not exist or cannot be read
+     */
+    public static AgentLog open(String fileName) {
+        File file = new File(fileName);
+        if (!file.exists()) {
+            file = new File(RunRecorder.binaryFileName(fileName));
+            if (!file.exists()) {
+                return null;
+            }
+        }
+        String key = file.getAbsolutePath();
+        synchronized (OPEN) {
+            AgentLog log = OPEN.get(key);
+            if (log != null && log.lastModified == file.lastModified() && log.length == file.length()) {
+                return log;
+            }
+            log = new AgentLog(file);
+            try {
+                if (RunLogConverter.isBinaryLog(file)) {
+                    log.loadBinary(file);
+                } else {
+                    log.load(file);
+                }
+            } catch (IOException e) {
+                System.out.println("AgentLog: Error -- could not read data from " + fileName);
+                return null;
+            }
+            OPEN.put(key, log);
+            return log;
+        }
+    }
+
+    private void load(File file) throws IOException {
+        int capacity = 1024;
+        agentsInRow = new int[capacity];
+        int fieldsPerAgent = 0;
+        try (BufferedReader inFile = new BufferedReader(new FileReader(file))) {
+            String line;
+            while ((line = inFile.readLine()) != null) {
+                String[] tokens = line.trim().split("\\s+");
+                if (fieldsPerAgent == 0) {
+                    fieldsPerAgent = fieldsPerAgent(tokens);
+                    stride = Math.max(1, (tokens.length - 1) / fieldsPerAgent);
+                    allocate(capacity);
+                }
+                if (rows == capacity) {
+                    capacity *= 2;
+                    allocate(capacity);
+                }
+                parseRow(rows, tokens, fieldsPerAgent);
+                rows++;
+            }
+        }
+        if (fieldsPerAgent == 0) {
+            stride = 1;
+        }
+        allocate(rows);
+    }
+
+    private void loadBinary(File file) throws IOException {
+        RunLogConverter binary = new RunLogConverter(file);
+        if (binary.getKind() != RunRecorder.KIND_AGENTS) {
+            throw new IOException(file + " is not an agent log");
+        }
+        rows = binary.getRecords();
+        stride = Math.max(1, binary.getNumAgents());
+        agentsInRow = new int[rows];
+        allocate(rows);
+        for (int row = 0; row < rows; row++) {
+            ByteBuffer r = binary.record(row);
+            r.getInt(); // time
+            for (int a = 0; a < binary.getNumAgents(); a++) {
+                int cell = row * stride + a;
+                x[cell] = r.getInt();
+                y[cell] = r.getInt();
+                goalX[cell] = r.getInt();
+                goalY[cell] = r.getInt();
+                role[cell] = r.get();
+                state[cell] = r.get();
+                r.getInt(); // spare time
+            }
+            agentsInRow[row] = binary.getNumAgents();
+        }
+    }
+
+    /**
+     * 7 fields per agent, or 6 in logs from before spare time was logged: the one where every
+     * agent's role field holds a role.
+     */
+    private static int fieldsPerAgent(String[] tokens) {
+        for (int fields : new int[]{7, 6}) {
+            if ((tokens.length - 1) % fields != 0 || tokens.length == 1) {
+                continue;
+            }
+            boolean roles = true;
+            for (int k = 1 + 4; k < tokens.length && roles; k += fields) {
+                roles = parseRole(tokens[k]) >= 0;
+            }
+            if (roles) {
+                return fields;
+            }
+        }
+        return 7;
+    }
+
+    private void allocate(int capacity) {
+        agentsInRow = Arrays.copyOf(agentsInRow, capacity);
+        int cells = capacity * stride;
+        x = (x == null) ? new int[cells] : Arrays.copyOf(x, cells);
+        y = (y == null) ? new int[cells] : Arrays.copyOf(y, cells);
+        goalX = (goalX == null) ? new int[cells] : Arrays.copyOf(goalX, cells);
+        goalY = (goalY == null) ? new int[cells] : Arrays.copyOf(goalY, cells);
+        role = (role == null) ? new byte[cells] : Arrays.copyOf(role, cells);
+        state = (state == null) ? new byte[cells] : Arrays.copyOf(state, cells);
+    }
+
+    private void parseRow(int row, String[] tokens, int fieldsPerAgent) {
+        int agents = Math.min(stride, (tokens.length - 1) / fieldsPerAgent);
+        try {
+            for (int a = 0; a < agents; a++) {
+                int t = 1 + a * fieldsPerAgent;
+                int cell = row * stride + a;
+                x[cell] = Integer.parseInt(tokens[t]);
+                y[cell] = Integer.parseInt(tokens[t + 1]);
+                goalX[cell] = (int) Double.parseDouble(tokens[t + 2]);
+                goalY[cell] = (int) Double.parseDouble(tokens[t + 3]);
+                role[cell] = parseRole(tokens[t + 4]);
+                state[cell] = parseState(tokens[t + 5]);
+            }
+            agentsInRow[row] = agents;
+        } catch (NumberFormatException e) {
+            agentsInRow[row] = -1;
+        }
+    }
+
+    private static byte parseRole(String token) {
+        for (RobotConfig.roletype r : RobotConfig.roletype.values()) {
+            if (r.name().equals(token)) {
+                return (byte) r.ordinal();
+            }
+        }
+        return -1;
+    }
+
+    private static byte parseState(String token) {
+        for (AgentState s : AgentState.values()) {
+            if (s.name().equals(token)) {
+                return (byte) s.ordinal();
+            }
+        }
+        return -1;
+    }
+
+    public String getFileName() {
+        return fileName;
+    }
+
+    /**
+     * @return number of lines, rows 0 .. getRows() - 1 can be looked up
+     */
+    public int getRows() {
+        return rows;
+    }
+
+    /**
+     * @param row line of the log
+     * @param agentNo robot number, starting at 1
+     * @return true if the row has data for this agent
+     */
+    public boolean has(int row, int agentNo) {
+        return row >= 0 && row < rows && agentNo >= 1 && agentNo <= agentsInRow[row];
+    }
+
+    /**
+     * @return true if the row exists but could not be parsed
+     */
+    public boolean isCorrupt(int row) {
+        return row >= 0 && row < rows && agentsInRow[row] < 0;
+    }
+
+    public int getX(int row, int agentNo) {
+        return x[row * stride + agentNo - 1];
+    }
+
+    public int getY(int row, int agentNo) {
+        return y[row * stride + agentNo - 1];
+    }
+
+    public int getGoalX(int row, int agentNo) {
+        return goalX[row * stride + agentNo - 1];
+    }
+
+    public int getGoalY(int row, int agentNo) {
+        return goalY[row * stride + agentNo - 1];
+    }
+
+    /**
+     * @return logged role, null if it is not a known role
+     */
+    public RobotConfig.roletype getRole(int row, int agentNo) {
+        byte r = role[row * stride + agentNo - 1];
+        return (r < 0) ? null : RobotConfig.roletype.values()[r];
+    }
+
+    /**
+     * @return logged state, null if it is not a known state
+     */
+    public AgentState getState(int row, int agentNo) {
+        byte s = state[row * stride + agentNo - 1];
+        return (s < 0) ? null : AgentState.values()[s];
+    }
+}
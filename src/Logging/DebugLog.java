@@ -0,0 +1,336 @@
+/*
+ *     Copyright 2010, 2015, 2017 Julian de Hoog (julian@dehoog.ca),
+ *     Victor Spirin (victor.spirin@cs.ox.ac.uk),
+ *     Christian Clausen (christian.clausen@uni-bremen.de
+ *
+ *     This file is part of MRESim 2.3, a simulator for testing the behaviour
+ *     of multiple robots exploring unknown environments.
+ *
+ *     If you use MRESim, I would appreciate an acknowledgement and/or a citation
+ *     of our papers:
+ *
+ *     @inproceedings{deHoog2009,
+ *         title = "Role-Based Autonomous Multi-Robot Exploration",
+ *         author = "Julian de Hoog, Stephen Cameron and Arnoud Visser",
+ *         year = "2009",
+ *         booktitle =
+ *     "International Conference on Advanced Cognitive Technologies and Applications (COGNITIVE)",
+ *         location = "Athens, Greece",
+ *         month = "November",
+ *     }
+ *
+ *     @incollection{spirin2015mresim,
+ *       title={MRESim, a Multi-robot Exploration Simulator for the Rescue Simulation League},
+ *       author={Spirin, Victor and de Hoog, Julian and Visser, Arnoud and Cameron, Stephen},
+ *       booktitle={RoboCup 2014: Robot World Cup XVIII},
+ *       pages={106--117},
+ *       year={2015},
+ *       publisher={Springer}
+ *     }
+ *
+ *     MRESim is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     MRESim is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License along with MRESim.
+ *     If not, see <http://www.gnu.org/licenses/>.
+ */
+package Logging;
+
+import config.SimConstants;
+import java.io.BufferedWriter;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Debug event log. Each producer (an agent, the simulator, a coordinator) writes to its own
+ * Channel, a bounded lock-free ring buffer of formatted lines, and a background thread drains the
+ * channels into buffered sinks. Logging never blocks or does I/O on the simulation threads; if a
+ * channel is full, events are dropped and the number dropped is written once there is room.
+ * Every event is stamped from one global counter, and the writer interleaves the channels in stamp
+ * order, so channels sharing a sink (the console) come out in the order they were logged.
+ *
+ * Whether an event is logged depends on its level and category, both can be changed at runtime.
+ * A disabled event costs two volatile reads, and the format variants of {@link Channel#log} only
+ * format when enabled. Events are formatted by the producer, so the writer never touches
+ * simulation objects. Debugging starts enabled at DEBUG for all categories if
+ * SimConstants.ALEC_DEBUG is set, and off otherwise.
+ */
+public final class DebugLog {
+
+    public enum Level {
+        TRACE, DEBUG, INFO, WARN,
+        /** threshold only, disables all events */
+        OFF
+    }
+
+    public enum Category {
+        AGENT, EXPLORATION, COMMS, SIMULATION
+    }
+
+    private static final int CHANNEL_CAPACITY = 1 << 12;
+    private static final long DRAIN_INTERVAL_NANOS = TimeUnit.MILLISECONDS.toNanos(20);
+    private static final int ALL_CATEGORIES = (1 << Category.values().length) - 1;
+
+    private static volatile int minLevel = (SimConstants.ALEC_DEBUG ? Level.DEBUG : Level.OFF).ordinal();
+    private static volatile int enabledCategories = ALL_CATEGORIES;
+
+    /** Standard output, shared by all channels that print to the console. */
+    public static final Sink STDOUT = new Sink(new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8), 1 << 16));
+
+    private static final CopyOnWriteArrayList<Channel> channels = new CopyOnWriteArrayList<>();
+    private static final AtomicLong nextStamp = new AtomicLong();
+    private static final Object drainLock = new Object();
+    private static Thread writer;
+
+    private DebugLog() {
+    }
+
+    public static boolean isEnabled(Level level, Category category) {
+        return level.ordinal() >= minLevel && (enabledCategories & (1 << category.ordinal())) != 0;
+    }
+
+    /**
+     * Logs events of this level and above, Level.OFF disables logging.
+     */
+    public static void setLevel(Level level) {
+        minLevel = level.ordinal();
+    }
+
+    public static synchronized void setEnabled(Category category, boolean enabled) {
+        if (enabled) {
+            enabledCategories |= 1 << category.ordinal();
+        } else {
+            enabledCategories &= ~(1 << category.ordinal());
+        }
+    }
+
+    /**
+     * Opens a channel whose lines are written to sink, each preceded by prefix.
+     */
+    public static Channel open(String prefix, Sink sink) {
+        Channel channel = new Channel(prefix, sink);
+        channels.add(channel);
+        startWriter();
+        return channel;
+    }
+
+    /**
+     * Sink writing to a file, replacing it unless append is set.
+     */
+    public static Sink fileSink(String fileName, boolean append) throws IOException {
+        return new Sink(new BufferedWriter(new OutputStreamWriter(new FileOutputStream(fileName, append), StandardCharsets.UTF_8), 1 << 16));
+    }
+
+    /**
+     * Writes out everything logged so far, on the calling thread.
+     */
+    public static void flush() {
+        synchronized (drainLock) {
+            drainAll();
+            for (Channel channel : channels) {
+                channel.sink.flush();
+            }
+            STDOUT.flush();
+        }
+    }
+
+    // called under drainLock: writes the events of all channels, lowest stamp first
+    private static void drainAll() {
+        while (true) {
+            Channel next = null;
+            long lowest = Long.MAX_VALUE;
+            for (Channel channel : channels) {
+                long stamp = channel.headStamp();
+                if (stamp >= 0 && stamp < lowest) {
+                    lowest = stamp;
+                    next = channel;
+                }
+            }
+            if (next == null) {
+                break;
+            }
+            next.writeHead();
+        }
+        for (Channel channel : channels) {
+            channel.writeDropped();
+        }
+    }
+
+    private static synchronized void startWriter() {
+        if (writer != null) {
+            return;
+        }
+        writer = new Thread(() -> {
+            while (true) {
+                flush();
+                LockSupport.parkNanos(DRAIN_INTERVAL_NANOS);
+            }
+        }, "debug-log-writer");
+        writer.setDaemon(true);
+        writer.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(DebugLog::flush, "debug-log-flush"));
+    }
+
+    /**
+     * Destination of channels, only written by the thread draining the channels.
+     */
+    public static final class Sink {
+
+        private final Writer out;
+        private boolean failed;
+
+        private Sink(Writer out) {
+            this.out = out;
+        }
+
+        private void write(String prefix, String line) {
+            if (failed) {
+                return;
+            }
+            try {
+                out.write(prefix);
+                out.write(line);
+                out.write('\n');
+            } catch (IOException e) {
+                fail(e);
+            }
+        }
+
+        private void flush() {
+            if (failed) {
+                return;
+            }
+            try {
+                out.flush();
+            } catch (IOException e) {
+                fail(e);
+            }
+        }
+
+        private void fail(IOException e) {
+            failed = true;
+            System.err.println("DebugLog: writing failed, dropping further output: " + e);
+        }
+    }
+
+    /**
+     * Bounded multi-producer ring buffer (after Vyukov's bounded queue): a slot may be written by
+     * the producer that claimed position p while its sequence is p, and read by the writer once
+     * the sequence is p + 1.
+     */
+    public static final class Channel {
+
+        private final String prefix;
+        private final Sink sink;
+        private final String[] slots = new String[CHANNEL_CAPACITY];
+        private final long[] stamps = new long[CHANNEL_CAPACITY];
+        private final AtomicLongArray sequences = new AtomicLongArray(CHANNEL_CAPACITY);
+        private final AtomicLong tail = new AtomicLong();
+        private final AtomicLong dropped = new AtomicLong();
+        private long head;          // only used under drainLock
+        private volatile boolean closed;
+
+        private Channel(String prefix, Sink sink) {
+            this.prefix = prefix;
+            this.sink = sink;
+            for (int i = 0; i < CHANNEL_CAPACITY; i++) {
+                sequences.set(i, i);
+            }
+        }
+
+        public boolean isEnabled(Level level, Category category) {
+            return DebugLog.isEnabled(level, category);
+        }
+
+        public void log(Level level, Category category, String message) {
+            if (DebugLog.isEnabled(level, category)) {
+                offer(message);
+            }
+        }
+
+        public void log(Level level, Category category, String format, Object arg) {
+            if (DebugLog.isEnabled(level, category)) {
+                offer(String.format(format, arg));
+            }
+        }
+
+        public void log(Level level, Category category, String format, Object arg1, Object arg2) {
+            if (DebugLog.isEnabled(level, category)) {
+                offer(String.format(format, arg1, arg2));
+            }
+        }
+
+        private void offer(String line) {
+            if (closed) {
+                return;
+            }
+            while (true) {
+                long position = tail.get();
+                int slot = (int) position & (CHANNEL_CAPACITY - 1);
+                long sequence = sequences.get(slot);
+                if (sequence == position) {
+                    if (tail.compareAndSet(position, position + 1)) {
+                        slots[slot] = line;
+                        stamps[slot] = nextStamp.getAndIncrement();
+                        sequences.lazySet(slot, position + 1);
+                        return;
+                    }
+                } else if (sequence < position) {
+                    dropped.incrementAndGet();   // full until the writer catches up
+                    return;
+                }
+            }
+        }
+
+        // called under drainLock: stamp of the oldest event, -1 if there is none
+        private long headStamp() {
+            int slot = (int) head & (CHANNEL_CAPACITY - 1);
+            return (sequences.get(slot) == head + 1) ? stamps[slot] : -1;
+        }
+
+        // called under drainLock, after headStamp found an event
+        private void writeHead() {
+            int slot = (int) head & (CHANNEL_CAPACITY - 1);
+            String line = slots[slot];
+            slots[slot] = null;
+            sequences.lazySet(slot, head + CHANNEL_CAPACITY);
+            head++;
+            sink.write(prefix, line);
+        }
+
+        // called under drainLock
+        private void writeDropped() {
+            long lost = dropped.getAndSet(0);
+            if (lost > 0) {
+                sink.write(prefix, "[" + lost + " debug events dropped]");
+            }
+        }
+
+        /**
+         * Writes out what is left in the channel and stops using it; later events are ignored.
+         */
+        public void close() {
+            closed = true;
+            synchronized (drainLock) {
+                drainAll();
+                sink.flush();
+                channels.remove(this);
+            }
+        }
+    }
+}
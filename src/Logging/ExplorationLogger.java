@@ -50,6 +50,7 @@ import config.SimulatorConfig;
 import gui.MainConsole;
 import java.io.FileNotFoundException;
 import java.io.PrintWriter;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -61,8 +62,14 @@ import java.util.logging.Logger;
 public class ExplorationLogger {
 
     private static final Logger LOGGER = Logger.getLogger(MainConsole.class.getName());
-    HashMap<RealAgent, HashMap<Integer, AgentStats>> log;
-    //HashMap<RealAgent, HashMap<Integer, Integer>> log;
+    // per agent and cycle only the stats writeLog needs, in columns indexed by time
+    private static final int AREA_KNOWN = 0;
+    private static final int COM_STATIONS_DROPPED = 1;
+    private static final int ENERGY_CONSUMPTION = 2;
+    private static final int COMMUNICATIONS = 3;
+    private static final int COLUMNS = 4;
+
+    HashMap<RealAgent, int[][]> log;
     RealAgent[] agents;
     String name;
     private final SimulatorConfig simConfig;
@@ -73,25 +80,45 @@ public class ExplorationLogger {
         this.name = name;
         this.simConfig = simConfig;
         for (RealAgent agt : agents) {
-            log.put(agt, new HashMap());
+            log.put(agt, new int[COLUMNS][256]);
         }
     }
 
     public void log(int time, RealAgent[] agents) {
         for (RealAgent agent : agents) {
-            log.get(agent).put(time, new AgentStats(agent.getStats()));
+            log(time, agent);
         }
     }
 
     public void log(int time, RealAgent agent) {
-        log.get(agent).put(time, new AgentStats(agent.getStats()));
+        int[][] columns = log.get(agent);
+        if (time >= columns[0].length) {
+            int length = Math.max(time + 1, columns[0].length * 2);
+            for (int c = 0; c < COLUMNS; c++) {
+                columns[c] = Arrays.copyOf(columns[c], length);
+            }
+        }
+        AgentStats stats = agent.getStats();
+        columns[AREA_KNOWN][time] = stats.getAreaKnown();
+        columns[COM_STATIONS_DROPPED][time] = stats.getComStationsDropped();
+        columns[ENERGY_CONSUMPTION][time] = stats.getEnergyConsumption();
+        columns[COMMUNICATIONS][time] = stats.getCommunications();
+    }
+
+    private int get(RealAgent agent, int column, int time) {
+        int[] values = log.get(agent)[column];
+        return (time < values.length) ? values[time] : 0;
     }
 
     public void writeLog(int timeElapsed) {
+        writeLog(timeElapsed, SimConstants.DEFAULT_LOG_DIRECTORY + "exploration" + this.name + ".csv");
+    }
+
+    public void writeLog(int timeElapsed, String fileName) {
         double total = simConfig.getEnvironment().getTotalFreeSpace();
         PrintWriter exploration;
         try {
-            exploration = new PrintWriter(SimConstants.DEFAULT_LOG_DIRECTORY + "exploration" + this.name + ".csv");
+            exploration = new PrintWriter(fileName);
 
             //exploration.printf("Cycle,%s,%s,%s,ComStationsInUse,EnergyConsumption,TotalCommunications\n", agents[0].getName(), agents[1].getName(), agents[2].getName());
             String header = "";
@@ -123,20 +150,20 @@ public class ExplorationLogger {
                 line += i + ",";
                 //Agent agre known
                 for (RealAgent agt : agents) {
-                    line += Math.round(100 * (double) this.log.get(agt).get(i).getAreaKnown() / (double) total) + ",";
+                    line += Math.round(100 * (double) get(agt, AREA_KNOWN, i) / (double) total) + ",";
                 }
                 //ComStations
-                line += this.log.get(agents[0]).get(i).getComStationsDropped() + ",";
+                line += get(agents[0], COM_STATIONS_DROPPED, i) + ",";
                 //EnergyUsage
                 int energy = 0;
                 for (RealAgent agt : agents) {
-                    energy += log.get(agt).get(i).getEnergyConsumption();
+                    energy += get(agt, ENERGY_CONSUMPTION, i);
                 }
                 line += energy + ",";
                 //Communication
                 int communications = 0;
                 for (RealAgent agt : agents) {
-                    communications += log.get(agt).get(i).getCommunications();
+                    communications += get(agt, COMMUNICATIONS, i);
                 }
                 line += communications;
                 exploration.println(line);
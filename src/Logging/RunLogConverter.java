@@ -0,0 +1,257 @@
+/*
+ *     Copyright 2010, 2015, 2017 Julian de Hoog (julian@dehoog.ca),
+ *     Victor Spirin (victor.spirin@cs.ox.ac.uk),
+ *     Christian Clausen (christian.clausen@uni-bremen.de
+ *
+ *     This file is part of MRESim 2.3, a simulator for testing the behaviour
+ *     of multiple robots exploring unknown environments.
+ *
+ *     If you use MRESim, I would appreciate an acknowledgement and/or a citation
+ *     of our papers:
+ *
+ *     @inproceedings{deHoog2009,
+ *         title = "Role-Based Autonomous Multi-Robot Exploration",
+ *         author = "Julian de Hoog, Stephen Cameron and Arnoud Visser",
+ *         year = "2009",
+ *         booktitle =
+ *     "International Conference on Advanced Cognitive Technologies and Applications (COGNITIVE)",
+ *         location = "Athens, Greece",
+ *         month = "November",
+ *     }
+ *
+ *     @incollection{spirin2015mresim,
+ *       title={MRESim, a Multi-robot Exploration Simulator for the Rescue Simulation League},
+ *       author={Spirin, Victor and de Hoog, Julian and Visser, Arnoud and Cameron, Stephen},
+ *       booktitle={RoboCup 2014: Robot World Cup XVIII},
+ *       pages={106--117},
+ *       year={2015},
+ *       publisher={Springer}
+ *     }
+ *
+ *     MRESim is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     MRESim is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License along with MRESim.
+ *     If not, see <http://www.gnu.org/licenses/>.
+ */
+package Logging;
+
+import agents.Agent.AgentState;
+import config.RobotConfig;
+import java.io.BufferedWriter;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+
+/**
+ * Converts binary logs written by RunRecorder into the text formats SimulationFramework used to
+ * write directly, line for line, so existing scripts keep working:
+ *
+ * java -cp ... Logging.RunLogConverter agents.bin [agents.txt]
+ *
+ * Without an output name the .bin extension is replaced by .txt. With -csv the values are
+ * separated by commas and preceded by a header line instead.
+ */
+public class RunLogConverter {
+
+    private final ByteBuffer data;
+    private final int kind;
+    private final int numAgents;
+    private final int recordSize;
+    private final int records;
+
+    /**
+     * Reads the whole file.
+     *
+     * @throws IOException if it cannot be read or is not a RunRecorder log
+     */
+    public RunLogConverter(File file) throws IOException {
+        data = ByteBuffer.wrap(Files.readAllBytes(file.toPath()));
+        if (data.remaining() < RunRecorder.HEADER_SIZE || data.getInt() != RunRecorder.MAGIC) {
+            throw new IOException(file + " is not a binary run log");
+        }
+        int version = data.getInt();
+        if (version != RunRecorder.VERSION) {
+            throw new IOException(file + " has unsupported version " + version);
+        }
+        kind = data.getInt();
+        numAgents = data.getInt();
+        recordSize = data.getInt();
+        if (recordSize != RunRecorder.recordSize(kind, numAgents)) {
+            throw new IOException(file + " has a corrupt header");
+        }
+        // an incomplete last record (run killed while flushing) is ignored
+        records = (data.capacity() - RunRecorder.HEADER_SIZE) / recordSize;
+    }
+
+    /**
+     * @return true if the file starts like a RunRecorder log
+     */
+    public static boolean isBinaryLog(File file) {
+        if (!file.isFile() || file.length() < RunRecorder.HEADER_SIZE) {
+            return false;
+        }
+        try (DataInputStream in = new DataInputStream(Files.newInputStream(file.toPath()))) {
+            return in.readInt() == RunRecorder.MAGIC;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    public int getKind() {
+        return kind;
+    }
+
+    public int getNumAgents() {
+        return numAgents;
+    }
+
+    public int getRecords() {
+        return records;
+    }
+
+    /**
+     * Positions the buffer at the start of a record.
+     */
+    ByteBuffer record(int index) {
+        data.position(RunRecorder.HEADER_SIZE + index * recordSize);
+        return data;
+    }
+
+    /**
+     * Writes every record as one line of text, values followed by a separator as in the text
+     * logs, or comma separated with a header line if csv is set.
+     */
+    public void write(PrintWriter out, boolean csv) {
+        if (csv) {
+            out.println(header());
+        }
+        for (int i = 0; i < records; i++) {
+            StringBuilder line = new StringBuilder(recordSize * 3);
+            if (kind == RunRecorder.KIND_AGENTS) {
+                agentLine(record(i), line);
+            } else {
+                dataLine(record(i), line);
+            }
+            if (csv) {
+                line.setLength(line.length() - 1);
+                out.println(line.toString().replace(' ', ','));
+            } else {
+                out.println(line);
+            }
+        }
+    }
+
+    private void agentLine(ByteBuffer r, StringBuilder line) {
+        line.append(r.getInt()).append(' ');
+        for (int a = 0; a < numAgents; a++) {
+            line.append(r.getInt()).append(' ');
+            line.append(r.getInt()).append(' ');
+            line.append((double) r.getInt()).append(' ');
+            line.append((double) r.getInt()).append(' ');
+            byte role = r.get();
+            line.append(role < 0 ? "null" : RobotConfig.roletype.values()[role]).append(' ');
+            byte state = r.get();
+            line.append(state < 0 ? "null" : AgentState.values()[state]).append(' ');
+            line.append(r.getInt()).append(' ');
+        }
+    }
+
+    private void dataLine(ByteBuffer r, StringBuilder line) {
+        line.append(r.getInt()).append(' ');
+        line.append(r.getLong()).append(' ');
+        for (int i = 0; i < 2; i++) {
+            line.append(r.getDouble()).append(' ');
+        }
+        line.append(r.getInt()).append(' ');
+        for (int i = 0; i < 3; i++) {
+            line.append(r.getDouble()).append(' ');
+        }
+        for (int i = 0; i < 3; i++) {
+            line.append(r.getInt()).append(' ');
+        }
+        line.append(r.getDouble()).append(' ');
+        line.append(r.getInt()).append(' ');
+        line.append(r.getDouble()).append(' ');
+        for (int i = 0; i < 5; i++) {
+            line.append(r.getInt()).append(' ');
+        }
+        for (int a = 1; a < numAgents; a++) {
+            line.append(r.getInt()).append(' ');
+            line.append(r.getInt()).append(' ');
+            line.append(r.getDouble()).append(' ');
+            line.append(r.getDouble()).append(' ');
+            line.append(r.getInt()).append(' ');
+            line.append(r.getDouble()).append(' ');
+            for (int i = 0; i < 4; i++) {
+                line.append(r.getInt()).append(' ');
+            }
+        }
+    }
+
+    private String header() {
+        StringBuilder header = new StringBuilder("Time");
+        if (kind == RunRecorder.KIND_AGENTS) {
+            for (int a = 1; a <= numAgents; a++) {
+                for (String column : new String[]{"X", "Y", "GoalX", "GoalY", "Role", "State", "SpareTime"}) {
+                    header.append(',').append(column).append(a);
+                }
+            }
+        } else {
+            header.append(",WallClock,PctAreaKnownTeam,PctAreaKnownBase,TotalArea,AvgAgentKnowledge,"
+                    + "AvgTimeLastCommand,AvgDistanceTraveled,NumSwaps,JointAreaKnown,BaseAreaKnown,"
+                    + "BasePctOfJoint,MaxTeamLatency,AvgTeamLatency,TimeSensing,TimeDoubleSensing,"
+                    + "TimeRelaying,TimeNotSensing,TeamTime");
+            for (int a = 2; a <= numAgents; a++) {
+                for (String column : new String[]{"AreaKnown", "NewInfo", "TotalKnowledgeBelief",
+                    "BaseKnowledgeBelief", "MaxLatency", "AvgLatency", "TimeSensing", "TimeDoubleSensing",
+                    "TimeReturning", "TimeNotSensing"}) {
+                    header.append(',').append(column).append(a);
+                }
+            }
+        }
+        return header.toString();
+    }
+
+    public static void main(String[] args) {
+        boolean csv = false;
+        String in = null;
+        String out = null;
+        for (String arg : args) {
+            if (arg.equals("-csv")) {
+                csv = true;
+            } else if (in == null) {
+                in = arg;
+            } else {
+                out = arg;
+            }
+        }
+        if (in == null) {
+            System.err.println("Usage: RunLogConverter [-csv] <log.bin> [output]");
+            System.exit(1);
+        }
+        if (out == null) {
+            String base = in.toLowerCase().endsWith(".bin") ? in.substring(0, in.length() - 4) : in;
+            out = base + (csv ? ".csv" : ".txt");
+        }
+        try (PrintWriter writer = new PrintWriter(new BufferedWriter(new FileWriter(out)))) {
+            RunLogConverter converter = new RunLogConverter(new File(in));
+            converter.write(writer, csv);
+            System.out.println("Wrote " + converter.getRecords() + " records to " + out);
+        } catch (IOException e) {
+            System.err.println("RunLogConverter: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,189 @@
+/*
+ *     Copyright 2010, 2015, 2017 Julian de Hoog (julian@dehoog.ca),
+ *     Victor Spirin (victor.spirin@cs.ox.ac.uk),
+ *     Christian Clausen (christian.clausen@uni-bremen.de
+ *
+ *     This file is part of MRESim 2.3, a simulator for testing the behaviour
+ *     of multiple robots exploring unknown environments.
+ *
+ *     If you use MRESim, I would appreciate an acknowledgement and/or a citation
+ *     of our papers:
+ *
+ *     @inproceedings{deHoog2009,
+ *         title = "Role-Based Autonomous Multi-Robot Exploration",
+ *         author = "Julian de Hoog, Stephen Cameron and Arnoud Visser",
+ *         year = "2009",
+ *         booktitle =
+ *     "International Conference on Advanced Cognitive Technologies and Applications (COGNITIVE)",
+ *         location = "Athens, Greece",
+ *         month = "November",
+ *     }
+ *
+ *     @incollection{spirin2015mresim,
+ *       title={MRESim, a Multi-robot Exploration Simulator for the Rescue Simulation League},
+ *       author={Spirin, Victor and de Hoog, Julian and Visser, Arnoud and Cameron, Stephen},
+ *       booktitle={RoboCup 2014: Robot World Cup XVIII},
+ *       pages={106--117},
+ *       year={2015},
+ *       publisher={Springer}
+ *     }
+ *
+ *     MRESim is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     MRESim is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License along with MRESim.
+ *     If not, see <http://www.gnu.org/licenses/>.
+ */
+package Logging;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Binary replacement for the per-cycle text logs of SimulationFramework. The file is opened once
+ * per run and every cycle appends one fixed-width record through a buffer, instead of opening,
+ * formatting and closing a text file every cycle. RunLogConverter turns the files back into the
+ * text formats.
+ *
+ * A file starts with a header of five ints: MAGIC, VERSION, kind, number of agents and record
+ * size. Record i starts at HEADER_SIZE + i * record size, so a reader can seek to any cycle.
+ *
+ * Agent records (KIND_AGENTS) are the time, then for each agent x, y, goal x, goal y (ints), role
+ * and state (byte ordinals, -1 for null) and total spare time (int).
+ *
+ * Data records (KIND_DATA) hold the team values that updateGlobalData logs, in the same order:
+ * time (int), wall clock (long), pct area known by the team and by the base (doubles), total area
+ * (int), avg agent knowledge, avg time since last command, avg distance travelled (doubles), swaps,
+ * joint area known, area known by the base (ints), pct of the joint area known by the base, max
+ * latency (int), avg latency (double), time sensing, time double sensing, time relaying, time not
+ * sensing, team time (ints). Then for each agent but the base: area known, new info (ints), total
+ * and base knowledge belief (doubles), max latency (int), avg latency (double), time sensing,
+ * double sensing, returning and not sensing (ints).
+ */
+public class RunRecorder implements Closeable {
+
+    public static final int MAGIC = 0x4d524c47;     // "MRLG"
+    public static final int VERSION = 1;
+    public static final int HEADER_SIZE = 5 * 4;
+    public static final int KIND_AGENTS = 1;
+    public static final int KIND_DATA = 2;
+
+    static final int AGENT_FIELDS_SIZE = 4 * 4 + 2 + 4;
+    static final int DATA_TEAM_SIZE = 4 + 8 + 8 + 8 + 4 + 8 + 8 + 8 + 4 + 4 + 4 + 8 + 4 + 8 + 5 * 4;
+    static final int DATA_AGENT_SIZE = 4 + 4 + 8 + 8 + 4 + 8 + 4 * 4;
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer;
+    private final int recordSize;
+    private int recordStart;
+    private int records;
+
+    /**
+     * Creates the file, replacing an older one, and writes the header.
+     */
+    public RunRecorder(String fileName, int kind, int numAgents) throws IOException {
+        recordSize = recordSize(kind, numAgents);
+        channel = FileChannel.open(Paths.get(fileName), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        buffer = ByteBuffer.allocateDirect(Math.max(1 << 16, HEADER_SIZE + recordSize));
+        buffer.putInt(MAGIC).putInt(VERSION).putInt(kind).putInt(numAgents).putInt(recordSize);
+        recordStart = -1;
+    }
+
+    public static int recordSize(int kind, int numAgents) {
+        switch (kind) {
+            case KIND_AGENTS:
+                return 4 + numAgents * AGENT_FIELDS_SIZE;
+            case KIND_DATA:
+                return DATA_TEAM_SIZE + Math.max(0, numAgents - 1) * DATA_AGENT_SIZE;
+            default:
+                throw new IllegalArgumentException("Unknown log kind " + kind);
+        }
+    }
+
+    /**
+     * @return name of the binary log that replaces the given text log: the .txt extension, if
+     * any, replaced by .bin
+     */
+    public static String binaryFileName(String textFileName) {
+        if (textFileName.toLowerCase().endsWith(".txt")) {
+            return textFileName.substring(0, textFileName.length() - 4) + ".bin";
+        }
+        return textFileName + ".bin";
+    }
+
+    public RunRecorder beginRecord() throws IOException {
+        if (buffer.remaining() < recordSize) {
+            flush();
+        }
+        recordStart = buffer.position();
+        return this;
+    }
+
+    public RunRecorder putInt(int value) {
+        buffer.putInt(value);
+        return this;
+    }
+
+    public RunRecorder putLong(long value) {
+        buffer.putLong(value);
+        return this;
+    }
+
+    public RunRecorder putDouble(double value) {
+        buffer.putDouble(value);
+        return this;
+    }
+
+    /**
+     * @param value enum value, null is stored as -1
+     */
+    public RunRecorder putOrdinal(Enum<?> value) {
+        buffer.put((byte) (value == null ? -1 : value.ordinal()));
+        return this;
+    }
+
+    public void endRecord() {
+        if (buffer.position() - recordStart != recordSize) {
+            throw new IllegalStateException("Record of " + (buffer.position() - recordStart)
+                    + " bytes, expected " + recordSize);
+        }
+        recordStart = -1;
+        records++;
+    }
+
+    /**
+     * @return number of records written so far
+     */
+    public int getRecords() {
+        return records;
+    }
+
+    public void flush() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            channel.close();
+        }
+    }
+}
@@ -45,12 +45,15 @@
 package agents;
 
 import Logging.AgentStats;
+import Logging.DebugLog;
 import communication.DataMessage;
 import config.RobotConfig;
 import config.RobotConfig.roletype;
 import config.SimConstants;
 import config.SimulatorConfig;
+import environment.DistanceFieldCache;
 import environment.Frontier;
+import environment.IntArrayList;
 import environment.OccupancyGrid;
 import environment.TopologicalMap;
 import exploration.*;
@@ -63,6 +66,7 @@ import java.awt.Rectangle;
 import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.PriorityQueue;
+import java.util.Random;
 import path.Path;
 import simulator.SimulationFramework;
 
@@ -81,6 +85,9 @@ public class RealAgent extends Agent {
     OccupancyGrid occGrid;
     // List of cells changed since last step (For faster update of image)
     LinkedList<Point> dirtyCells;
+    // Cells touched by the sensor update as x, y pairs, turned into dirtyCells when they are read
+    private final IntArrayList sensedDirtyCells = new IntArrayList();
+    private final RadialPolygonRasterizer rasterizer = new RadialPolygonRasterizer();
 
     // Frontiers
     PriorityQueue<Frontier> frontiers;
@@ -95,6 +102,7 @@ public class RealAgent extends Agent {
 
     private final TopologicalMap topologicalMap;
     int timeTopologicalMapUpdated;
+    private final DistanceFieldCache distanceFields;
 
     // Teammates
     HashMap<Integer, TeammateAgent> teammates;
@@ -105,6 +113,7 @@ public class RealAgent extends Agent {
     private IRendezvousStrategy rendezvousStrategy;
 
     private SimulatorConfig simConfig;
+    private Random random;
 
     // Used only for logging - direct reference to other agents. DO NOT use this for anything else
     private SimulationFramework simFramework;
@@ -146,6 +155,7 @@ public class RealAgent extends Agent {
 
         occGrid = new OccupancyGrid(envWidth, envHeight);
         topologicalMap = new TopologicalMap(occGrid);
+        distanceFields = new DistanceFieldCache(SimConstants.DISTANCE_FIELD_CACHE_SIZE);
         dirtyCells = new LinkedList<Point>();
         badFrontiers = new LinkedList<Frontier>();
 
@@ -222,6 +232,17 @@ public class RealAgent extends Agent {
         return simConfig;
     }
 
+    /**
+     * @return this agent's generator in a seeded run (see SimulatorConfig.newRandom), null if the
+     * run is not seeded
+     */
+    public Random getRandom() {
+        if (random == null && simConfig != null) {
+            random = simConfig.newRandom(ID);
+        }
+        return random;
+    }
+
     public OccupancyGrid getOccupancyGrid() {
         return occGrid;
     }
@@ -234,11 +255,16 @@ public class RealAgent extends Agent {
         if (dirtyCells == null) {
             dirtyCells = new LinkedList<Point>();
         }
+        for (int i = 0; i < sensedDirtyCells.size(); i += 2) {
+            dirtyCells.add(new Point(sensedDirtyCells.get(i), sensedDirtyCells.get(i + 1)));
+        }
+        sensedDirtyCells.clear();
         return dirtyCells;
     }
 
     public void resetDirtyCells() {
         dirtyCells = new LinkedList<Point>();
+        sensedDirtyCells.clear();
     }
 
     public void addDirtyCells(LinkedList<Point> newDirt) {
@@ -253,19 +279,42 @@ public class RealAgent extends Agent {
         }
     }
 
-    String log = "";
+    private DebugLog.Channel debugLog;
 
     // Prepends the robots number, so it is easy to tell which robot triggered the statement.
     public void announce(String message){
-        if(SimConstants.ALEC_DEBUG){
-            log = log.concat("(".concat(String.valueOf(getName())).concat(") ").concat(message).concat("\n"));
+        if (DebugLog.isEnabled(DebugLog.Level.DEBUG, DebugLog.Category.AGENT)) {
+            debugLog().log(DebugLog.Level.DEBUG, DebugLog.Category.AGENT, message);
+        }
+    }
+
+    public void announce(String format, Object arg){
+        if (DebugLog.isEnabled(DebugLog.Level.DEBUG, DebugLog.Category.AGENT)) {
+            debugLog().log(DebugLog.Level.DEBUG, DebugLog.Category.AGENT, format, arg);
+        }
+    }
+
+    public void announce(String format, Object arg1, Object arg2){
+        if (DebugLog.isEnabled(DebugLog.Level.DEBUG, DebugLog.Category.AGENT)) {
+            debugLog().log(DebugLog.Level.DEBUG, DebugLog.Category.AGENT, format, arg1, arg2);
         }
     }
 
-    public void flushLog(){
-        if(SimConstants.ALEC_DEBUG){
-            System.out.println(log);
-            log = "";
+    // other agents' threads announce for the base station too
+    private synchronized DebugLog.Channel debugLog() {
+        if (debugLog == null) {
+            debugLog = DebugLog.open("(" + getName() + ") ", DebugLog.STDOUT);
+        }
+        return debugLog;
+    }
+
+    /**
+     * Writes out what this agent announced and releases its debug channel, at the end of a run.
+     */
+    public synchronized void closeDebugLog() {
+        if (debugLog != null) {
+            debugLog.close();
+            debugLog = null;
         }
     }
 
@@ -349,7 +398,13 @@ public class RealAgent extends Agent {
         this.missionComplete = missionComplete;
     }
 
+    /**
+     * @return goal of the current path, the agent's location if it has no path (yet)
+     */
     public Point getCurrentGoal() {
+        if (path == null) {
+            return getLocation();
+        }
         return path.getGoalPoint();
     }
 
@@ -632,8 +687,13 @@ public class RealAgent extends Agent {
         if (updateSensorData) {
             newFreeSpace = findRadialPolygon(sensorData, sensRange, 0, 180);
             //newSafeSpace = findRadialPolygon(sensorData, safeRange, 0, 180);
-            updateObstacles(newFreeSpace);
-            updateFreeAndSafeSpace(newFreeSpace, null);
+            if (SimConstants.SCANLINE_SENSOR_UPDATE) {
+                updateObstaclesFast(newFreeSpace);
+                updateFreeSpaceFast(newFreeSpace);
+            } else {
+                updateObstacles(newFreeSpace);
+                updateFreeAndSafeSpace(newFreeSpace, null);
+            }
         }
 
         // NEW METHOD FLOOD FILL
@@ -689,6 +749,28 @@ public class RealAgent extends Agent {
         return tpath;
     }
 
+    /**
+     * Length of the path calculatePath(source, target, false, false) would plan, for callers that
+     * do not need the path itself. Lengths come from a distance field per source, so pass the point
+     * shared by many queries as source.
+     *
+     * @return path length, -1 if no path was found
+     */
+    public double calculatePathLength(Point source, Point target) {
+        if (SimConstants.DISTANCE_FIELD_PATH_LENGTHS) {
+            double length = distanceFields.pathLength(occGrid, source, target);
+            if (length >= 0) {
+                return length;
+            }
+        }
+        Path p = calculatePath(source, target, false, false);
+        return p.found ? p.getLength() : -1;
+    }
+
+    public DistanceFieldCache getDistanceFields() {
+        return distanceFields;
+    }
+
     /**
      * update stats of what we know about the environment.
      */
@@ -960,15 +1042,15 @@ public class RealAgent extends Agent {
             for (int j = 0; j < polygon.getBounds().height; j++) {
                 if (tempGrid[i][j] == 4) {
                     occGrid.setObstacleAt(i + xmin, j + ymin);
-                    dirtyCells.add(new Point(i + xmin, j + ymin));
+                    getDirtyCells().add(new Point(i + xmin, j + ymin));
                 } else if (tempGrid[i][j] == 2) {
                     if ((new Point(x, y)).distance(new Point(i + xmin, j + ymin)) < safeRange) { // &&
                         //angleDiff(Math.atan2((j+ymin)-y, (i+xmin)-x), heading) < 80)
                         occGrid.setSafeSpaceAt(i + xmin, j + ymin);
-                        dirtyCells.add(new Point(i + xmin, j + ymin));
+                        getDirtyCells().add(new Point(i + xmin, j + ymin));
                     } else {
                         occGrid.setFreeSpaceAt(i + xmin, j + ymin);
-                        dirtyCells.add(new Point(i + xmin, j + ymin));
+                        getDirtyCells().add(new Point(i + xmin, j + ymin));
 
                     }
                 }
@@ -1012,6 +1094,77 @@ public class RealAgent extends Agent {
         }
     }
 
+    /**
+     * Same as updateFreeAndSafeSpace(newFreeSpace, null), but the polygon is scan-converted once
+     * instead of testing every cell of its bounding box with Polygon.contains. Cells are visited
+     * in the same order, so the grid and its counters end up identical.
+     */
+    protected void updateFreeSpaceFast(Polygon newFreeSpace) {
+        final int known = (1 << OccupancyGrid.OccGridBit.FreeSpace.ordinal())
+                | (1 << OccupancyGrid.OccGridBit.Obstacle.ordinal());
+        boolean sensedNew = false;
+        Rectangle bounds = newFreeSpace.getBounds();
+        int xLo = Math.max(bounds.x, 0);
+        int yLo = Math.max(bounds.y, 0);
+        int xHi = Math.min(bounds.x + bounds.width, occGrid.width - 1);
+        int yHi = Math.min(bounds.y + bounds.height, occGrid.height - 1);
+        rasterizer.rasterize(newFreeSpace, xLo, yLo, xHi, yHi);
+        for (int i = xLo; i <= xHi; i++) {
+            for (int j = yLo; j <= yHi; j++) {
+                if (rasterizer.inside(i, j) && (occGrid.getByte(i, j) & known) == 0) {
+                    sensedNew = true;
+                    occGrid.setFreeSpaceAt(i, j);
+                    sensedDirtyCells.add(i);
+                    sensedDirtyCells.add(j);
+                }
+            }
+        }
+
+        //update stats for reporting/logging
+        if (sensedNew) {
+            stats.incrementTimeSensing(timeElapsed);
+        }
+    }
+
+    /**
+     * Same as updateObstacles, with the trigonometry hoisted out of the per-pixel loops and the
+     * dirty cells kept in a primitive buffer.
+     */
+    protected void updateObstaclesFast(Polygon newFreeSpace) {
+        int[] xs = newFreeSpace.xpoints;
+        int[] ys = newFreeSpace.ypoints;
+        for (int i = 1; i < newFreeSpace.npoints - 1; i++) {
+            int firstX = xs[i];
+            int firstY = ys[i];
+            int secondX = xs[i + 1];
+            int secondY = ys[i + 1];
+            double length = Point.distance(firstX, firstY, secondX, secondY);
+
+            // if two subsequent points are close and both hit an obstacle, assume there is a line between them.
+            if (Point.distance(firstX, firstY, x, y) < (sensRange - 2)
+                    && Point.distance(secondX, secondY, x, y) < (sensRange - 2)
+                    && length < 7) {
+                double angle = Math.atan2(secondY - firstY, secondX - firstX);
+                double cos = Math.cos(angle);
+                double sin = Math.sin(angle);
+                for (int j = 0; j < length; j++) {
+                    int currX = firstX + (int) (j * cos);
+                    int currY = firstY + (int) (j * sin);
+                    double angleDepth = Math.atan2(currY - y, currX - x);
+                    double cosDepth = Math.cos(angleDepth);
+                    double sinDepth = Math.sin(angleDepth);
+                    for (int k = 0; k < SimConstants.WALL_THICKNESS; k++) {
+                        int newX = Math.max(currX + (int) (k * cosDepth), 0);
+                        int newY = Math.max(currY + (int) (k * sinDepth), 0);
+                        occGrid.setObstacleAt(newX, newY);
+                        sensedDirtyCells.add(newX);
+                        sensedDirtyCells.add(newY);
+                    }
+                }
+            }
+        }
+    }
+
     protected void updateObstacles(Polygon newFreeSpace) {
         // Update obstacles -- all those bits for which radial polygon < sensRange
         // Ignore first point in radial polygon as this is the robot itself.
@@ -1095,8 +1248,13 @@ public class RealAgent extends Agent {
         }
 
         //merge the occupancy grids, and add affected cells to dirty cell list to be repainted in the GUI
-        dirtyCells.addAll(
-                occGrid.mergeGrid(teammate.getOccupancyGrid(), isBaseStation));
+        if (msg.occGridDelta != null) {
+            getDirtyCells().addAll(
+                    occGrid.mergeGrid(teammate.getOccupancyGrid(), msg.occGridDelta, isBaseStation));
+        } else {
+            getDirtyCells().addAll(
+                    occGrid.mergeGrid(teammate.getOccupancyGrid(), isBaseStation));
+        }
 
         updateAreaRelayed(teammate);
 
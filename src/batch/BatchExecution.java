@@ -52,7 +52,9 @@ import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileReader;
 import java.io.IOException;
+import java.text.SimpleDateFormat;
 import java.util.ArrayList;
+import java.util.Date;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
@@ -72,8 +74,19 @@ public class BatchExecution {
     private List<String[]> configFiles;
     //private RobotTeamConfig team;
     int num_threads = 2;
+    // run without GUI classes, image or timer (HeadlessRun) instead of through MainConsole
+    private final boolean headless;
+    // headless only: runs per configuration, seeded baseSeed, baseSeed + 1, ...
+    private int repetitions = 1;
+    private long baseSeed = SimConstants.RANDOM_SEED;
+    private File resultDir;
 
     public BatchExecution(String batchfile) {
+        this(batchfile, false);
+    }
+
+    public BatchExecution(String batchfile, boolean headless) {
+        this.headless = headless;
         configFiles = new ArrayList<>();
         if (batchfile != null) {
             if (!loadBatchConfig(batchfile)) {
@@ -88,7 +101,27 @@ public class BatchExecution {
         }
     }
 
+    public void setNumThreads(int numThreads) {
+        this.num_threads = numThreads;
+    }
+
+    public void setRepetitions(int repetitions) {
+        this.repetitions = Math.max(1, repetitions);
+    }
+
+    public void setBaseSeed(long baseSeed) {
+        this.baseSeed = baseSeed;
+    }
+
+    public void setResultDir(File resultDir) {
+        this.resultDir = resultDir;
+    }
+
     public void run() {
+        if (headless) {
+            runScheduled();
+            return;
+        }
         HashMap<Integer, Thread> threads = new HashMap<>();
         int batch_counter = 0;
         int counter_threads = 0;
@@ -114,8 +147,8 @@ public class BatchExecution {
                     continue;
                 }
 
-                new File(SimConstants.DEFAULT_IMAGE_LOG_DIRECTORY + name).mkdirs();
                 try {
+                    new File(SimConstants.DEFAULT_IMAGE_LOG_DIRECTORY + name).mkdirs();
                     MainConsole console = new MainConsole(true, name);
                     console.setRobotTeamConfig(team);
                     console.loadConfig(conf);
@@ -144,16 +177,66 @@ public class BatchExecution {
         }
     }
 
+    /**
+     * Headless batches keep num_threads runs in flight on a BatchScheduler rather than starting
+     * them in groups.
+     */
+    private void runScheduled() {
+        long[] seeds = new long[repetitions];
+        for (int i = 0; i < repetitions; i++) {
+            seeds[i] = baseSeed + i;
+        }
+        File dir = resultDir;
+        if (dir == null) {
+            dir = new File(SimConstants.DEFAULT_LOG_DIRECTORY
+                    + "batch-" + new SimpleDateFormat("yyyyMMdd-HHmmss").format(new Date()));
+        }
+        new BatchScheduler(configFiles, num_threads, seeds, dir).run();
+    }
+
+    /**
+     * Usage: BatchExecution [batchfile] [-headless] [-threads n] [-reps n] [-seed s] [-out dir]
+     *
+     * With -headless the runs use the headless engine (HeadlessRun) and do not need a display. They
+     * are scheduled on a work-stealing pool of n threads (default: first line of the batch file),
+     * each configuration is run -reps times with seeds s, s+1, ... and every run writes into its own
+     * directory below -out (default logs/batch-[timestamp]), next to a summary.csv of all runs.
+     */
     public static void main(String args[]) {
         System.out.println("MRESim GUI-less Execution");
         String batchfile = null;
-        if (args.length >= 1) {
-            batchfile = args[0];
-            System.out.println(batchfile);
-        } else {
+        boolean headless = false;
+        Integer threads = null;
+        int reps = 1;
+        long seed = SimConstants.RANDOM_SEED;
+        File out = null;
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            if (arg.equals("-headless")) {
+                headless = true;
+            } else if (arg.equals("-threads") && i + 1 < args.length) {
+                threads = Integer.parseInt(args[++i]);
+            } else if (arg.equals("-reps") && i + 1 < args.length) {
+                reps = Integer.parseInt(args[++i]);
+            } else if (arg.equals("-seed") && i + 1 < args.length) {
+                seed = Long.parseLong(args[++i]);
+            } else if (arg.equals("-out") && i + 1 < args.length) {
+                out = new File(args[++i]);
+            } else if (batchfile == null) {
+                batchfile = arg;
+                System.out.println(batchfile);
+            }
+        }
+        if (batchfile == null) {
             batchfile = "batch";
         }
-        BatchExecution batch = new BatchExecution(batchfile);
+        BatchExecution batch = new BatchExecution(batchfile, headless);
+        if (threads != null) {
+            batch.setNumThreads(threads);
+        }
+        batch.setRepetitions(reps);
+        batch.setBaseSeed(seed);
+        batch.setResultDir(out);
         batch.run();
         System.exit(0);
     }
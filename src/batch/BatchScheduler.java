@@ -0,0 +1,253 @@
+/*
+ *     Copyright 2010, 2015, 2017 Julian de Hoog (julian@dehoog.ca),
+ *     Victor Spirin (victor.spirin@cs.ox.ac.uk),
+ *     Christian Clausen (christian.clausen@uni-bremen.de
+ *
+ *     This file is part of MRESim 2.3, a simulator for testing the behaviour
+ *     of multiple robots exploring unknown environments.
+ *
+ *     If you use MRESim, I would appreciate an acknowledgement and/or a citation
+ *     of our papers:
+ *
+ *     @inproceedings{deHoog2009,
+ *         title = "Role-Based Autonomous Multi-Robot Exploration",
+ *         author = "Julian de Hoog, Stephen Cameron and Arnoud Visser",
+ *         year = "2009",
+ *         booktitle =
+ *     "International Conference on Advanced Cognitive Technologies and Applications (COGNITIVE)",
+ *         location = "Athens, Greece",
+ *         month = "November",
+ *     }
+ *
+ *     @incollection{spirin2015mresim,
+ *       title={MRESim, a Multi-robot Exploration Simulator for the Rescue Simulation League},
+ *       author={Spirin, Victor and de Hoog, Julian and Visser, Arnoud and Cameron, Stephen},
+ *       booktitle={RoboCup 2014: Robot World Cup XVIII},
+ *       pages={106--117},
+ *       year={2015},
+ *       publisher={Springer}
+ *     }
+ *
+ *     MRESim is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     MRESim is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License along with MRESim.
+ *     If not, see <http://www.gnu.org/licenses/>.
+ */
+package batch;
+
+import config.RobotTeamConfig;
+import config.SimulatorConfig;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Runs a batch headless on a work-stealing pool: every configuration is run once per seed, and a
+ * worker takes the next run as soon as its current one is finished, so there are always up to
+ * parallelism runs in flight instead of whole groups waiting for their slowest run.
+ *
+ * Each run writes into its own directory below the result directory, and summary.csv there gets
+ * one line per run (including failed ones) once all runs are done.
+ *
+ * @see HeadlessRun
+ */
+public class BatchScheduler {
+
+    private static final Logger LOGGER = Logger.getLogger(BatchScheduler.class.getName());
+
+    private final List<String[]> configFiles;
+    private final int parallelism;
+    private final long[] seeds;
+    private final File resultDir;
+
+    /**
+     * Outcome of one run, one line of the summary.
+     */
+    public static class RunResult {
+
+        private final int index;
+        private final String[] confs;
+        private final long seed;
+        private final File dir;
+        private String status = "NOT_RUN";
+        private int cycles;
+        private double pctAreaKnown;
+        private int avgCycleTime;
+        private long wallTime;
+
+        RunResult(int index, String[] confs, long seed, File dir) {
+            this.index = index;
+            this.confs = confs;
+            this.seed = seed;
+            this.dir = dir;
+        }
+
+        public String getStatus() {
+            return status;
+        }
+
+        public int getCycles() {
+            return cycles;
+        }
+
+        public double getPctAreaKnown() {
+            return pctAreaKnown;
+        }
+
+        public int getAvgCycleTime() {
+            return avgCycleTime;
+        }
+
+        public long getWallTime() {
+            return wallTime;
+        }
+
+        public File getDir() {
+            return dir;
+        }
+    }
+
+    /**
+     * @param configFiles simulator config, team config and environment file of each configuration
+     * @param parallelism number of runs in flight at once
+     * @param seeds random walk seeds, each configuration is run once per seed
+     * @param resultDir directory for the run directories and summary.csv
+     */
+    public BatchScheduler(List<String[]> configFiles, int parallelism, long[] seeds, File resultDir) {
+        this.configFiles = configFiles;
+        this.parallelism = Math.max(1, parallelism);
+        this.seeds = seeds;
+        this.resultDir = resultDir;
+    }
+
+    /**
+     * Runs every configuration with every seed and blocks until all runs are finished.
+     *
+     * @return the results in configuration, then seed order
+     */
+    public List<RunResult> run() {
+        resultDir.mkdirs();
+        List<RunResult> results = new ArrayList<>();
+        List<Future<?>> futures = new ArrayList<>();
+        ExecutorService pool = Executors.newWorkStealingPool(parallelism);
+        try {
+            for (String[] confs : configFiles) {
+                for (long seed : seeds) {
+                    final int index = results.size();
+                    final RunResult result = new RunResult(index, confs, seed, new File(resultDir, runDirName(index, confs, seed)));
+                    results.add(result);
+                    futures.add(pool.submit(new Runnable() {
+                        @Override
+                        public void run() {
+                            execute(result);
+                        }
+                    }));
+                }
+            }
+            LOGGER.log(Level.INFO, "{0} runs scheduled on {1} workers, results in {2}",
+                    new Object[]{results.size(), parallelism, resultDir});
+            for (int i = 0; i < futures.size(); i++) {
+                try {
+                    futures.get(i).get();
+                } catch (ExecutionException e) {
+                    LOGGER.log(Level.SEVERE, "Run " + i + " failed", e.getCause());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    LOGGER.log(Level.WARNING, "Interrupted while waiting for the batch, writing partial summary");
+                    break;
+                }
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        writeSummary(results);
+        return results;
+    }
+
+    private void execute(RunResult result) {
+        String name = "Batch " + result.index;
+        String[] confs = result.confs;
+        result.status = "RUNNING";
+
+        long start = System.currentTimeMillis();
+        try {
+            SimulatorConfig conf = new SimulatorConfig();
+            if (!conf.loadSimulatorConfig(confs[0])) {
+                System.err.println("Could not load Config-file:" + confs[0]);
+                result.status = "CONFIG_ERROR";
+                return;
+            }
+            RobotTeamConfig team = new RobotTeamConfig();
+            if (!team.loadConfig(confs[1])) {
+                System.err.println("Could not load Team-file:" + confs[1]);
+                result.status = "CONFIG_ERROR";
+                return;
+            }
+            if (!conf.loadEnvironment(confs[2])) {
+                System.err.println(name + ": Could not load env: " + confs[2]);
+                result.status = "CONFIG_ERROR";
+                return;
+            }
+            conf.setRandomSeed(result.seed);
+
+            HeadlessRun run = new HeadlessRun(name, team, conf, result.dir);
+            run.run();
+            result.status = run.isCompleted() ? "OK" : "ABORTED";
+            result.cycles = run.getCycles();
+            result.pctAreaKnown = run.getPctAreaKnown();
+            result.avgCycleTime = run.getAvgCycleTime();
+        } catch (Exception e) {
+            System.err.println("Stop Execution of this Non-GUI run because:\n" + e.toString());
+            LOGGER.log(Level.SEVERE, name + " failed", e);
+            result.status = "FAILED";
+        } finally {
+            result.wallTime = System.currentTimeMillis() - start;
+        }
+    }
+
+    private static String runDirName(int index, String[] confs, long seed) {
+        return String.format("%03d_%s_%s_%s_s%d", index, baseName(confs[0]), baseName(confs[1]), baseName(confs[2]), seed);
+    }
+
+    private static String baseName(String fileName) {
+        String name = new File(fileName).getName();
+        int dot = name.lastIndexOf('.');
+        if (dot > 0) {
+            name = name.substring(0, dot);
+        }
+        return name.replaceAll("[^A-Za-z0-9_.-]", "_");
+    }
+
+    private void writeSummary(List<RunResult> results) {
+        File summary = new File(resultDir, "summary.csv");
+        try (PrintWriter out = new PrintWriter(summary)) {
+            out.println("Run,SimConfig,TeamConfig,Environment,Seed,Status,Cycles,AreaKnown,AvgTimePerCycle,WallTimeMs,ResultDir");
+            for (RunResult r : results) {
+                out.printf(Locale.ROOT, "%d,%s,%s,%s,%d,%s,%d,%.2f,%d,%d,%s%n",
+                        r.index, baseName(r.confs[0]), baseName(r.confs[1]), baseName(r.confs[2]), r.seed,
+                        r.status, r.cycles, r.pctAreaKnown, r.avgCycleTime, r.wallTime, r.dir.getName());
+            }
+        } catch (FileNotFoundException ex) {
+            LOGGER.log(Level.SEVERE, "Could not write " + summary, ex);
+            return;
+        }
+        System.out.println("Batch summary written to " + summary);
+    }
+}
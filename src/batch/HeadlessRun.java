@@ -0,0 +1,175 @@
+/*
+ *     Copyright 2010, 2015, 2017 Julian de Hoog (julian@dehoog.ca),
+ *     Victor Spirin (victor.spirin@cs.ox.ac.uk),
+ *     Christian Clausen (christian.clausen@uni-bremen.de
+ *
+ *     This file is part of MRESim 2.3, a simulator for testing the behaviour
+ *     of multiple robots exploring unknown environments.
+ *
+ *     If you use MRESim, I would appreciate an acknowledgement and/or a citation
+ *     of our papers:
+ *
+ *     @inproceedings{deHoog2009,
+ *         title = "Role-Based Autonomous Multi-Robot Exploration",
+ *         author = "Julian de Hoog, Stephen Cameron and Arnoud Visser",
+ *         year = "2009",
+ *         booktitle =
+ *     "International Conference on Advanced Cognitive Technologies and Applications (COGNITIVE)",
+ *         location = "Athens, Greece",
+ *         month = "November",
+ *     }
+ *
+ *     @incollection{spirin2015mresim,
+ *       title={MRESim, a Multi-robot Exploration Simulator for the Rescue Simulation League},
+ *       author={Spirin, Victor and de Hoog, Julian and Visser, Arnoud and Cameron, Stephen},
+ *       booktitle={RoboCup 2014: Robot World Cup XVIII},
+ *       pages={106--117},
+ *       year={2015},
+ *       publisher={Springer}
+ *     }
+ *
+ *     MRESim is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     MRESim is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License along with MRESim.
+ *     If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package batch;
+
+import Logging.ExplorationLogger;
+import agents.RealAgent;
+import config.RobotTeamConfig;
+import config.SimulatorConfig;
+import exploration.RandomWalk;
+import java.io.File;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import simulator.SimulationFramework;
+import simulator.SimulationObserver;
+
+/**
+ * One run of a batch without any GUI: no MainGUI, no ExplorationImage and no Swing timer, the
+ * cycles run back to back on the calling thread. Logs the same exploration data as MainConsole,
+ * but takes no screenshots.
+ *
+ * @see BatchExecution
+ */
+public class HeadlessRun implements Runnable, SimulationObserver {
+
+    private static final Logger LOGGER = Logger.getLogger(HeadlessRun.class.getName());
+    private final String name;
+    private final SimulatorConfig simConfig;
+    private final SimulationFramework simulation;
+    // all output of this run goes here, null for the shared log directory
+    private final File resultDir;
+    private ExplorationLogger exploreLog;
+    private boolean completed;
+    private int cycles;
+    private double pctAreaKnown;
+    private int avgCycleTime;
+
+    public HeadlessRun(String name, RobotTeamConfig team, SimulatorConfig simConfig) {
+        this(name, team, simConfig, null);
+    }
+
+    /**
+     * @param resultDir directory for the exploration log and, if enabled in simConfig, the agent and
+     * data logs of this run; created if missing. null to log like MainConsole does.
+     */
+    public HeadlessRun(String name, RobotTeamConfig team, SimulatorConfig simConfig, File resultDir) {
+        this.name = name;
+        this.simConfig = simConfig;
+        this.resultDir = resultDir;
+        if (resultDir != null) {
+            resultDir.mkdirs();
+            simConfig.setLogAgentsFilename(new File(resultDir, "agents.txt").getPath());
+            simConfig.setLogDataFilename(new File(resultDir, "data.txt").getPath());
+        }
+        if (!simConfig.isSeeded()) {
+            RandomWalk.resetSeed();
+        }
+        simulation = new SimulationFramework(team, simConfig);
+        simulation.addObserver(this);
+    }
+
+    public SimulationFramework getSimulation() {
+        return simulation;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public File getResultDir() {
+        return resultDir;
+    }
+
+    /**
+     * @return true once the run has reached its end, false if it is still going or was aborted
+     */
+    public boolean isCompleted() {
+        return completed;
+    }
+
+    public int getCycles() {
+        return cycles;
+    }
+
+    public double getPctAreaKnown() {
+        return pctAreaKnown;
+    }
+
+    public int getAvgCycleTime() {
+        return avgCycleTime;
+    }
+
+    @Override
+    public void run() {
+        LOGGER.log(Level.FINE, "{0} started", name);
+        simulation.start();
+    }
+
+    @Override
+    public void cycleCompleted(RealAgent[] agent, int timeElapsed, double pctAreaKnownTeam, int avgCycleTime) {
+        if (exploreLog == null) {
+            exploreLog = new ExplorationLogger(agent, name, simConfig);
+        }
+        if ((timeElapsed % 50) == 0) {
+            System.out.format("Name: %s"
+                    + "\nCycle: %d\n"
+                    + "AreaKnown: %d%%\n"
+                    + "AvgTime/Cycle: %d\n",
+                    new Object[]{name, timeElapsed, Math.round(pctAreaKnownTeam), avgCycleTime});
+        }
+        exploreLog.log(timeElapsed, agent);
+    }
+
+    @Override
+    public void runCompleted(RealAgent[] agent, int timeElapsed, double pctAreaKnownTeam, int avgCycleTime) {
+        this.completed = true;
+        this.cycles = timeElapsed;
+        this.pctAreaKnown = pctAreaKnownTeam;
+        this.avgCycleTime = avgCycleTime;
+        System.out.format("%s\n"
+                + "\tCycle: %d\n"
+                + "\tAreaKnown: %d%%\n"
+                + "\tAvgTime/Cycle: %d\n\n",
+                new Object[]{name, timeElapsed, Math.round(pctAreaKnownTeam), avgCycleTime});
+        LOGGER.log(Level.FINE, "{0} finished", name);
+        if (exploreLog != null) {
+            if (resultDir != null) {
+                exploreLog.writeLog(timeElapsed, new File(resultDir, "exploration.csv").getPath());
+            } else {
+                exploreLog.writeLog(timeElapsed);
+            }
+        }
+    }
+}
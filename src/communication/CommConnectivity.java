@@ -0,0 +1,164 @@
+/*
+ *     Copyright 2010, 2015, 2017 Julian de Hoog (julian@dehoog.ca),
+ *     Victor Spirin (victor.spirin@cs.ox.ac.uk),
+ *     Christian Clausen (christian.clausen@uni-bremen.de
+ *
+ *     This file is part of MRESim 2.3, a simulator for testing the behaviour
+ *     of multiple robots exploring unknown environments.
+ *
+ *     If you use MRESim, I would appreciate an acknowledgement and/or a citation
+ *     of our papers:
+ *
+ *     @inproceedings{deHoog2009,
+ *         title = "Role-Based Autonomous Multi-Robot Exploration",
+ *         author = "Julian de Hoog, Stephen Cameron and Arnoud Visser",
+ *         year = "2009",
+ *         booktitle =
+ *     "International Conference on Advanced Cognitive Technologies and Applications (COGNITIVE)",
+ *         location = "Athens, Greece",
+ *         month = "November",
+ *     }
+ *
+ *     @incollection{spirin2015mresim,
+ *       title={MRESim, a Multi-robot Exploration Simulator for the Rescue Simulation League},
+ *       author={Spirin, Victor and de Hoog, Julian and Visser, Arnoud and Cameron, Stephen},
+ *       booktitle={RoboCup 2014: Robot World Cup XVIII},
+ *       pages={106--117},
+ *       year={2015},
+ *       publisher={Springer}
+ *     }
+ *
+ *     MRESim is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     MRESim is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License along with MRESim.
+ *     If not, see <http://www.gnu.org/licenses/>.
+ */
+package communication;
+
+/**
+ * Multi-hop connectivity of a team, built with union-find from the table of direct links (any
+ * entry >= 1 in either direction) in O(n² α(n)). Replaces the transitive closure of the direct
+ * table into an n x n multi-hop table, all arrays are reused from one cycle to the next.
+ *
+ * Two agents can talk (over any number of hops) iff they have the same componentId. Agents without
+ * any link are a component of their own.
+ */
+public class CommConnectivity {
+
+    private int[] parent = new int[0];
+    private int[] componentId = new int[0];
+    private int[] componentSize = new int[0];
+    private int[] next = new int[0];
+    private int[] tail = new int[0];
+    private int numComponents;
+
+    /**
+     * Rebuilds the components from the direct link table of this cycle.
+     *
+     * @param directCommTable n x n signal strengths, >= 1 means there is a direct link
+     */
+    public void update(int[][] directCommTable) {
+        int n = directCommTable.length;
+        if (parent.length != n) {
+            parent = new int[n];
+            componentId = new int[n];
+            componentSize = new int[n];
+            next = new int[n];
+            tail = new int[n];
+        }
+        for (int i = 0; i < n; i++) {
+            parent[i] = i;
+        }
+        for (int i = 0; i < n - 1; i++) {
+            int[] row = directCommTable[i];
+            for (int j = i + 1; j < n; j++) {
+                if (row[j] >= 1 || directCommTable[j][i] >= 1) {
+                    union(i, j);
+                }
+            }
+        }
+
+        // roots are always the lowest index of their component, so ids and member lists come out
+        // in ascending order
+        numComponents = 0;
+        for (int i = 0; i < n; i++) {
+            int root = find(i);
+            componentId[i] = root;
+            next[i] = -1;
+            if (root == i) {
+                numComponents++;
+                componentSize[i] = 1;
+            } else {
+                componentSize[root]++;
+                next[tail[root]] = i;
+            }
+            tail[root] = i;
+        }
+    }
+
+    private int find(int i) {
+        while (parent[i] != i) {
+            parent[i] = parent[parent[i]];
+            i = parent[i];
+        }
+        return i;
+    }
+
+    private void union(int i, int j) {
+        int a = find(i);
+        int b = find(j);
+        if (a < b) {
+            parent[b] = a;
+        } else if (b < a) {
+            parent[a] = b;
+        }
+    }
+
+    public int size() {
+        return parent.length;
+    }
+
+    /**
+     * @return id of the component agent i is in, which is the lowest agent index in it
+     */
+    public int componentId(int i) {
+        return componentId[i];
+    }
+
+    public int componentSize(int i) {
+        return componentSize[componentId[i]];
+    }
+
+    public int getNumComponents() {
+        return numComponents;
+    }
+
+    public boolean connected(int i, int j) {
+        return componentId[i] == componentId[j];
+    }
+
+    /**
+     * @return true if agent i can reach at least one other agent
+     */
+    public boolean hasLink(int i) {
+        return componentSize(i) > 1;
+    }
+
+    /**
+     * Members of a component in ascending order, for (j = nextInComponent(i); j >= 0; j =
+     * nextInComponent(j)) visits every agent after i that i is connected to.
+     *
+     * @return next higher agent index in the component of i, -1 if i is the last one
+     */
+    public int nextInComponent(int i) {
+        return next[i];
+    }
+}
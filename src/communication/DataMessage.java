@@ -48,6 +48,7 @@ import agents.RealAgent;
 import agents.TeammateAgent;
 import config.SimConstants;
 import environment.OccupancyGrid;
+import environment.OccupancyGridDelta;
 import java.awt.Point;
 import java.util.Collection;
 import java.util.LinkedList;
@@ -63,6 +64,7 @@ public class DataMessage implements IDataMessage {
     public int x;
     public int y;
     public OccupancyGrid occGrid;
+    public OccupancyGridDelta occGridDelta;   // used instead of occGrid for delta map exchange
     public int timeLastCentralCommand;
     public int timeBaseMessageListSize;
     public int lastContactAreaKnown;
@@ -82,11 +84,29 @@ public class DataMessage implements IDataMessage {
     private final boolean baseCom;
 
     public DataMessage(RealAgent agent, int direct, boolean baseCom) {
+        this(agent, null, direct, baseCom);
+    }
+
+    /**
+     * Message carrying only the map cells that changed since the last exchange with the receiver.
+     *
+     * @param agent sender
+     * @param receiver receiver, its replica of the sender's map decides what needs to be sent. If
+     * null a full copy of the map is sent.
+     * @param direct direct link value
+     * @param baseCom whether the sender has a link to the base station
+     */
+    public DataMessage(RealAgent agent, RealAgent receiver, int direct, boolean baseCom) {
         ID = agent.getRobotNumber();
         x = agent.getX();
         y = agent.getY();
         if (agent.getOccupancyGrid() != null) {
-            occGrid = agent.getOccupancyGrid().copy();
+            if (receiver == null) {
+                occGrid = agent.getOccupancyGrid().copy();
+            } else {
+                OccupancyGrid replica = receiver.getTeammateByNumber(ID).getOccupancyGrid();
+                occGridDelta = agent.getOccupancyGrid().deltaFor(replica);
+            }
         }
         timeLastCentralCommand = agent.getStats().getTimeLastCentralCommand();
         lastContactAreaKnown = agent.getStats().getLastContactAreaKnown();
@@ -127,7 +147,11 @@ public class DataMessage implements IDataMessage {
         teammate.setBaseComLink(baseCom);
         teammate.setX(x);
         teammate.setY(y);
-        teammate.setOccupancyGrid(occGrid);
+        if (occGridDelta != null) {
+            teammate.setOccupancyGrid(occGridDelta.applyTo(teammate.getOccupancyGrid()));
+        } else {
+            teammate.setOccupancyGrid(occGrid);
+        }
         teammate.setTimeLastCentralCommand(timeLastCentralCommand);
         teammate.setPathLength(pathLength);
         teammate.setState(state);
@@ -53,7 +53,13 @@ import environment.Environment;
 public class DirectLine {
 
     public static int[][] detectCommunication(Environment env, RealAgent[] agent) {
-        int commTable[][] = new int[agent.length][agent.length];
+        return detectCommunication(env, agent, new int[agent.length][agent.length]);
+    }
+
+    /**
+     * Same as above, but writes into the given table instead of allocating one.
+     */
+    public static int[][] detectCommunication(Environment env, RealAgent[] agent, int[][] commTable) {
 
         for (int i = 0; i < agent.length - 1; i++) {
             for (int j = i + 1; j < agent.length; j++) {
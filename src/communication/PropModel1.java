@@ -204,7 +204,13 @@ public class PropModel1 {
     }
 
     public static int[][] detectCommunication(Environment env, RealAgent[] agent) {
-        int commTable[][] = new int[agent.length][agent.length];
+        return detectCommunication(env, agent, new int[agent.length][agent.length]);
+    }
+
+    /**
+     * @param commTable agent.length x agent.length, overwritten with the signal strengths
+     */
+    public static int[][] detectCommunication(Environment env, RealAgent[] agent, int[][] commTable) {
 
         for (int i = 0; i < agent.length - 1; i++) {
             for (int j = i + 1; j < agent.length; j++) {
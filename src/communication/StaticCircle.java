@@ -54,7 +54,14 @@ import static java.lang.Math.floor;
 public class StaticCircle {
 
     public static int[][] detectCommunication(Environment env, RealAgent[] agent) {
-        int commTable[][] = new int[agent.length][agent.length];
+        return detectCommunication(env, agent, new int[agent.length][agent.length]);
+    }
+
+    /**
+     * Fills commTable (agent.length x agent.length) with the link strengths between all agents,
+     * so the simulation can reuse one table every cycle.
+     */
+    public static int[][] detectCommunication(Environment env, RealAgent[] agent, int[][] commTable) {
 
 //        for (int i = 0; i < agent.length - 1; i++) {
 //            for (int j = i + 1; j < agent.length; j++) {
@@ -55,12 +55,142 @@ import java.nio.file.Paths;
  */
 public class SimConstants {
 
+    /**
+     * Initial state of Logging.DebugLog: all categories at DEBUG if set, off if not. Can be
+     * changed at runtime with DebugLog.setLevel and DebugLog.setEnabled.
+     */
     public static final boolean ALEC_DEBUG = true;
 
     public static final boolean AVOID_WALLS = false;
 
     public static final int AVOID_WALL_DISTANCE = 5;
 
+    /**
+     * Use the array-based A* engine (path.GridAStar) instead of the HashMap-based search in
+     * Path.calculateAlecAStarPath. Both return the same paths.
+     */
+    public static final boolean GRID_ASTAR = true;
+
+    /**
+     * Teammates exchange only the map cells that changed since their last exchange, instead of a
+     * full copy of the occupancy grid per message. The merged maps are the same either way.
+     */
+    public static final boolean DELTA_MAP_EXCHANGE = true;
+
+    /**
+     * Number of threads agent steps run on, shared by all simulations. 0 uses one per core.
+     */
+    public static final int AGENT_STEP_THREADS = 0;
+
+    /**
+     * Run agent steps on virtual threads instead. Needs a Java 21 runtime, falls back to
+     * AGENT_STEP_THREADS platform threads otherwise.
+     */
+    public static final boolean AGENT_STEP_VIRTUAL_THREADS = false;
+
+    /**
+     * Simulate the laser range finder with cached ray directions and the packed obstacle bitmap
+     * of the environment (simulator.SensorEngine). Readings are the same as the original.
+     */
+    public static final boolean FAST_SENSOR = true;
+
+    /**
+     * Apply the sensor polygon to the occupancy grid with a scanline rasterizer
+     * (agents.RadialPolygonRasterizer) instead of Polygon.contains on every cell.
+     */
+    public static final boolean SCANLINE_SENSOR_UPDATE = true;
+
+    /**
+     * Store occupancy grids as one bit plane per cell bit instead of a byte per cell, so grids
+     * can be compared, merged and copied 64 cells at a time.
+     */
+    public static final boolean PACKED_OCC_GRID = true;
+
+    /**
+     * Keep the frontier contours of each occupancy grid up to date from its changed cells
+     * (environment.FrontierIndex) instead of tracing the whole grid on every replan.
+     */
+    public static final boolean INCREMENTAL_FRONTIERS = true;
+
+    /**
+     * Debugging: check every incrementally updated frontier set against a full recompute.
+     */
+    public static final boolean VERIFY_FRONTIER_INDEX = false;
+
+    /**
+     * Maximum number of paths between topological nodes each TopologicalMap keeps cached, least
+     * recently used ones are evicted first.
+     */
+    public static final int PATH_CACHE_SIZE = 2048;
+
+    /**
+     * Line checks (directLinePossible, numObstaclesOnLine) of Environment and OccupancyGrid use
+     * LineTraversal, which only visits the cells along the line, instead of scanning the bounding
+     * box. Same results.
+     */
+    public static final boolean INTEGER_LINE_TRAVERSAL = true;
+
+    /**
+     * Environment answers obstacleWithinDistance, and the open-space case of directLinePossible,
+     * from precomputed obstacle distance fields instead of scanning the surrounding cells.
+     */
+    public static final boolean ENV_CLEARANCE_FIELD = true;
+
+    /**
+     * OccupancyGrid answers obstacleWithinDistance (up to 10 cells) from a distance-to-obstacle
+     * field it keeps up to date as obstacle cells change, built the first time it is asked.
+     */
+    public static final boolean OCC_GRID_CLEARANCE_FIELD = true;
+
+    /**
+     * RealAgent.calculatePathLength answers from cached distance fields (one Dijkstra search per
+     * source) instead of planning a path per query. Rendezvous planning asks for many lengths from
+     * the same few points.
+     */
+    public static final boolean DISTANCE_FIELD_PATH_LENGTHS = true;
+
+    /**
+     * Number of distance fields each agent keeps, least recently used ones are evicted first.
+     */
+    public static final int DISTANCE_FIELD_CACHE_SIZE = 8;
+
+    /**
+     * OccupancyGrid.getSkeleton only thins windows around the areas that changed since the last
+     * skeleton, if that is possible, instead of the whole map.
+     */
+    public static final boolean INCREMENTAL_SKELETON = true;
+
+    /**
+     * Thinning passes on large maps and the area fill of the topological map (Skeleton.fillAreas)
+     * run on the common fork-join pool. The skeleton and the node areas are the same.
+     */
+    public static final boolean PARALLEL_TOPOLOGICAL_MAP = true;
+
+    /**
+     * MultiPointRendezvousStrategy keeps the comm links between its sample points across replans
+     * and only checks again the ones whose part of the map changed (CommLinkCache).
+     */
+    public static final boolean COMM_LINK_CACHE = true;
+
+    /**
+     * MultiPointRendezvousStrategy.FindCommLinks checks the links it has no cached result for on
+     * the common fork-join pool. The links are the same.
+     */
+    public static final boolean PARALLEL_COMM_LINKS = true;
+
+    /**
+     * Write the agent and data logs as binary records (Logging.RunRecorder) to a .bin file next to
+     * the configured text log, kept open for the whole run. Logging.RunLogConverter produces the
+     * text files from them.
+     */
+    public static final boolean BINARY_RUN_LOGS = true;
+
+    /**
+     * Upper bound on how often the GUI redraws the exploration image, in frames per second. Cycles
+     * in between only update the numbers.
+     */
+    public static final int TARGET_FRAME_RATE = 25;
+
 
     /**
      * Show messages on stdout. Remember to clean build if changed!
@@ -50,6 +50,7 @@ import java.io.FileReader;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.io.PrintWriter;
+import java.util.Random;
 
 /**
  * Describes the model of the simulator configuration.
@@ -122,6 +123,8 @@ public class SimulatorConfig {
     private boolean relayExplore; //Should relay also explore if it gets a chance in RBE
     private boolean tryToGetToExplorerRV;
     private boolean useSingleMeetingTime;
+    private Long randomSeed; //seed of the run, set by batch runs. If null the shared random walk generator
+    //seeded with SimConstants.RANDOM_SEED is used.
 
     public SimulatorConfig() {
         boolean oldEnvVariableConfigFound = loadOldSimulatorConfig();
@@ -431,6 +434,25 @@ public class SimulatorConfig {
     public boolean getExploreReplan() {
         return exploreReplan;
     }
+
+    public void setRandomSeed(long seed) {
+        randomSeed = seed;
+    }
+
+    public boolean isSeeded() {
+        return randomSeed != null;
+    }
+
+    /**
+     * A generator of its own for one user of random numbers in a seeded run, derived from the seed
+     * and the given stream (an agent ID, say). Agents stepped in parallel then draw the same
+     * numbers whatever order they run in.
+     *
+     * @return the generator, null if the run is not seeded
+     */
+    public Random newRandom(long stream) {
+        return (randomSeed == null) ? null : new Random(randomSeed ^ (stream * 0x9E3779B97F4A7C15L));
+    }
 // </editor-fold>
 
     private boolean loadOldSimulatorConfig() {
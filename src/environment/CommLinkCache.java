@@ -0,0 +1,313 @@
+/*
+ *     Copyright 2010, 2015, 2017 Julian de Hoog (julian@dehoog.ca),
+ *     Victor Spirin (victor.spirin@cs.ox.ac.uk),
+ *     Christian Clausen (christian.clausen@uni-bremen.de
+ *
+ *     This file is part of MRESim 2.3, a simulator for testing the behaviour
+ *     of multiple robots exploring unknown environments.
+ *
+ *     If you use MRESim, I would appreciate an acknowledgement and/or a citation
+ *     of our papers:
+ *
+ *     @inproceedings{deHoog2009,
+ *         title = "Role-Based Autonomous Multi-Robot Exploration",
+ *         author = "Julian de Hoog, Stephen Cameron and Arnoud Visser",
+ *         year = "2009",
+ *         booktitle =
+ *     "International Conference on Advanced Cognitive Technologies and Applications (COGNITIVE)",
+ *         location = "Athens, Greece",
+ *         month = "November",
+ *     }
+ *
+ *     @incollection{spirin2015mresim,
+ *       title={MRESim, a Multi-robot Exploration Simulator for the Rescue Simulation League},
+ *       author={Spirin, Victor and de Hoog, Julian and Visser, Arnoud and Cameron, Stephen},
+ *       booktitle={RoboCup 2014: Robot World Cup XVIII},
+ *       pages={106--117},
+ *       year={2015},
+ *       publisher={Springer}
+ *     }
+ *
+ *     MRESim is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     MRESim is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License along with MRESim.
+ *     If not, see <http://www.gnu.org/licenses/>.
+ */
+package environment;
+
+import java.awt.Point;
+import java.util.Arrays;
+
+/**
+ * Results of comm link checks between sample points of one OccupancyGrid: whether p1 can reach p2
+ * and, if so, how many walls lie on the line. Links are keyed by the coordinates of both points, in
+ * order, so they carry over to the next set of sample points as long as the points do.
+ *
+ * Every link is filed under the tiles covered by the bounding box of its two points, widened by one
+ * cell. invalidate() reads the cells that changed since the last call from the grid's change log
+ * and drops the links whose box covers a tile where free space or obstacles changed. Links not
+ * asked for during a pass are dropped by endPass(). The links are kept in an open addressing table
+ * of primitive arrays, there are hundreds of thousands of them on large maps.
+ */
+public class CommLinkCache {
+
+    public static final int NOT_CONNECTED = -1;
+    public static final int UNKNOWN = -2;
+
+    private static final int TILE_SHIFT = 3;    // 8x8 cells per tile
+    // the bits link checks look at
+    private static final int PASSABLE_MASK = (1 << OccupancyGrid.OccGridBit.FreeSpace.ordinal())
+            | (1 << OccupancyGrid.OccGridBit.Obstacle.ordinal());
+    private static final int MIN_BITS = 10;
+
+    // slot k holds a link if keys[k] != 0; the table is at most half full
+    private int tableBits = MIN_BITS;
+    private long[] keys = new long[1 << MIN_BITS];
+    private int[] walls = new int[1 << MIN_BITS];
+    private long[] boxes = new long[1 << MIN_BITS];     // tile box, 16 bits per coordinate
+    private int[] passes = new int[1 << MIN_BITS];
+    private int size;
+
+    private OccupancyGrid grid;
+    private double commRange;
+    private int version = -1;
+    private int tilesX;
+    private int tilesY;
+    private byte[] passable;        // passable bits of every cell at the last invalidate
+    private boolean[] dirty;
+    private int[] dirtyBefore;      // number of dirty tiles in [0, tx) x [0, ty), (tilesX + 1) x (tilesY + 1)
+    private int pass;
+
+    private long hits;
+    private long misses;
+    private long invalidations;
+
+    /**
+     * Drops the links whose box contains cells of grid with changed free space or obstacle state
+     * since the last call. Drops everything if the cache was used with another grid or comm range
+     * before.
+     */
+    public synchronized void invalidate(OccupancyGrid grid, double commRange) {
+        GridChangeLog log = grid.changeLog();
+        if (this.grid != grid || this.commRange != commRange) {
+            this.grid = grid;
+            this.commRange = commRange;
+            tilesX = (grid.width >> TILE_SHIFT) + 1;
+            tilesY = (grid.height >> TILE_SHIFT) + 1;
+            dirty = new boolean[tilesX * tilesY];
+            dirtyBefore = new int[(tilesX + 1) * (tilesY + 1)];
+            invalidations += size;
+            clear();
+            version = log.snapshot();
+            passable = new byte[grid.width * grid.height];
+            for (int x = 0; x < grid.width; x++) {
+                for (int y = 0; y < grid.height; y++) {
+                    passable[x * grid.height + y] = passableBits(x, y);
+                }
+            }
+            return;
+        }
+        int[] changed = log.changesSince(version);
+        version = log.snapshot();
+        Arrays.fill(dirty, false);
+        boolean anyDirty = false;
+        if (changed == null) {
+            // the log lost track, compare every cell
+            for (int x = 0; x < grid.width; x++) {
+                for (int y = 0; y < grid.height; y++) {
+                    anyDirty |= markIfChanged(x, y);
+                }
+            }
+        } else {
+            for (int cell : changed) {
+                anyDirty |= markIfChanged(cell / grid.height, cell % grid.height);
+            }
+        }
+        if (!anyDirty || size == 0) {
+            return;
+        }
+        for (int tx = 0; tx < tilesX; tx++) {
+            for (int ty = 0; ty < tilesY; ty++) {
+                dirtyBefore[(tx + 1) * (tilesY + 1) + ty + 1] = (dirty[tx * tilesY + ty] ? 1 : 0)
+                        + dirtyBefore[tx * (tilesY + 1) + ty + 1]
+                        + dirtyBefore[(tx + 1) * (tilesY + 1) + ty]
+                        - dirtyBefore[tx * (tilesY + 1) + ty];
+            }
+        }
+        int before = size;
+        retain(false);
+        invalidations += before - size;
+    }
+
+    private byte passableBits(int x, int y) {
+        return (byte) (grid.getByte(x, y) & PASSABLE_MASK);
+    }
+
+    private boolean markIfChanged(int x, int y) {
+        int cell = x * grid.height + y;
+        byte now = passableBits(x, y);
+        if (passable[cell] == now) {
+            return false;
+        }
+        passable[cell] = now;
+        dirty[(x >> TILE_SHIFT) * tilesY + (y >> TILE_SHIFT)] = true;
+        return true;
+    }
+
+    private boolean coversDirtyTile(long box) {
+        int x0 = (int) (box >>> 48);
+        int y0 = (int) (box >>> 32) & 0xFFFF;
+        int x1 = ((int) (box >>> 16) & 0xFFFF) + 1;
+        int y1 = ((int) box & 0xFFFF) + 1;
+        return dirtyBefore[x1 * (tilesY + 1) + y1] - dirtyBefore[x0 * (tilesY + 1) + y1]
+                - dirtyBefore[x1 * (tilesY + 1) + y0] + dirtyBefore[x0 * (tilesY + 1) + y0] > 0;
+    }
+
+    /**
+     * @return number of walls on the link from p1 to p2, NOT_CONNECTED, or UNKNOWN if the link is
+     * not cached
+     */
+    public synchronized int get(Point p1, Point p2) {
+        long key = key(p1, p2);
+        for (int slot = slotOf(key);; slot = (slot + 1) & (keys.length - 1)) {
+            if (keys[slot] == key) {
+                hits++;
+                passes[slot] = pass;
+                return walls[slot];
+            }
+            if (keys[slot] == 0) {
+                misses++;
+                return UNKNOWN;
+            }
+        }
+    }
+
+    public synchronized void put(Point p1, Point p2, int walls) {
+        if (grid == null) {
+            return;
+        }
+        long minX = Math.max(0, Math.min(p1.x, p2.x) - 1) >> TILE_SHIFT;
+        long minY = Math.max(0, Math.min(p1.y, p2.y) - 1) >> TILE_SHIFT;
+        long maxX = Math.min(grid.width - 1, Math.max(p1.x, p2.x) + 1) >> TILE_SHIFT;
+        long maxY = Math.min(grid.height - 1, Math.max(p1.y, p2.y) + 1) >> TILE_SHIFT;
+        if (2 * (size + 1) > keys.length) {
+            resize(tableBits + 1);
+        }
+        insert(key(p1, p2), walls, (minX << 48) | (minY << 32) | (maxX << 16) | maxY, pass);
+    }
+
+    /**
+     * Drops the links neither asked for nor added since the last call.
+     */
+    public synchronized void endPass() {
+        retain(true);
+        pass++;
+    }
+
+    public synchronized void clear() {
+        tableBits = MIN_BITS;
+        keys = new long[1 << MIN_BITS];
+        walls = new int[1 << MIN_BITS];
+        boxes = new long[1 << MIN_BITS];
+        passes = new int[1 << MIN_BITS];
+        size = 0;
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    /**
+     * @return number of links dropped because the map changed under them
+     */
+    public synchronized long getInvalidations() {
+        return invalidations;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("CommLinkCache[size %d, hits %d, misses %d, invalidations %d]",
+                size, hits, misses, invalidations);
+    }
+
+    // both points packed in 64 bits (coordinates + 1, so never 0), multiplied by an odd constant
+    // (still one key per pair) so that the top bits can pick the slot
+    private static long key(Point p1, Point p2) {
+        return (((long) ((p1.x + 1) & 0xFFFF) << 48) | ((long) ((p1.y + 1) & 0xFFFF) << 32)
+                | ((long) ((p2.x + 1) & 0xFFFF) << 16) | ((p2.y + 1) & 0xFFFF)) * 0x9E3779B97F4A7C15L;
+    }
+
+    private int slotOf(long key) {
+        return (int) (key >>> (64 - tableBits));
+    }
+
+    private void insert(long key, int linkWalls, long box, int linkPass) {
+        int slot = slotOf(key);
+        while (keys[slot] != 0 && keys[slot] != key) {
+            slot = (slot + 1) & (keys.length - 1);
+        }
+        if (keys[slot] == 0) {
+            size++;
+        }
+        keys[slot] = key;
+        walls[slot] = linkWalls;
+        boxes[slot] = box;
+        passes[slot] = linkPass;
+    }
+
+    private void resize(int bits) {
+        long[] oldKeys = keys;
+        int[] oldWalls = walls;
+        long[] oldBoxes = boxes;
+        int[] oldPasses = passes;
+        tableBits = bits;
+        keys = new long[1 << bits];
+        walls = new int[1 << bits];
+        boxes = new long[1 << bits];
+        passes = new int[1 << bits];
+        size = 0;
+        for (int k = 0; k < oldKeys.length; k++) {
+            if (oldKeys[k] != 0) {
+                insert(oldKeys[k], oldWalls[k], oldBoxes[k], oldPasses[k]);
+            }
+        }
+    }
+
+    /**
+     * Keeps the links of the current pass (byPass) or the ones not covering a dirty tile, and
+     * rebuilds the table around them.
+     */
+    private void retain(boolean byPass) {
+        int before = size;
+        for (int k = 0; k < keys.length; k++) {
+            if (keys[k] != 0 && (byPass ? passes[k] != pass : coversDirtyTile(boxes[k]))) {
+                keys[k] = 0;
+                size--;
+            }
+        }
+        if (size == before) {
+            return;
+        }
+        int bits = MIN_BITS;
+        while ((1 << bits) < 4 * size) {
+            bits++;
+        }
+        resize(Math.max(bits, Math.min(tableBits, bits + 1)));
+    }
+}
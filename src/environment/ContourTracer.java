@@ -43,12 +43,14 @@
  */
 package environment;
 
+import config.SimConstants;
 import java.awt.Color;
 import java.awt.Point;
 import java.awt.image.BufferedImage;
 import java.io.File;
 import java.io.IOException;
 import java.util.LinkedList;
+import java.util.List;
 import javax.imageio.ImageIO;
 
 /**
@@ -301,28 +303,8 @@ public class ContourTracer {
                     //&& (!occGrid.locationExists(i, j - 1) || (!occGrid.frontierCellAt(i - 1, j - 1) && !occGrid.frontierCellAt(i, j - 1) && !occGrid.frontierCellAt(i + 1, j - 1)))
 
                     //saveLabelsToPNG("contours", labels);
-                    // We must have found external contour of new component
-                    currContour = traceContour(occGrid, i, j, direction.NE);
-
-                    if (currContour.size() <= 1) {
-                        continue;
-                    }
-                    boolean interesting = false;
-                    for (Point p : currContour) {
-                        if (labels[p.x][p.y] == 1) {
-                            interesting = false;
-                            break;
-                        }
-                        if (occGrid.frontierBorderCellAt(p.x, p.y)) {
-                            interesting = true;
-                            // this contour should be added
-                            //labels = updateLabels(labels, currContour);
-                            //contourList.add(currContour);
-                            //break;
-                        }
-                    }
-                    if (interesting) {
-                        labels = updateLabels(labels, currContour);
+                    currContour = traceNewContour(occGrid, i, j, labels);
+                    if (currContour != null) {
                         contourList.add(currContour);
                     }
                 }
@@ -332,4 +314,52 @@ public class ContourTracer {
         //saveLabelsToPNG("contours", labels);
         return contourList;
     }
+
+    /**
+     * Traces the contour starting at the unlabelled frontier cell (i, j). If it is a new contour
+     * along unknown space, its cells are labelled and it is returned, otherwise returns null.
+     */
+    static LinkedList<Point> traceNewContour(OccupancyGrid occGrid, int i, int j, int[][] labels) {
+        // We must have found external contour of new component
+        LinkedList<Point> currContour = traceContour(occGrid, i, j, direction.NE);
+
+        if (currContour.size() <= 1) {
+            return null;
+        }
+        boolean interesting = false;
+        for (Point p : currContour) {
+            if (labels[p.x][p.y] == 1) {
+                interesting = false;
+                break;
+            }
+            if (occGrid.frontierBorderCellAt(p.x, p.y)) {
+                interesting = true;
+                // this contour should be added
+                //labels = updateLabels(labels, currContour);
+                //contourList.add(currContour);
+                //break;
+            }
+        }
+        if (interesting) {
+            updateLabels(labels, currContour);
+            return currContour;
+        }
+        return null;
+    }
+
+    /**
+     * Frontiers of the grid as seen from the given position, one per contour of findAllContours
+     * and in the same order. Uses the grid's FrontierIndex if SimConstants.INCREMENTAL_FRONTIERS
+     * is set.
+     */
+    public static List<Frontier> findAllFrontiers(OccupancyGrid occGrid, int agentX, int agentY) {
+        if (SimConstants.INCREMENTAL_FRONTIERS) {
+            return occGrid.frontierIndex().frontiers(agentX, agentY);
+        }
+        List<Frontier> frontiers = new LinkedList<>();
+        for (LinkedList<Point> contour : findAllContours(occGrid)) {
+            frontiers.add(new Frontier(agentX, agentY, contour));
+        }
+        return frontiers;
+    }
 }
@@ -0,0 +1,344 @@
+/*
+ *     Copyright 2010, 2015, 2017 Julian de Hoog (julian@dehoog.ca),
+ *     Victor Spirin (victor.spirin@cs.ox.ac.uk),
+ *     Christian Clausen (christian.clausen@uni-bremen.de
+ *
+ *     This file is part of MRESim 2.3, a simulator for testing the behaviour
+ *     of multiple robots exploring unknown environments.
+ *
+ *     If you use MRESim, I would appreciate an acknowledgement and/or a citation
+ *     of our papers:
+ *
+ *     @inproceedings{deHoog2009,
+ *         title = "Role-Based Autonomous Multi-Robot Exploration",
+ *         author = "Julian de Hoog, Stephen Cameron and Arnoud Visser",
+ *         year = "2009",
+ *         booktitle =
+ *     "International Conference on Advanced Cognitive Technologies and Applications (COGNITIVE)",
+ *         location = "Athens, Greece",
+ *         month = "November",
+ *     }
+ *
+ *     @incollection{spirin2015mresim,
+ *       title={MRESim, a Multi-robot Exploration Simulator for the Rescue Simulation League},
+ *       author={Spirin, Victor and de Hoog, Julian and Visser, Arnoud and Cameron, Stephen},
+ *       booktitle={RoboCup 2014: Robot World Cup XVIII},
+ *       pages={106--117},
+ *       year={2015},
+ *       publisher={Springer}
+ *     }
+ *
+ *     MRESim is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     MRESim is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License along with MRESim.
+ *     If not, see <http://www.gnu.org/licenses/>.
+ */
+package environment;
+
+import config.SimConstants;
+import java.awt.Point;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Path lengths from a few recently used sources to any cell of one OccupancyGrid. For each source
+ * a Dijkstra search over free space computes the whole distance field once, with the moves the
+ * jump point search in Path allows (8 neighbours, diagonals only if both adjacent cells are free),
+ * so any number of lengths from that source are array lookups. All methods are synchronized.
+ *
+ * Before a query the cache reads the cells that changed since the last one from the grid's change
+ * log. A field is only dropped if a cell it reached, or one next to those, became free or stopped
+ * being free; changes in parts of the map the field never got to cannot shorten or break its
+ * paths.
+ */
+public class DistanceFieldCache {
+
+    private static final float SQRT2 = (float) Math.sqrt(2);
+    private static final int[] DX = {1, -1, 0, 0, 1, 1, -1, -1};
+    private static final int[] DY = {0, 0, 1, -1, 1, -1, 1, -1};
+
+    private final int maxFields;
+    private final LinkedHashMap<Point, float[]> fields;
+    private final ArrayDeque<float[]> spare;    // arrays of evicted fields, for reuse
+    private OccupancyGrid grid;
+    private int version;
+    private boolean[] free;                     // free space at the last sync
+    private long[] heap;
+    private int heapSize;
+
+    private long hits;
+    private long misses;
+    private long invalidations;
+
+    public DistanceFieldCache(int maxFields) {
+        this.maxFields = Math.max(1, maxFields);
+        this.spare = new ArrayDeque<>();
+        this.fields = new LinkedHashMap<Point, float[]>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Point, float[]> eldest) {
+                if (size() > DistanceFieldCache.this.maxFields) {
+                    spare.push(eldest.getValue());
+                    return true;
+                }
+                return false;
+            }
+        };
+        this.heap = new long[256];
+    }
+
+    /**
+     * Length of the shortest path between source and target through free space of grid. Uses the
+     * field of source, or of target if only that one is cached, and computes the field of source
+     * otherwise, so pass the point that many queries share as source.
+     *
+     * Like the jump point search, the path may leave free space for the last 2 * STEP_SIZE cells
+     * before the target, so targets in unknown space next to a frontier have a length too.
+     *
+     * @return the length, or -1 if the target cannot be reached or source is outside the grid
+     */
+    public synchronized double pathLength(OccupancyGrid grid, Point source, Point target) {
+        sync(grid);
+        float[] field = fields.get(source);
+        if (field == null) {
+            field = fields.get(target);
+            if (field != null) {
+                Point swap = source;
+                source = target;
+                target = swap;
+            }
+        }
+        if (field == null) {
+            if (!grid.locationExists(source.x, source.y)) {
+                return -1;
+            }
+            misses++;
+            field = compute(source);
+            fields.put(new Point(source), field);
+        } else {
+            hits++;
+        }
+        return lookup(field, target);
+    }
+
+    private double lookup(float[] field, Point target) {
+        int radius = 2 * SimConstants.STEP_SIZE;
+        double best = Double.POSITIVE_INFINITY;
+        int x0 = Math.max(0, target.x - radius);
+        int x1 = Math.min(grid.width - 1, target.x + radius);
+        int y0 = Math.max(0, target.y - radius);
+        int y1 = Math.min(grid.height - 1, target.y + radius);
+        for (int x = x0; x <= x1; x++) {
+            for (int y = y0; y <= y1; y++) {
+                float d = field[x * grid.height + y];
+                if (d == Float.POSITIVE_INFINITY) {
+                    continue;
+                }
+                double rest = target.distance(x, y);
+                if (rest <= radius && d + rest < best) {
+                    best = d + rest;
+                }
+            }
+        }
+        return (best == Double.POSITIVE_INFINITY) ? -1 : best;
+    }
+
+    private float[] compute(Point source) {
+        int height = grid.height;
+        int cells = grid.width * height;
+        float[] dist = spare.isEmpty() ? new float[cells] : spare.pop();
+        Arrays.fill(dist, Float.POSITIVE_INFINITY);
+        int start = source.x * height + source.y;
+        dist[start] = 0;
+        heapSize = 0;
+        push(0, start);
+        while (heapSize > 0) {
+            long top = pop();
+            int cell = (int) top;
+            float d = Float.intBitsToFloat((int) (top >>> 32));
+            if (d > dist[cell]) {
+                continue; // already settled with a shorter distance
+            }
+            int x = cell / height;
+            int y = cell % height;
+            for (int k = 0; k < 8; k++) {
+                int nx = x + DX[k];
+                int ny = y + DY[k];
+                if (!isFree(nx, ny)) {
+                    continue;
+                }
+                float step = 1;
+                if (k >= 4) {
+                    if (!isFree(nx, y) || !isFree(x, ny)) {
+                        continue; // no cutting corners
+                    }
+                    step = SQRT2;
+                }
+                int n = nx * height + ny;
+                float nd = d + step;
+                if (nd < dist[n]) {
+                    dist[n] = nd;
+                    push(nd, n);
+                }
+            }
+        }
+        return dist;
+    }
+
+    private boolean isFree(int x, int y) {
+        return grid.locationExists(x, y) && free[x * grid.height + y];
+    }
+
+    /**
+     * Distances are non-negative, so their float bits order like the floats themselves and the
+     * entry sorts by distance.
+     */
+    private void push(float d, int cell) {
+        if (heapSize == heap.length) {
+            heap = Arrays.copyOf(heap, heap.length * 2);
+        }
+        long entry = ((long) Float.floatToIntBits(d) << 32) | cell;
+        int pos = heapSize++;
+        while (pos > 0) {
+            int parent = (pos - 1) >>> 1;
+            if (heap[parent] <= entry) {
+                break;
+            }
+            heap[pos] = heap[parent];
+            pos = parent;
+        }
+        heap[pos] = entry;
+    }
+
+    private long pop() {
+        long top = heap[0];
+        long last = heap[--heapSize];
+        int pos = 0;
+        int half = heapSize >>> 1;
+        while (pos < half) {
+            int child = 2 * pos + 1;
+            if (child + 1 < heapSize && heap[child + 1] < heap[child]) {
+                child++;
+            }
+            if (heap[child] >= last) {
+                break;
+            }
+            heap[pos] = heap[child];
+            pos = child;
+        }
+        if (heapSize > 0) {
+            heap[pos] = last;
+        }
+        return top;
+    }
+
+    /**
+     * Brings the free space snapshot up to date and drops the fields that a change could affect.
+     */
+    private void sync(OccupancyGrid grid) {
+        GridChangeLog log = grid.changeLog();
+        if (this.grid != grid || free.length != grid.width * grid.height) {
+            this.grid = grid;
+            clear();
+            spare.clear();
+            free = new boolean[grid.width * grid.height];
+            version = log.snapshot();
+            for (int x = 0; x < grid.width; x++) {
+                for (int y = 0; y < grid.height; y++) {
+                    free[x * grid.height + y] = grid.freeSpaceAt(x, y);
+                }
+            }
+            return;
+        }
+        int[] changed = log.changesSince(version);
+        version = log.snapshot();
+        IntArrayList flipped = new IntArrayList();
+        if (changed == null) {
+            // the log lost track, compare every cell
+            for (int cell = 0; cell < free.length; cell++) {
+                checkFlipped(cell, flipped);
+            }
+        } else {
+            for (int cell : changed) {
+                checkFlipped(cell, flipped);
+            }
+        }
+        if (flipped.isEmpty() || fields.isEmpty()) {
+            return;
+        }
+        for (Iterator<float[]> it = fields.values().iterator(); it.hasNext();) {
+            float[] field = it.next();
+            for (int i = 0; i < flipped.size(); i++) {
+                if (nearReached(field, flipped.get(i))) {
+                    spare.push(field);
+                    it.remove();
+                    invalidations++;
+                    break;
+                }
+            }
+        }
+    }
+
+    private void checkFlipped(int cell, IntArrayList flipped) {
+        boolean now = grid.freeSpaceAt(cell / grid.height, cell % grid.height);
+        if (free[cell] != now) {
+            free[cell] = now;
+            flipped.add(cell);
+        }
+    }
+
+    private boolean nearReached(float[] field, int cell) {
+        int x = cell / grid.height;
+        int y = cell % grid.height;
+        for (int nx = x - 1; nx <= x + 1; nx++) {
+            for (int ny = y - 1; ny <= y + 1; ny++) {
+                if (grid.locationExists(nx, ny) && field[nx * grid.height + ny] != Float.POSITIVE_INFINITY) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    public synchronized void clear() {
+        for (float[] field : fields.values()) {
+            spare.push(field);
+        }
+        fields.clear();
+    }
+
+    public synchronized int size() {
+        return fields.size();
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    /**
+     * @return number of fields dropped because the map changed where they reached
+     */
+    public synchronized long getInvalidations() {
+        return invalidations;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("DistanceFieldCache[size %d/%d, hits %d, misses %d, invalidations %d]",
+                fields.size(), maxFields, hits, misses, invalidations);
+    }
+}
@@ -43,7 +43,9 @@
  */
 package environment;
 
+import config.SimConstants;
 import java.awt.Point;
+import java.util.Arrays;
 
 /**
  *The Environment is the true map the simulation uses as ground truth. Agents never know this data,
@@ -65,6 +67,17 @@ public class Environment implements IntGrid{
         barrier // 5 not traversable
     }
     private Status status[][];
+    // Status ordinal per cell at index x * rows + y, kept in step with status
+    private byte[] statusCodes;
+    // cell tests for LineTraversal
+    private static final LineTraversal.CellTest<Environment> ABOVE_ABILITY
+            = (env, x, y, ability) -> env.statusCodes[x * env.rows + y] > ability;
+    private static final LineTraversal.CellTest<Environment> WALL
+            = (env, x, y, unused) -> env.statusCodes[x * env.rows + y] >= Status.obstacle.ordinal();
+    // cells at or above Status.obstacle, bit (y * columns + x), built on demand
+    private volatile long[] obstacleBits;
+    // per ability, squared distance of every cell to the nearest cell above that ability, built on demand
+    private volatile int[][] clearance;
 
     /**
      * Simple constructor for setup stage -- rows and columns only
@@ -89,24 +102,174 @@ public class Environment implements IntGrid{
 
     public void setStatus(int i, int j, Status newStat) {
         status[i][j] = newStat;
+        statusCodes[i * rows + j] = (byte) newStat.ordinal();
+        obstacleBits = null;
+        clearance = null;
     }
 
     public Status statusAt(int i, int j) {
         return status[i][j];
     }
 
+    /**
+     * Same as statusAt(i, j).ordinal(), read from the packed status plane.
+     *
+     * @param i x coordinate
+     * @param j y coordinate
+     * @return ordinal of the status of the cell
+     */
+    public int statusCode(int i, int j) {
+        if (j < 0 || j >= rows) {
+            throw new ArrayIndexOutOfBoundsException(j);
+        }
+        return statusCodes[i * rows + j];
+    }
+
     public boolean obstacleAt(int i, int j) {
-        return (statusAt(i, j).ordinal() > Status.obstacle.ordinal());
+        return (statusCode(i, j) > Status.obstacle.ordinal());
     }
 
     public boolean obstacleAt(int i, int j, int ability) {
-        return (statusAt(i, j).ordinal() > ability);
+        return (statusCode(i, j) > ability);
     }
 
     public Status[][] getFullStatus() {
         return status;
     }
 
+    /**
+     * Packed bitmap of all cells that are obstacles or barriers, one bit per cell at index
+     * y * columns + x. Rebuilt after the environment has been changed. Do not modify.
+     *
+     * @return obstacle bitmap
+     */
+    public long[] getObstacleBitmap() {
+        long[] bits = obstacleBits;
+        if (bits == null) {
+            synchronized (this) {
+                bits = obstacleBits;
+                if (bits == null) {
+                    bits = new long[(rows * columns + 63) >>> 6];
+                    for (int y = 0; y < rows; y++) {
+                        for (int x = 0; x < columns; x++) {
+                            if (status[x][y].ordinal() >= Status.obstacle.ordinal()) {
+                                int index = y * columns + x;
+                                bits[index >>> 6] |= 1L << index;
+                            }
+                        }
+                    }
+                    obstacleBits = bits;
+                }
+            }
+        }
+        return bits;
+    }
+
+    /**
+     * Squared euclidean distance from the given cell to the nearest cell of the environment that
+     * is above the given ability (status ordinal > ability), 0 if the cell itself is. The distance
+     * fields are computed once per ability and rebuilt after the environment has been changed.
+     *
+     * @param x x coordinate, must exist
+     * @param y y coordinate, must exist
+     * @param ability highest traversable status ordinal
+     * @return squared distance, Integer.MAX_VALUE if there is no such cell
+     */
+    public int squaredClearance(int x, int y, int ability) {
+        if (ability < 0) {
+            return 0;
+        }
+        if (ability >= Status.barrier.ordinal()) {
+            return Integer.MAX_VALUE;
+        }
+        return clearanceField(ability)[x * rows + y];
+    }
+
+    private int[] clearanceField(int ability) {
+        int[][] fields = clearance;
+        if (fields == null || fields[ability] == null) {
+            synchronized (this) {
+                fields = clearance;
+                if (fields == null || fields[ability] == null) {
+                    fields = fields == null ? new int[Status.barrier.ordinal()][] : fields.clone();
+                    fields[ability] = distanceTransform(ability);
+                    clearance = fields;
+                }
+            }
+        }
+        return fields[ability];
+    }
+
+    /**
+     * Exact squared euclidean distance transform (Felzenszwalb and Huttenlocher): one pass along
+     * every column, then the lower envelope of the column parabolas along every row.
+     */
+    private int[] distanceTransform(int ability) {
+        final int inf = Integer.MAX_VALUE;
+        int[] field = new int[columns * rows];
+        for (int x = 0; x < columns; x++) {
+            int base = x * rows;
+            int last = -1;
+            for (int y = 0; y < rows; y++) {
+                if (statusCodes[base + y] > ability) {
+                    last = y;
+                    field[base + y] = 0;
+                } else {
+                    field[base + y] = last < 0 ? inf : (y - last) * (y - last);
+                }
+            }
+            last = -1;
+            for (int y = rows - 1; y >= 0; y--) {
+                if (field[base + y] == 0) {
+                    last = y;
+                } else if (last >= 0) {
+                    int d = (last - y) * (last - y);
+                    if (d < field[base + y]) {
+                        field[base + y] = d;
+                    }
+                }
+            }
+        }
+
+        int[] f = new int[columns];
+        int[] sites = new int[columns];
+        double[] bounds = new double[columns + 1];
+        for (int y = 0; y < rows; y++) {
+            int k = -1;
+            for (int q = 0; q < columns; q++) {
+                f[q] = field[q * rows + y];
+                if (f[q] == inf) {
+                    continue;
+                }
+                double s = Double.NEGATIVE_INFINITY;
+                while (k >= 0) {
+                    int v = sites[k];
+                    s = ((f[q] + (double) q * q) - (f[v] + (double) v * v)) / (2.0 * (q - v));
+                    if (s > bounds[k]) {
+                        break;
+                    }
+                    k--;
+                }
+                k++;
+                sites[k] = q;
+                bounds[k] = k == 0 ? Double.NEGATIVE_INFINITY : s;
+            }
+            if (k < 0) {
+                continue;
+            }
+            bounds[k + 1] = Double.POSITIVE_INFINITY;
+            int j = 0;
+            for (int x = 0; x < columns; x++) {
+                while (bounds[j + 1] < x) {
+                    j++;
+                }
+                int v = sites[j];
+                field[x * rows + y] = (x - v) * (x - v) + f[v];
+            }
+        }
+        return field;
+    }
+
     /**
      * get grid as Int[][] for debugging
      * @return
@@ -136,6 +299,8 @@ public class Environment implements IntGrid{
                 status[j][i] = Status.explored;
             }
         }
+        statusCodes = new byte[columns * rows];
+        Arrays.fill(statusCodes, (byte) Status.explored.ordinal());
     }
 
     /**
@@ -159,6 +324,10 @@ public class Environment implements IntGrid{
      */
     @Override
     public boolean obstacleWithinDistance(int x, int y, int minDistance) {
+        if (SimConstants.ENV_CLEARANCE_FIELD && locationExists(x, y)) {
+            return minDistance >= 0
+                    && squaredClearance(x, y, Status.obstacle.ordinal()) <= minDistance * minDistance;
+        }
         for (int i = x - minDistance; i <= x + minDistance; i++) {
             for (int j = y - minDistance; j <= y + minDistance; j++) {
                 if (locationExists(i, j)
@@ -221,6 +390,20 @@ public class Environment implements IntGrid{
         {
             return false;
         }
+        if (SimConstants.ENV_CLEARANCE_FIELD) {
+            // every cell of the bounding box is within the line length of both ends
+            int dx = destX - sourceX;
+            int dy = destY - sourceY;
+            int lengthSq = dx * dx + dy * dy;
+            if (squaredClearance(sourceX, sourceY, ability) > lengthSq
+                    || squaredClearance(destX, destY, ability) > lengthSq) {
+                return true;
+            }
+        }
+        if (SimConstants.INTEGER_LINE_TRAVERSAL) {
+            return LineTraversal.firstOnLine(this, ABOVE_ABILITY, ability, sourceX, sourceY, destX, destY,
+                    Math.min(sourceX, destX), Math.min(sourceY, destY), Math.max(sourceX, destX), Math.max(sourceY, destY)) == LineTraversal.NONE;
+        }
         for (int i = Math.min(sourceX, destX); i <= Math.max(sourceX, destX); i++) {
             for (int j = Math.min(sourceY, destY); j <= Math.max(sourceY, destY); j++) {
                 if ((distPointToLine(sourceX, sourceY, destX, destY, i, j) < 0.5)
@@ -285,6 +468,9 @@ public class Environment implements IntGrid{
     }
 
     public int numObstaclesOnLine(int x1, int y1, int x2, int y2) {
+        if (SimConstants.INTEGER_LINE_TRAVERSAL) {
+            return LineTraversal.countSampled(this, WALL, 0, x1, y1, x2, y2, true);
+        }
         int counter = 0;
         double angle = Math.atan2(y2 - y1, x2 - x1);
         int distance = (int) (Math.sqrt(Math.pow(y2 - y1, 2) + Math.pow(x2 - x1, 2)));
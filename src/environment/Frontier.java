@@ -61,6 +61,9 @@ public class Frontier implements Comparable<Frontier> {
     private Polygon areaPolygon;
     private LinkedList<Point> polygonOutline;
     private double area;
+    // outline points by position, built on first use and shared with copies
+    private volatile SpatialIndex<Point> outlineIndex;
+    private static final int OUTLINE_INDEX_CELL_SIZE = 16;
 
     // This constructor used by new calculatefrontier function
     public Frontier(int agentX, int agentY, LinkedList<Point> outline) {
@@ -72,8 +75,9 @@ public class Frontier implements Comparable<Frontier> {
     }
 
     // This constructor used by copy() function
-    private Frontier(LinkedList<Point> po, Polygon ap, double a, Point c, double d2c) {
+    private Frontier(LinkedList<Point> po, SpatialIndex<Point> index, Polygon ap, double a, Point c, double d2c) {
         this.polygonOutline = po;
+        this.outlineIndex = index;
         this.areaPolygon = ap;
         this.area = a;
         this.centre = c;
@@ -81,7 +85,12 @@ public class Frontier implements Comparable<Frontier> {
     }
 
     public Frontier copy() {
-        return new Frontier(polygonOutline, areaPolygon, area, centre, distanceToCentre);
+        return new Frontier(polygonOutline, outlineIndex, areaPolygon, area, centre, distanceToCentre);
+    }
+
+    // Copy with the distance measured from another position, used by FrontierIndex
+    public Frontier copy(int agentX, int agentY) {
+        return new Frontier(polygonOutline, outlineIndex, areaPolygon, area, centre, centre.distance(agentX, agentY));
     }
 
     @Override
@@ -151,18 +160,10 @@ public class Frontier implements Comparable<Frontier> {
     public Point getClosestPoint(Point ref, OccupancyGrid grid) {
         //return getCentre();
 
-        double closestDist = 1000000;
-        Point closestPoint = new Point(0, 0);
-        Point closePointNearWall = new Point(0, 0);
-        for (int i = 0; i < polygonOutline.size(); i++) {
-            if (polygonOutline.get(i).distance(ref) < closestDist) {
-                if (!grid.obstacleWithinDistance(polygonOutline.get(i).x, polygonOutline.get(i).y, SimConstants.WALL_DISTANCE)) {
-                    closestPoint = polygonOutline.get(i);
-                    closestDist = polygonOutline.get(i).distance(ref);
-                } else {
-                    closePointNearWall = polygonOutline.get(i);
-                }
-            }
+        Point closestPoint = getOutlineIndex().nearest(ref,
+                p -> !grid.obstacleWithinDistance(p.x, p.y, SimConstants.WALL_DISTANCE));
+        if (closestPoint == null) {
+            closestPoint = new Point(0, 0);
         }
         //return this.getCentre();
 
@@ -177,18 +178,20 @@ public class Frontier implements Comparable<Frontier> {
     }
 
     public Point getClosestPointInRange(RealAgent agent) {
-        double closestDist = 1000000;
-        Point closestPoint = new Point(0, 0);
-        for (int i = 0; i < polygonOutline.size(); i++) {
-            if (polygonOutline.get(i).distance(agent.getLocation()) < closestDist
-                    && !agent.getOccupancyGrid().obstacleWithinDistance(polygonOutline.get(i).x, polygonOutline.get(i).y, SimConstants.WALL_DISTANCE)
-                    && polygonOutline.get(i).distance(agent.getTeammate(1).getLocation()) < agent.getAllTeammates().size() * agent.getCommRange() - 5) {
-                closestPoint = polygonOutline.get(i);
-                closestDist = polygonOutline.get(i).distance(agent.getLocation());
-            }
-        }
+        Point closestPoint = getOutlineIndex().nearest(agent.getLocation(),
+                p -> !agent.getOccupancyGrid().obstacleWithinDistance(p.x, p.y, SimConstants.WALL_DISTANCE)
+                && p.distance(agent.getTeammate(1).getLocation()) < agent.getAllTeammates().size() * agent.getCommRange() - 5);
 
-        return closestPoint;
+        return (closestPoint == null) ? new Point(0, 0) : closestPoint;
+    }
+
+    private SpatialIndex<Point> getOutlineIndex() {
+        SpatialIndex<Point> index = outlineIndex;
+        if (index == null) {
+            index = new SpatialIndex<Point>(polygonOutline, OUTLINE_INDEX_CELL_SIZE);
+            outlineIndex = index;
+        }
+        return index;
     }
 
     public boolean hasUnknownBoundary(OccupancyGrid grid) {
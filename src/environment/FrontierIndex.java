@@ -0,0 +1,283 @@
+/*
+ *     Copyright 2010, 2015, 2017 Julian de Hoog (julian@dehoog.ca),
+ *     Victor Spirin (victor.spirin@cs.ox.ac.uk),
+ *     Christian Clausen (christian.clausen@uni-bremen.de
+ *
+ *     This file is part of MRESim 2.3, a simulator for testing the behaviour
+ *     of multiple robots exploring unknown environments.
+ *
+ *     If you use MRESim, I would appreciate an acknowledgement and/or a citation
+ *     of our papers:
+ *
+ *     @inproceedings{deHoog2009,
+ *         title = "Role-Based Autonomous Multi-Robot Exploration",
+ *         author = "Julian de Hoog, Stephen Cameron and Arnoud Visser",
+ *         year = "2009",
+ *         booktitle =
+ *     "International Conference on Advanced Cognitive Technologies and Applications (COGNITIVE)",
+ *         location = "Athens, Greece",
+ *         month = "November",
+ *     }
+ *
+ *     @incollection{spirin2015mresim,
+ *       title={MRESim, a Multi-robot Exploration Simulator for the Rescue Simulation League},
+ *       author={Spirin, Victor and de Hoog, Julian and Visser, Arnoud and Cameron, Stephen},
+ *       booktitle={RoboCup 2014: Robot World Cup XVIII},
+ *       pages={106--117},
+ *       year={2015},
+ *       publisher={Springer}
+ *     }
+ *
+ *     MRESim is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     MRESim is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License along with MRESim.
+ *     If not, see <http://www.gnu.org/licenses/>.
+ */
+package environment;
+
+import config.SimConstants;
+import java.awt.Point;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.TreeMap;
+
+/**
+ * Frontier contours of an OccupancyGrid, kept up to date from the grid's change log instead of
+ * being traced from scratch every time.
+ *
+ * Contours are traced exactly as by ContourTracer.findAllContours, but component by component:
+ * a contour never leaves the 8-connected component of frontier cells it starts in, and a
+ * component's contours only depend on the grid within two cells of it. So after a change only the
+ * components near changed cells are thrown away and traced again, and sorting all contours by
+ * their first cell in scan order gives the same list as a full recompute.
+ * SimConstants.VERIFY_FRONTIER_INDEX compares every result against the full recompute.
+ */
+public class FrontierIndex {
+
+    private static class Component {
+
+        final int[] cells;     // x * height + y
+        final int[] starts;    // scan order key of each contour found in this component
+
+        Component(int[] cells, int[] starts) {
+            this.cells = cells;
+            this.starts = starts;
+        }
+    }
+
+    private final OccupancyGrid grid;
+    private final int width;
+    private final int height;
+    private int version = -1;
+
+    private final boolean[] frontierCell;
+    private final Component[] componentAt;
+    private final int[] visited;
+    private int visit;
+    private final int[][] labels;
+    // frontiers (distance from (0,0)) by y * width + x of their first cell
+    private final TreeMap<Integer, Frontier> frontiers = new TreeMap<>();
+
+    FrontierIndex(OccupancyGrid grid) {
+        this.grid = grid;
+        this.width = grid.width;
+        this.height = grid.height;
+        frontierCell = new boolean[width * height];
+        componentAt = new Component[width * height];
+        visited = new int[width * height];
+        labels = new int[width][height];
+    }
+
+    /**
+     * Frontiers of the grid as seen from the given position, same as constructing a Frontier for
+     * every contour of ContourTracer.findAllContours.
+     */
+    public synchronized List<Frontier> frontiers(int agentX, int agentY) {
+        update();
+        if (SimConstants.VERIFY_FRONTIER_INDEX) {
+            verify();
+        }
+        List<Frontier> result = new ArrayList<>(frontiers.size());
+        for (Frontier frontier : frontiers.values()) {
+            result.add(frontier.copy(agentX, agentY));
+        }
+        return result;
+    }
+
+    /**
+     * Contours of the grid, same as ContourTracer.findAllContours.
+     */
+    public synchronized LinkedList<LinkedList<Point>> contours() {
+        update();
+        LinkedList<LinkedList<Point>> contours = new LinkedList<>();
+        for (Frontier frontier : frontiers.values()) {
+            contours.add(frontier.getPolygonOutline());
+        }
+        return contours;
+    }
+
+    private void verify() {
+        LinkedList<LinkedList<Point>> expected = ContourTracer.findAllContours(grid);
+        LinkedList<LinkedList<Point>> actual = new LinkedList<>();
+        for (Frontier frontier : frontiers.values()) {
+            actual.add(frontier.getPolygonOutline());
+        }
+        if (!expected.equals(actual)) {
+            System.err.println(grid.toString() + "Frontier index has " + actual.size()
+                    + " contours, full recompute " + expected.size() + ". Rebuilding.");
+            rebuild();
+        }
+    }
+
+    private void update() {
+        GridChangeLog log = grid.changeLog();
+        int[] changed = (version < 0) ? null : log.changesSince(version);
+        version = log.snapshot();
+        if (changed == null) {
+            rebuild();
+            return;
+        }
+        if (changed.length == 0) {
+            return;
+        }
+
+        // frontier status depends on the cell and its neighbours
+        nextVisit();
+        for (int cell : changed) {
+            int x = cell / height;
+            int y = cell % height;
+            for (int i = Math.max(x - 1, 0); i <= Math.min(x + 1, width - 1); i++) {
+                for (int j = Math.max(y - 1, 0); j <= Math.min(y + 1, height - 1); j++) {
+                    int n = i * height + j;
+                    if (visited[n] != visit) {
+                        visited[n] = visit;
+                        frontierCell[n] = grid.frontierCellAt(i, j);
+                    }
+                }
+            }
+        }
+
+        // contours of a component depend on the grid up to two cells around it
+        IntArrayList seeds = new IntArrayList();
+        for (int cell : changed) {
+            int x = cell / height;
+            int y = cell % height;
+            for (int i = Math.max(x - 2, 0); i <= Math.min(x + 2, width - 1); i++) {
+                for (int j = Math.max(y - 2, 0); j <= Math.min(y + 2, height - 1); j++) {
+                    int n = i * height + j;
+                    if (componentAt[n] != null) {
+                        discard(componentAt[n], seeds);
+                    }
+                    if (frontierCell[n]) {
+                        seeds.add(n);
+                    }
+                }
+            }
+        }
+
+        nextVisit();
+        for (int k = 0; k < seeds.size(); k++) {
+            int seed = seeds.get(k);
+            if (frontierCell[seed] && visited[seed] != visit) {
+                traceComponent(seed, seeds);
+            }
+        }
+    }
+
+    private void rebuild() {
+        frontiers.clear();
+        Arrays.fill(componentAt, null);
+        for (int i = 0; i < width; i++) {
+            for (int j = 0; j < height; j++) {
+                frontierCell[i * height + j] = grid.frontierCellAt(i, j);
+            }
+        }
+        nextVisit();
+        IntArrayList seeds = new IntArrayList();
+        for (int cell = 0; cell < frontierCell.length; cell++) {
+            if (frontierCell[cell] && visited[cell] != visit) {
+                traceComponent(cell, seeds);
+            }
+        }
+    }
+
+    // Forgets a component, its cells become seeds for the components replacing it
+    private void discard(Component component, IntArrayList seeds) {
+        for (int cell : component.cells) {
+            componentAt[cell] = null;
+            seeds.add(cell);
+        }
+        for (int start : component.starts) {
+            frontiers.remove(start);
+        }
+    }
+
+    /**
+     * Collects the component of frontier cells containing seed and traces its contours in scan
+     * order, as findAllContours would.
+     */
+    private void traceComponent(int seed, IntArrayList seeds) {
+        IntArrayList cells = new IntArrayList();
+        visited[seed] = visit;
+        cells.add(seed);
+        for (int k = 0; k < cells.size(); k++) {
+            int x = cells.get(k) / height;
+            int y = cells.get(k) % height;
+            for (int i = Math.max(x - 1, 0); i <= Math.min(x + 1, width - 1); i++) {
+                for (int j = Math.max(y - 1, 0); j <= Math.min(y + 1, height - 1); j++) {
+                    int n = i * height + j;
+                    if (frontierCell[n] && visited[n] != visit) {
+                        if (componentAt[n] != null) {
+                            // cannot happen if changes are logged, but keep the index consistent
+                            discard(componentAt[n], seeds);
+                        }
+                        visited[n] = visit;
+                        cells.add(n);
+                    }
+                }
+            }
+        }
+
+        int[] order = new int[cells.size()];
+        for (int k = 0; k < order.length; k++) {
+            order[k] = (cells.get(k) % height) * width + cells.get(k) / height;
+        }
+        Arrays.sort(order);
+        IntArrayList starts = new IntArrayList();
+        for (int key : order) {
+            int x = key % width;
+            int y = key / width;
+            if (labels[x][y] == 0) {
+                LinkedList<Point> contour = ContourTracer.traceNewContour(grid, x, y, labels);
+                if (contour != null) {
+                    frontiers.put(key, new Frontier(0, 0, contour));
+                    starts.add(key);
+                }
+            }
+        }
+
+        Component component = new Component(cells.toArray(), starts.toArray());
+        for (int cell : component.cells) {
+            componentAt[cell] = component;
+            labels[cell / height][cell % height] = 0;
+        }
+    }
+
+    private void nextVisit() {
+        visit++;
+        if (visit == 0) {
+            Arrays.fill(visited, 0);
+            visit = 1;
+        }
+    }
+}
@@ -0,0 +1,140 @@
+/*
+ *     Copyright 2010, 2015, 2017 Julian de Hoog (julian@dehoog.ca),
+ *     Victor Spirin (victor.spirin@cs.ox.ac.uk),
+ *     Christian Clausen (christian.clausen@uni-bremen.de
+ *
+ *     This file is part of MRESim 2.3, a simulator for testing the behaviour
+ *     of multiple robots exploring unknown environments.
+ *
+ *     If you use MRESim, I would appreciate an acknowledgement and/or a citation
+ *     of our papers:
+ *
+ *     @inproceedings{deHoog2009,
+ *         title = "Role-Based Autonomous Multi-Robot Exploration",
+ *         author = "Julian de Hoog, Stephen Cameron and Arnoud Visser",
+ *         year = "2009",
+ *         booktitle =
+ *     "International Conference on Advanced Cognitive Technologies and Applications (COGNITIVE)",
+ *         location = "Athens, Greece",
+ *         month = "November",
+ *     }
+ *
+ *     @incollection{spirin2015mresim,
+ *       title={MRESim, a Multi-robot Exploration Simulator for the Rescue Simulation League},
+ *       author={Spirin, Victor and de Hoog, Julian and Visser, Arnoud and Cameron, Stephen},
+ *       booktitle={RoboCup 2014: Robot World Cup XVIII},
+ *       pages={106--117},
+ *       year={2015},
+ *       publisher={Springer}
+ *     }
+ *
+ *     MRESim is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     MRESim is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License along with MRESim.
+ *     If not, see <http://www.gnu.org/licenses/>.
+ */
+package environment;
+
+import java.util.Arrays;
+
+/**
+ * Versioned log of the cells of an OccupancyGrid that changed. Every change appends the cell
+ * index, and the version of a grid is the number of entries ever appended. A cell is only appended
+ * again if a snapshot was taken since it was last appended, so between two exchanges every cell
+ * shows up at most once. Old entries are dropped once the log gets too long; asking for changes
+ * since a dropped version reports a gap.
+ */
+class GridChangeLog {
+
+    private final int[] loggedAt;   // version at which a cell was last appended, -1 if never
+    private int[] entries;
+    private final int maxEntries;
+    private int base;               // version of entries[0]
+    private int size;
+    private int lastSnapshot;
+
+    GridChangeLog(int cells) {
+        loggedAt = new int[cells];
+        Arrays.fill(loggedAt, -1);
+        entries = new int[Math.min(cells, 4096)];
+        maxEntries = Math.max(cells, 1024);
+        base = 0;
+        size = 0;
+        lastSnapshot = 0;
+    }
+
+    int version() {
+        return base + size;
+    }
+
+    /**
+     * Marks the current version as handed out, later changes of cells logged before it are logged
+     * again.
+     *
+     * @return the current version
+     */
+    int snapshot() {
+        lastSnapshot = version();
+        return lastSnapshot;
+    }
+
+    void record(int cell) {
+        int at = loggedAt[cell];
+        if (at >= base && at >= lastSnapshot) {
+            return; // already logged after the last snapshot
+        }
+        if (size == entries.length) {
+            if (size >= maxEntries || version() == Integer.MAX_VALUE) {
+                dropOldest();
+            } else {
+                entries = Arrays.copyOf(entries, Math.min(maxEntries, entries.length * 2));
+            }
+        }
+        loggedAt[cell] = base + size;
+        entries[size++] = cell;
+    }
+
+    /**
+     * Cells changed since the given version, each reported once, in no particular order.
+     *
+     * @param sinceVersion version returned by an earlier snapshot
+     * @return changed cells, or null if the log no longer reaches back to that version
+     */
+    int[] changesSince(int sinceVersion) {
+        if (sinceVersion < base || sinceVersion > version()) {
+            return null;
+        }
+        int[] cells = new int[version() - sinceVersion];
+        int count = 0;
+        for (int i = sinceVersion - base; i < size; i++) {
+            int cell = entries[i];
+            if (loggedAt[cell] == base + i) {
+                cells[count++] = cell;
+            }
+        }
+        return count == cells.length ? cells : Arrays.copyOf(cells, count);
+    }
+
+    private void dropOldest() {
+        int drop = size / 2;
+        if (version() == Integer.MAX_VALUE) {
+            // versions are about to overflow, forget everything and start again
+            Arrays.fill(loggedAt, -1);
+            base = 0;
+            size = 0;
+            lastSnapshot = 0;
+            return;
+        }
+        System.arraycopy(entries, drop, entries, 0, size - drop);
+        base += drop;
+        size -= drop;
+    }
+}
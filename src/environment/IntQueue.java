@@ -0,0 +1,113 @@
+/*
+ *     Copyright 2010, 2015, 2017 Julian de Hoog (julian@dehoog.ca),
+ *     Victor Spirin (victor.spirin@cs.ox.ac.uk),
+ *     Christian Clausen (christian.clausen@uni-bremen.de
+ *
+ *     This file is part of MRESim 2.3, a simulator for testing the behaviour
+ *     of multiple robots exploring unknown environments.
+ *
+ *     If you use MRESim, I would appreciate an acknowledgement and/or a citation
+ *     of our papers:
+ *
+ *     @inproceedings{deHoog2009,
+ *         title = "Role-Based Autonomous Multi-Robot Exploration",
+ *         author = "Julian de Hoog, Stephen Cameron and Arnoud Visser",
+ *         year = "2009",
+ *         booktitle =
+ *     "International Conference on Advanced Cognitive Technologies and Applications (COGNITIVE)",
+ *         location = "Athens, Greece",
+ *         month = "November",
+ *     }
+ *
+ *     @incollection{spirin2015mresim,
+ *       title={MRESim, a Multi-robot Exploration Simulator for the Rescue Simulation League},
+ *       author={Spirin, Victor and de Hoog, Julian and Visser, Arnoud and Cameron, Stephen},
+ *       booktitle={RoboCup 2014: Robot World Cup XVIII},
+ *       pages={106--117},
+ *       year={2015},
+ *       publisher={Springer}
+ *     }
+ *
+ *     MRESim is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     MRESim is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License along with MRESim.
+ *     If not, see <http://www.gnu.org/licenses/>.
+ */
+package environment;
+
+/**
+ * Growable first-in first-out queue of primitive ints, the queue counterpart of
+ * {@link IntArrayList}. Call {@link #clear()} to reuse it.
+ */
+public class IntQueue {
+
+    private int[] data;
+    private int head;
+    private int size;
+
+    public IntQueue() {
+        this(16);
+    }
+
+    public IntQueue(int capacity) {
+        data = new int[Math.max(capacity, 1)];
+        head = 0;
+        size = 0;
+    }
+
+    public void add(int value) {
+        if (size == data.length) {
+            int[] grown = new int[data.length * 2];
+            int first = Math.min(size, data.length - head);
+            System.arraycopy(data, head, grown, 0, first);
+            System.arraycopy(data, 0, grown, first, size - first);
+            data = grown;
+            head = 0;
+        }
+        int tail = head + size;
+        data[tail < data.length ? tail : tail - data.length] = value;
+        size++;
+    }
+
+    /**
+     * Removes and returns the oldest value.
+     */
+    public int poll() {
+        if (size == 0) {
+            throw new IllegalStateException("Queue is empty");
+        }
+        int value = data[head];
+        head = head + 1 == data.length ? 0 : head + 1;
+        size--;
+        return value;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void clear() {
+        head = 0;
+        size = 0;
+    }
+
+    public int[] toArray() {
+        int[] values = new int[size];
+        int first = Math.min(size, data.length - head);
+        System.arraycopy(data, head, values, 0, first);
+        System.arraycopy(data, 0, values, first, size - first);
+        return values;
+    }
+}
@@ -59,7 +59,10 @@ import org.j3d.texture.procedural.PerlinNoiseGenerator;
 public class MapTools {
 
     public static Environment generateRandomGaussianMap() {
-        Random generate = new Random();
+        return generateRandomGaussianMap(new Random());
+    }
+
+    public static Environment generateRandomGaussianMap(Random generate) {
         Environment env = new Environment(600, 800);
 
         int[][] vals = new int[800][600];
@@ -296,7 +299,10 @@ public class MapTools {
     }
 
     public static Environment generateRandomChunkMap() {
-        Random generate = new Random();
+        return generateRandomChunkMap(new Random());
+    }
+
+    public static Environment generateRandomChunkMap(Random generate) {
         Environment env = new Environment(600, 800);
 
         int[][] vals = new int[800][600];
@@ -0,0 +1,147 @@
+/*
+ *     Copyright 2010, 2015, 2017 Julian de Hoog (julian@dehoog.ca),
+ *     Victor Spirin (victor.spirin@cs.ox.ac.uk),
+ *     Christian Clausen (christian.clausen@uni-bremen.de
+ *
+ *     This file is part of MRESim 2.3, a simulator for testing the behaviour
+ *     of multiple robots exploring unknown environments.
+ *
+ *     If you use MRESim, I would appreciate an acknowledgement and/or a citation
+ *     of our papers:
+ *
+ *     @inproceedings{deHoog2009,
+ *         title = "Role-Based Autonomous Multi-Robot Exploration",
+ *         author = "Julian de Hoog, Stephen Cameron and Arnoud Visser",
+ *         year = "2009",
+ *         booktitle =
+ *     "International Conference on Advanced Cognitive Technologies and Applications (COGNITIVE)",
+ *         location = "Athens, Greece",
+ *         month = "November",
+ *     }
+ *
+ *     @incollection{spirin2015mresim,
+ *       title={MRESim, a Multi-robot Exploration Simulator for the Rescue Simulation League},
+ *       author={Spirin, Victor and de Hoog, Julian and Visser, Arnoud and Cameron, Stephen},
+ *       booktitle={RoboCup 2014: Robot World Cup XVIII},
+ *       pages={106--117},
+ *       year={2015},
+ *       publisher={Springer}
+ *     }
+ *
+ *     MRESim is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     MRESim is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License along with MRESim.
+ *     If not, see <http://www.gnu.org/licenses/>.
+ */
+package environment;
+
+import java.util.Arrays;
+
+/**
+ * Squared distance from every cell of an OccupancyGrid to the nearest known obstacle, exact up to
+ * RADIUS and capped above. Kept up to date cell by cell: a new obstacle lowers the values in the
+ * disc around it, a removed one makes the cells it was nearest to search their disc again.
+ */
+class ObstacleClearance {
+
+    static final int RADIUS = 10;
+    // stored for every cell with no obstacle within RADIUS
+    private static final int FAR = RADIUS * RADIUS + 1;
+    // offsets of the disc of RADIUS, by increasing distance
+    private static final int[] DISC_DX;
+    private static final int[] DISC_DY;
+    private static final int[] DISC_SQ;
+
+    static {
+        int n = 0;
+        long[] packed = new long[(2 * RADIUS + 1) * (2 * RADIUS + 1)];
+        for (int dx = -RADIUS; dx <= RADIUS; dx++) {
+            for (int dy = -RADIUS; dy <= RADIUS; dy++) {
+                int sq = dx * dx + dy * dy;
+                if (sq <= RADIUS * RADIUS) {
+                    packed[n++] = ((long) sq << 32) | ((dx + RADIUS) << 16) | (dy + RADIUS);
+                }
+            }
+        }
+        packed = Arrays.copyOf(packed, n);
+        Arrays.sort(packed);
+        DISC_DX = new int[n];
+        DISC_DY = new int[n];
+        DISC_SQ = new int[n];
+        for (int k = 0; k < n; k++) {
+            DISC_SQ[k] = (int) (packed[k] >>> 32);
+            DISC_DX[k] = (int) ((packed[k] >>> 16) & 0xFFFF) - RADIUS;
+            DISC_DY[k] = (int) (packed[k] & 0xFFFF) - RADIUS;
+        }
+    }
+
+    private final OccupancyGrid grid;
+    private final int width;
+    private final int height;
+    private final byte[] clearance;   // index x * height + y, unsigned
+
+    ObstacleClearance(OccupancyGrid grid, int width, int height) {
+        this.grid = grid;
+        this.width = width;
+        this.height = height;
+        clearance = new byte[width * height];
+        Arrays.fill(clearance, (byte) FAR);
+        for (int x = 0; x < width; x++) {
+            for (int y = 0; y < height; y++) {
+                if (grid.obstacleAt(x, y)) {
+                    obstacleAdded(x, y);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return true if there is a known obstacle within distance (at most RADIUS) of the cell
+     */
+    boolean obstacleWithin(int x, int y, int distance) {
+        return (clearance[x * height + y] & 0xFF) <= distance * distance;
+    }
+
+    void obstacleAdded(int x, int y) {
+        for (int k = 0; k < DISC_SQ.length; k++) {
+            int i = x + DISC_DX[k];
+            int j = y + DISC_DY[k];
+            if (i >= 0 && i < width && j >= 0 && j < height) {
+                int cell = i * height + j;
+                if ((clearance[cell] & 0xFF) > DISC_SQ[k]) {
+                    clearance[cell] = (byte) DISC_SQ[k];
+                }
+            }
+        }
+    }
+
+    void obstacleRemoved(int x, int y) {
+        for (int k = 0; k < DISC_SQ.length; k++) {
+            int i = x + DISC_DX[k];
+            int j = y + DISC_DY[k];
+            if (i >= 0 && i < width && j >= 0 && j < height && (clearance[i * height + j] & 0xFF) == DISC_SQ[k]) {
+                clearance[i * height + j] = (byte) nearest(i, j);
+            }
+        }
+    }
+
+    // squared distance to the nearest obstacle within RADIUS, FAR if there is none
+    private int nearest(int x, int y) {
+        for (int k = 0; k < DISC_SQ.length; k++) {
+            int i = x + DISC_DX[k];
+            int j = y + DISC_DY[k];
+            if (i >= 0 && i < width && j >= 0 && j < height && grid.obstacleAt(i, j)) {
+                return DISC_SQ[k];
+            }
+        }
+        return FAR;
+    }
+}
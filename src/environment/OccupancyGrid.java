@@ -53,8 +53,10 @@ import java.io.IOException;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 import javax.imageio.ImageIO;
 
 /**
@@ -77,6 +79,19 @@ public class OccupancyGrid implements IntGrid {
         FreeSpace, Plane, Slope, Hill, Obstacle, SafeSpace, KnownAtBase, GotRelayed, FinalTopologicalMap
     }
     private byte[][] grid;
+    /**
+     * Bit-packed storage used instead of grid if SimConstants.PACKED_OCC_GRID is set: one plane
+     * per bit of the cell byte, cell (x, y) is bit x * height + y of each plane. Like the byte
+     * storage, it holds the bits up to GotRelayed; FinalTopologicalMap does not fit in a byte.
+     * Copies and delta replicas share the tiles of the planes that neither of them changed.
+     */
+    private TiledPlanes planes;
+    private static final int STORED_BITS = 8;
+    // bits compared by getByteNoRelay and mergeGrid
+    private static final int MERGED_BITS = OccGridBit.GotRelayed.ordinal();
+    // cell tests for LineTraversal
+    private static final LineTraversal.CellTest<OccupancyGrid> OBSTACLE = (grid, x, y, unused) -> grid.obstacleAt(x, y);
+    private static final LineTraversal.CellTest<OccupancyGrid> NOT_FREE = (grid, x, y, unused) -> !grid.freeSpaceAt(x, y);
     public int height;
     public int width;
 
@@ -98,14 +113,51 @@ public class OccupancyGrid implements IntGrid {
     private int hashCode = 0;
     private int[][] skeleton;
     private LinkedList<Point> skeletonList;
+    private SkeletonEngine skeletonEngine;
+
+    // delta exchange: grids sending deltas log their changes, replicas remember what they mirror
+    private static final AtomicInteger nextGridID = new AtomicInteger();
+    private final int gridID;
+    private int sourceGridID = -1;
+    private int sourceVersion;
+    private GridChangeLog changeLog;
+    private FrontierIndex frontierIndex;
+    private ObstacleClearance clearance;
+    private HashMap<Integer, MergeRecord> mergeRecords;
+    // candidate cells of the next delta merge, see markCandidates
+    private long[] mergeMarks;
+    private int firstMarkedWord;
+    private int lastMarkedWord;
+
+    /**
+     * What we know about a partner replica after the last merge with it: our own version at that
+     * point, and the cells that were still different afterwards.
+     */
+    private static class MergeRecord {
+
+        final OccupancyGrid partner;
+        final int version;
+        final int[] residual;
+
+        MergeRecord(OccupancyGrid partner, int version, int[] residual) {
+            this.partner = partner;
+            this.version = version;
+            this.residual = residual;
+        }
+    }
 
     public OccupancyGrid(int newWidth, int newHeight) {
+        gridID = nextGridID.incrementAndGet();
         width = newWidth;
         height = newHeight;
-        grid = new byte[width][height];
-        for (int i = 0; i < width; i++) {
-            for (int j = 0; j < height; j++) {
-                grid[i][j] = 0;
+        if (SimConstants.PACKED_OCC_GRID) {
+            planes = new TiledPlanes(STORED_BITS, width * height);
+        } else {
+            grid = new byte[width][height];
+            for (int i = 0; i < width; i++) {
+                for (int j = 0; j < height; j++) {
+                    grid[i][j] = 0;
+                }
             }
         }
 
@@ -122,9 +174,13 @@ public class OccupancyGrid implements IntGrid {
 
     public OccupancyGrid copy() {
         OccupancyGrid copyGrid = new OccupancyGrid(width, height);
-        for (int i = 0; i < width; i++) {
-            for (int j = 0; j < height; j++) {
-                copyGrid.setByte(i, j, getByte(i, j));
+        if (planes != null && copyGrid.planes != null) {
+            copyGrid.planes = planes.copy();
+        } else {
+            for (int i = 0; i < width; i++) {
+                for (int j = 0; j < height; j++) {
+                    copyGrid.setByte(i, j, getByte(i, j));
+                }
             }
         }
         copyGrid.cellsMarkedAsFreeAndKnownAtBase = cellsMarkedAsFreeAndKnownAtBase;
@@ -151,6 +207,10 @@ public class OccupancyGrid implements IntGrid {
             return false;
         }
 
+        if (planes != null) {
+            // like the byte storage below, which compares the column arrays by identity
+            return planes == ((OccupancyGrid) obj).planes;
+        }
         return Arrays.equals(grid, ((OccupancyGrid) obj).grid);
     }
 
@@ -160,7 +220,8 @@ public class OccupancyGrid implements IntGrid {
             return this.hashCode;
         } else {
             int hash = 5;
-            hash = 73 * hash + Arrays.deepHashCode(this.grid);
+            hash = 73 * hash + ((planes != null) ? planes.deepHashCode() : Arrays.deepHashCode(this.grid));
+            this.hashCode = hash; // every write resets it
             return hash;
         }
     }
@@ -190,8 +251,76 @@ public class OccupancyGrid implements IntGrid {
 
     //TODO: should be able to make this more efficient
     public LinkedList<Point> mergeGrid(OccupancyGrid partnerOccGrid, boolean withBaseStation) {
+        return mergeCells(partnerOccGrid, null, withBaseStation, null);
+    }
+
+    /**
+     * Merges a replica of a teammate's grid that has just been brought up to date with the given
+     * delta. Only cells that changed on either side since the last merge with this replica, or
+     * that were still different after it, are visited; the result is the same as merging the full
+     * grid.
+     *
+     * @param partnerOccGrid replica of the teammate's grid, already updated with delta
+     * @param delta the update the replica received
+     * @param withBaseStation whether the partner or we are the base station
+     * @return cells that were updated
+     */
+    public LinkedList<Point> mergeGrid(OccupancyGrid partnerOccGrid, OccupancyGridDelta delta, boolean withBaseStation) {
+        if (mergeRecords == null) {
+            mergeRecords = new HashMap<Integer, MergeRecord>();
+        }
+        MergeRecord record = mergeRecords.get(partnerOccGrid.sourceGridID);
+        int[] candidates = null;
+        boolean marked = false;
+        if (!delta.isFull() && record != null && record.partner == partnerOccGrid) {
+            int[] ownChanges = changeLog().changesSince(record.version);
+            if (ownChanges != null) {
+                if (samePacking(partnerOccGrid)) {
+                    markCandidates(delta.cells);
+                    markCandidates(ownChanges);
+                    markCandidates(record.residual);
+                    marked = true;
+                } else {
+                    candidates = union(delta.cells, ownChanges, record.residual);
+                }
+            }
+        }
+        IntArrayList residual = new IntArrayList();
+        LinkedList<Point> cellsUpdated = marked
+                ? mergeMarkedCells(partnerOccGrid, withBaseStation, residual)
+                : mergeCells(partnerOccGrid, candidates, withBaseStation, residual);
+        mergeRecords.put(partnerOccGrid.sourceGridID,
+                new MergeRecord(partnerOccGrid, changeLog().snapshot(), residual.toArray()));
+        return cellsUpdated;
+    }
+
+    /**
+     * Sorted union of cell indices, so cells are merged in the same order as by a full scan.
+     */
+    private static int[] union(int[] a, int[] b, int[] c) {
+        int[] all = new int[a.length + b.length + c.length];
+        System.arraycopy(a, 0, all, 0, a.length);
+        System.arraycopy(b, 0, all, a.length, b.length);
+        System.arraycopy(c, 0, all, a.length + b.length, c.length);
+        Arrays.sort(all);
+        int n = 0;
+        for (int k = 0; k < all.length; k++) {
+            if (n == 0 || all[k] != all[n - 1]) {
+                all[n++] = all[k];
+            }
+        }
+        return Arrays.copyOf(all, n);
+    }
+
+    /**
+     * Merges the given cells (all cells if null) of the partner grid into this one.
+     *
+     * @param residual if not null, receives the cells that are still different after the merge
+     */
+    private LinkedList<Point> mergeCells(OccupancyGrid partnerOccGrid, int[] cells, boolean withBaseStation,
+            IntArrayList residual) {
         LinkedList<Point> cellsUpdated = new LinkedList();
-        if (this.hashCode() == partnerOccGrid.hashCode()) {
+        if (cells == null && this.hashCode() == partnerOccGrid.hashCode()) {
             return cellsUpdated;
         }
         this.skeleton = null;
@@ -199,94 +328,362 @@ public class OccupancyGrid implements IntGrid {
         this.hashCode = 0;
         int totalCellsTransferred = 0;
         int cellsSetKnownAtBase = 0;
-        for (int i = 0; i < this.width; i++) {
-            for (int j = 0; j < this.height; j++) {
-                if (this.getByteNoRelay(i, j) != partnerOccGrid.getByteNoRelay(i, j)) {
-                    totalCellsTransferred++;
-
-                    // if the information is completely new, get relay status
-                    // otherwise, we may be the relay!
-                    if (this.getByte(i, j) == 0) {
-                        if (partnerOccGrid.isGotRelayed(i, j)) {
-                            this.setGotRelayed(i, j);
-                        }
-                        //this.setByte(i, j, (byte)(this.getByte(i,j) | partnerOccGrid.getByte(i,j)));
-                    }
+        if (cells == null && samePacking(partnerOccGrid)) {
+            // compare 64 cells at a time, and only merge the ones that differ, in ascending order
+            for (int w = 0; w < planes.words(); w++) {
+                long diff = differingBits(partnerOccGrid, w);
+                totalCellsTransferred += Long.bitCount(diff);
+                cellsSetKnownAtBase += mergeWord(partnerOccGrid, w, diff, withBaseStation, residual, cellsUpdated);
+            }
+            if (SimConstants.DEBUG_OUTPUT) {
+                System.out.println("Cells transerred: " + totalCellsTransferred + ", set known at base: " + cellsSetKnownAtBase);
+            }
+            return cellsUpdated;
+        }
+        int count = (cells == null) ? width * height : cells.length;
+        for (int k = 0; k < count; k++) {
+            int cell = (cells == null) ? k : cells[k];
+            int i = cell / height;
+            int j = cell % height;
+            if (this.getByteNoRelay(i, j) != partnerOccGrid.getByteNoRelay(i, j)) {
+                totalCellsTransferred++;
+                cellsSetKnownAtBase += mergeCell(partnerOccGrid, i, j, withBaseStation);
+                cellsUpdated.add(new Point(i, j));
+                if (residual != null && this.getByteNoRelay(i, j) != partnerOccGrid.getByteNoRelay(i, j)) {
+                    residual.add(cell);
+                }
+            }
+        }
+        if (SimConstants.DEBUG_OUTPUT) {
+            System.out.println("Cells transerred: " + totalCellsTransferred + ", set known at base: " + cellsSetKnownAtBase);
+        }
+        return cellsUpdated;
+    }
 
+    private boolean samePacking(OccupancyGrid other) {
+        return planes != null && other.planes != null && other.width == width && other.height == height;
+    }
 
-                    if (partnerOccGrid.safeSpaceAt(i, j)) {
-                        if (partnerOccGrid.freeSpaceAt(i, j)) {
-                            if (this.safeSpaceAt(i, j) && (this.obstacleAt(i, j))) {
-                                //Both think it's safe space, partner thinks it's free, we think it's obstacle
-                                this.setFreeSpaceAt(i, j);
-                                this.setNoObstacleAt(i, j);
-                            } else {
-                                this.setFreeSpaceAt(i, j);
-                                this.setNoObstacleAt(i, j);
-                                this.setSafeSpaceAt(i, j);
-                            }
-                        }
-                        if (partnerOccGrid.obstacleAt(i, j)) {
-                            if (this.safeSpaceAt(i, j) && (!this.obstacleAt(i, j))) {
-                                //Both think it's safe space, partner thinks it's obstacle, we think it's free
-                            } else {
-                                this.setNoFreeSpaceAt(i, j);
-                                this.setObstacleAt(i, j);
-                                this.setSafeSpaceAt(i, j);
-                            }
-                        }
-                    } else {
-                        if (partnerOccGrid.freeSpaceAt(i, j)) {
-                            if (this.safeSpaceAt(i, j)) {
-                                // Do nothing, safe space always overrides unsafe space
-                            } else if (this.obstacleAt(i, j)) {
-                                this.setFreeSpaceAt(i, j);
-                            } else {
-                                this.setFreeSpaceAt(i, j);
-                            }
-                        }
-                        if (partnerOccGrid.obstacleAt(i, j)) {
-                            if (this.safeSpaceAt(i, j)) {
-                                // Do nothing, safe space always overrides unsafe space
-                            } else if (this.freeSpaceAt(i, j)) {
-                                //do nothing, free space has priority
-                            } else {
-                                this.setNoFreeSpaceAt(i, j);
-                                this.setObstacleAt(i, j);
-                            }
-                        }
-                    }
-                    /*
-                    if (partnerOccGrid.freeSpaceAt(i, j) && (!this.obstacleAt(i, j))) {
-                        this.setFreeSpaceAt(i, j);
-                    }
-                    if (partnerOccGrid.obstacleAt(i, j) && !this.safeSpaceAt(i, j))
-                        this.setObstacleAt(i, j);*/
-                    if (partnerOccGrid.isKnownAtBase(i, j) && !this.isKnownAtBase(i, j)) {
-                        cellsSetKnownAtBase++;
-                        this.setKnownAtBase(i, j);
-                    }
+    /**
+     * Adds cells to the candidates of the next {@link #mergeMarkedCells}, one bit per cell in the
+     * layout of the planes, so overlapping change lists need neither sorting nor deduplication.
+     */
+    private void markCandidates(int[] cells) {
+        if (mergeMarks == null) {
+            mergeMarks = new long[planes.words()];
+            firstMarkedWord = mergeMarks.length;
+            lastMarkedWord = -1;
+        }
+        for (int cell : cells) {
+            int w = cell >>> 6;
+            mergeMarks[w] |= 1L << cell;
+            firstMarkedWord = Math.min(firstMarkedWord, w);
+            lastMarkedWord = Math.max(lastMarkedWord, w);
+        }
+    }
 
-                    /*else {
-                        this.setByte(i, j, (byte)(this.getByte(i,j) | partnerOccGrid.getByteNoRelay(i,j)));
-                    }*/
-                    if (withBaseStation) {
-                        if (!this.isKnownAtBase(i, j)) {
-                            cellsSetKnownAtBase++;
-                            this.setKnownAtBase(i, j);
-                        }
-                    }
-                    cellsUpdated.add(new Point(i, j));
-                }
-                assert (this.getByteNoRelay(i, j) == partnerOccGrid.getByteNoRelay(i, j));
+    /**
+     * Merges the marked cells that differ from the partner grid, in ascending order like
+     * {@link #mergeCells}, and clears the marks.
+     */
+    private LinkedList<Point> mergeMarkedCells(OccupancyGrid partnerOccGrid, boolean withBaseStation,
+            IntArrayList residual) {
+        LinkedList<Point> cellsUpdated = new LinkedList<>();
+        this.skeleton = null;
+        this.skeletonList.clear();
+        this.hashCode = 0;
+        int totalCellsTransferred = 0;
+        int cellsSetKnownAtBase = 0;
+        for (int w = firstMarkedWord; w <= lastMarkedWord; w++) {
+            long marks = mergeMarks[w];
+            if (marks == 0) {
+                continue;
             }
+            mergeMarks[w] = 0;
+            long diff = differingBits(partnerOccGrid, w) & marks;
+            totalCellsTransferred += Long.bitCount(diff);
+            cellsSetKnownAtBase += mergeWord(partnerOccGrid, w, diff, withBaseStation, residual, cellsUpdated);
         }
+        firstMarkedWord = mergeMarks.length;
+        lastMarkedWord = -1;
         if (SimConstants.DEBUG_OUTPUT) {
             System.out.println("Cells transerred: " + totalCellsTransferred + ", set known at base: " + cellsSetKnownAtBase);
         }
         return cellsUpdated;
     }
 
+    // cells of word w of the planes where getByteNoRelay differs from the partner grid
+    private long differingBits(OccupancyGrid partnerOccGrid, int w) {
+        long diff = 0;
+        for (int p = 0; p < MERGED_BITS; p++) {
+            diff |= planes.word(p, w) ^ partnerOccGrid.planes.word(p, w);
+        }
+        return diff;
+    }
+
+    /**
+     * Merges the cells of word w of the planes given by diff, in ascending order. Merging a cell
+     * only changes that cell, so diff stays valid for the remaining ones.
+     *
+     * @return number of times a cell was set known at base
+     */
+    private int mergeWord(OccupancyGrid partnerOccGrid, int w, long diff, boolean withBaseStation,
+            IntArrayList residual, LinkedList<Point> cellsUpdated) {
+        int cellsSetKnownAtBase = 0;
+        while (diff != 0) {
+            int cell = (w << 6) + Long.numberOfTrailingZeros(diff);
+            diff &= diff - 1;
+            int i = cell / height;
+            int j = cell % height;
+            cellsSetKnownAtBase += mergeCell(partnerOccGrid, i, j, withBaseStation);
+            cellsUpdated.add(new Point(i, j));
+            if (residual != null && this.getByteNoRelay(i, j) != partnerOccGrid.getByteNoRelay(i, j)) {
+                residual.add(cell);
+            }
+        }
+        return cellsSetKnownAtBase;
+    }
+
+    /**
+     * Merges a single cell the partner has different information about.
+     *
+     * @return number of times the cell was set known at base
+     */
+    private int mergeCell(OccupancyGrid partnerOccGrid, int i, int j, boolean withBaseStation) {
+        int cellsSetKnownAtBase = 0;
+
+        // if the information is completely new, get relay status
+        // otherwise, we may be the relay!
+        if (this.getByte(i, j) == 0) {
+            if (partnerOccGrid.isGotRelayed(i, j)) {
+                this.setGotRelayed(i, j);
+            }
+            //this.setByte(i, j, (byte)(this.getByte(i,j) | partnerOccGrid.getByte(i,j)));
+        }
+
+
+        if (partnerOccGrid.safeSpaceAt(i, j)) {
+            if (partnerOccGrid.freeSpaceAt(i, j)) {
+                if (this.safeSpaceAt(i, j) && (this.obstacleAt(i, j))) {
+                    //Both think it's safe space, partner thinks it's free, we think it's obstacle
+                    this.setFreeSpaceAt(i, j);
+                    this.setNoObstacleAt(i, j);
+                } else {
+                    this.setFreeSpaceAt(i, j);
+                    this.setNoObstacleAt(i, j);
+                    this.setSafeSpaceAt(i, j);
+                }
+            }
+            if (partnerOccGrid.obstacleAt(i, j)) {
+                if (this.safeSpaceAt(i, j) && (!this.obstacleAt(i, j))) {
+                    //Both think it's safe space, partner thinks it's obstacle, we think it's free
+                } else {
+                    this.setNoFreeSpaceAt(i, j);
+                    this.setObstacleAt(i, j);
+                    this.setSafeSpaceAt(i, j);
+                }
+            }
+        } else {
+            if (partnerOccGrid.freeSpaceAt(i, j)) {
+                if (this.safeSpaceAt(i, j)) {
+                    // Do nothing, safe space always overrides unsafe space
+                } else if (this.obstacleAt(i, j)) {
+                    this.setFreeSpaceAt(i, j);
+                } else {
+                    this.setFreeSpaceAt(i, j);
+                }
+            }
+            if (partnerOccGrid.obstacleAt(i, j)) {
+                if (this.safeSpaceAt(i, j)) {
+                    // Do nothing, safe space always overrides unsafe space
+                } else if (this.freeSpaceAt(i, j)) {
+                    //do nothing, free space has priority
+                } else {
+                    this.setNoFreeSpaceAt(i, j);
+                    this.setObstacleAt(i, j);
+                }
+            }
+        }
+        /*
+        if (partnerOccGrid.freeSpaceAt(i, j) && (!this.obstacleAt(i, j))) {
+            this.setFreeSpaceAt(i, j);
+        }
+        if (partnerOccGrid.obstacleAt(i, j) && !this.safeSpaceAt(i, j))
+            this.setObstacleAt(i, j);*/
+        if (partnerOccGrid.isKnownAtBase(i, j) && !this.isKnownAtBase(i, j)) {
+            cellsSetKnownAtBase++;
+            this.setKnownAtBase(i, j);
+        }
+
+        /*else {
+            this.setByte(i, j, (byte)(this.getByte(i,j) | partnerOccGrid.getByteNoRelay(i,j)));
+        }*/
+        if (withBaseStation) {
+            if (!this.isKnownAtBase(i, j)) {
+                cellsSetKnownAtBase++;
+                this.setKnownAtBase(i, j);
+            }
+        }
+        return cellsSetKnownAtBase;
+    }
+
+    /**
+     * Changes of this grid since the given replica of it was last brought up to date. If there is
+     * no replica yet, or it is older than the change log reaches back, the delta is a full copy.
+     *
+     * @param replica the receiver's current replica of this grid, may be null
+     * @return delta to be applied to the replica with {@link OccupancyGridDelta#applyTo}
+     */
+    public OccupancyGridDelta deltaFor(OccupancyGrid replica) {
+        GridChangeLog log = changeLog();
+        int[] cells = null;
+        if (replica != null && replica.sourceGridID == gridID) {
+            cells = log.changesSince(replica.sourceVersion);
+        }
+        int version = log.snapshot();
+        if (cells == null) {
+            OccupancyGrid full = copy();
+            full.sourceGridID = gridID;
+            full.sourceVersion = version;
+            return new OccupancyGridDelta(full, gridID, version);
+        }
+        byte[] values = new byte[cells.length];
+        boolean[] owned = new boolean[cells.length];
+        for (int k = 0; k < cells.length; k++) {
+            int i = cells[k] / height;
+            int j = cells[k] % height;
+            values[k] = getByte(i, j);
+            owned[k] = cellsFreeNotKnownAtBaseNotRelayed.containsKey(new Point(i, j));
+        }
+        TiledPlanes snapshot = (planes != null) ? planes.copy() : null;
+        return new OccupancyGridDelta(gridID, replica.sourceVersion, version, cells, values, owned, snapshot,
+                cellsMarkedAsFree, cellsMarkedAsFreeAndKnownAtBase, cellsMarkedAsFreeAndRelayedAndNotKnownAtBase,
+                mapCellsChanged);
+    }
+
+    void applyDelta(OccupancyGridDelta delta) {
+        if (sourceGridID != delta.sourceGridID || sourceVersion != delta.fromVersion) {
+            throw new IllegalStateException(this.toString() + "Delta does not fit this replica.");
+        }
+        // tiles that end up like the sender's are taken over instead of written, so that the
+        // replicas of a grid share them
+        boolean[] wasObstacle = null;
+        if (clearance != null) {
+            wasObstacle = new boolean[delta.cells.length];
+            for (int k = 0; k < delta.cells.length; k++) {
+                wasObstacle[k] = obstacleAt(delta.cells[k] / height, delta.cells[k] % height);
+            }
+        }
+        boolean[] adopted = (planes != null && delta.snapshot != null)
+                ? planes.adoptMatching(delta.snapshot, delta.cells) : null;
+        for (int k = 0; k < delta.cells.length; k++) {
+            int i = delta.cells[k] / height;
+            int j = delta.cells[k] % height;
+            if (adopted == null || !adopted[TiledPlanes.tileOf(delta.cells[k])]) {
+                writeByte(i, j, delta.values[k]);
+            }
+            if (wasObstacle != null && wasObstacle[k] != obstacleAt(i, j)) {
+                obstacleChanged(i, j);
+            }
+            markChanged(i, j);
+            if (delta.owned[k]) {
+                cellsFreeNotKnownAtBaseNotRelayed.put(new Point(i, j), 1);
+            } else {
+                cellsFreeNotKnownAtBaseNotRelayed.remove(new Point(i, j));
+            }
+        }
+        cellsMarkedAsFree = delta.cellsMarkedAsFree;
+        cellsMarkedAsFreeAndKnownAtBase = delta.cellsMarkedAsFreeAndKnownAtBase;
+        cellsMarkedAsFreeAndRelayedAndNotKnownAtBase = delta.cellsMarkedAsFreeAndRelayedAndNotKnownAtBase;
+        mapCellsChanged = delta.mapCellsChanged;
+        sourceVersion = delta.toVersion;
+        hashCode = 0;
+        skeleton = null;
+        skeletonList.clear();
+    }
+
+    /**
+     * Tile storage of the packed grids among a set of grids.
+     */
+    public static class TileStats {
+
+        /** distinct tiles held by the grids */
+        public final int liveTiles;
+        public final long liveBytes;
+        /** bytes the grids would take on top of liveBytes if none of them shared a tile */
+        public final long sharedBytes;
+
+        TileStats(int liveTiles, long liveBytes, long sharedBytes) {
+            this.liveTiles = liveTiles;
+            this.liveBytes = liveBytes;
+            this.sharedBytes = sharedBytes;
+        }
+
+        @Override
+        public String toString() {
+            return "live tiles " + liveTiles + " (" + liveBytes / 1024 + " KiB), shared " + sharedBytes / 1024 + " KiB";
+        }
+    }
+
+    /**
+     * @param grids grids to count, each grid counts once however often it is given
+     */
+    public static TileStats tileStats(Collection<OccupancyGrid> grids) {
+        IdentityHashMap<TiledPlanes, Boolean> seenPlanes = new IdentityHashMap<>();
+        IdentityHashMap<long[], Boolean> seenTiles = new IdentityHashMap<>();
+        long references = 0;
+        long tileBytes = 0;
+        for (OccupancyGrid grid : grids) {
+            if (grid == null || grid.planes == null || seenPlanes.put(grid.planes, Boolean.TRUE) != null) {
+                continue;
+            }
+            tileBytes = grid.planes.tileBytes();
+            for (int t = 0; t < grid.planes.tileCount(); t++) {
+                seenTiles.put(grid.planes.tile(t), Boolean.TRUE);
+                references++;
+            }
+        }
+        return new TileStats(seenTiles.size(), seenTiles.size() * tileBytes, (references - seenTiles.size()) * tileBytes);
+    }
+
+    GridChangeLog changeLog() {
+        if (changeLog == null) {
+            changeLog = new GridChangeLog(width * height);
+        }
+        return changeLog;
+    }
+
+    private synchronized ObstacleClearance clearance() {
+        if (clearance == null) {
+            clearance = new ObstacleClearance(this, width, height);
+        }
+        return clearance;
+    }
+
+    // keeps the clearance field, if there is one, up to date after the obstacle bit of a cell flipped
+    private void obstacleChanged(int xCoord, int yCoord) {
+        if (clearance != null) {
+            if (obstacleAt(xCoord, yCoord)) {
+                clearance.obstacleAdded(xCoord, yCoord);
+            } else {
+                clearance.obstacleRemoved(xCoord, yCoord);
+            }
+        }
+    }
+
+    synchronized FrontierIndex frontierIndex() {
+        if (frontierIndex == null) {
+            frontierIndex = new FrontierIndex(this);
+        }
+        return frontierIndex;
+    }
+
+    // Only grids that have handed out or merged a delta, or have a frontier index, keep a change log
+    private void markChanged(int xCoord, int yCoord) {
+        if (changeLog != null) {
+            changeLog.record(xCoord * height + yCoord);
+        }
+    }
 
     public boolean legalMove(Point source, Point dest) {
         int dx = dest.x - source.x;
@@ -432,6 +829,7 @@ public class OccupancyGrid implements IntGrid {
                 cellsMarkedAsFreeAndRelayedAndNotKnownAtBase--;
             } else if (freeSpaceAt(xCoord, yCoord)) {
                 Integer success = cellsFreeNotKnownAtBaseNotRelayed.remove(new Point(xCoord, yCoord));
+                markChanged(xCoord, yCoord);
                 if (success == null) {
                     if (SimConstants.DEBUG_OUTPUT) {
                         System.out.println("@@@@@@@@@@ Tried to remove cellsFreeNotKnownAtBaseNotRelayed element "
@@ -458,6 +856,7 @@ public class OccupancyGrid implements IntGrid {
             cellsMarkedAsFreeAndRelayedAndNotKnownAtBase++;
             if (updateOwnedCellsList && freeSpaceAt(xCoord, yCoord) && !isKnownAtBase(xCoord, yCoord)) {
                 Integer success = cellsFreeNotKnownAtBaseNotRelayed.remove(new Point(xCoord, yCoord));
+                markChanged(xCoord, yCoord);
                 if (success == null) {
                     if (SimConstants.DEBUG_OUTPUT) {
                         System.out.println("@@@@@@@@@@ Tried to remove cellsFreeNotKnownAtBaseNotRelayed element "
@@ -475,6 +874,7 @@ public class OccupancyGrid implements IntGrid {
         if (isGotRelayed(xCoord, yCoord) && freeSpaceAt(xCoord, yCoord) && !isKnownAtBase(xCoord, yCoord)) {
             cellsMarkedAsFreeAndRelayedAndNotKnownAtBase--;
             cellsFreeNotKnownAtBaseNotRelayed.put(new Point(xCoord, yCoord), 1);
+            markChanged(xCoord, yCoord);
         }
         assert (cellsMarkedAsFreeAndRelayedAndNotKnownAtBase >= 0);
         setBit(xCoord, yCoord, OccupancyGrid.OccGridBit.GotRelayed, 0);
@@ -507,6 +907,7 @@ public class OccupancyGrid implements IntGrid {
                     cellsMarkedAsFreeAndRelayedAndNotKnownAtBase++;
                 } else {
                     cellsFreeNotKnownAtBaseNotRelayed.put(new Point(xCoord, yCoord), 1);
+                    markChanged(xCoord, yCoord);
                 }
 
             }
@@ -524,6 +925,7 @@ public class OccupancyGrid implements IntGrid {
                 cellsMarkedAsFreeAndRelayedAndNotKnownAtBase--;
             } else {
                 Integer success = cellsFreeNotKnownAtBaseNotRelayed.remove(new Point(xCoord, yCoord));
+                markChanged(xCoord, yCoord);
                 if (success == null) {
                     if (SimConstants.DEBUG_OUTPUT) {
                         System.out.println("@@@@@@@@@@ Tried to remove cellsFreeNotKnownAtBaseNotRelayed element "
@@ -618,21 +1020,35 @@ public class OccupancyGrid implements IntGrid {
 
     // Used for UtilityExploration
     private void resetOwnedCells() {
+        if (changeLog != null) {
+            cellsFreeNotKnownAtBaseNotRelayed.keySet().forEach((p) -> markChanged(p.x, p.y));
+        }
         cellsFreeNotKnownAtBaseNotRelayed.clear();
     }
 
     public byte getByte(int x, int y) {
+        if (planes != null) {
+            return (byte) packedBits(x, y, STORED_BITS);
+        }
         return grid[x][y];
     }
 
     public byte getByteNoRelay(int x, int y) {
+        if (planes != null) {
+            return (byte) packedBits(x, y, MERGED_BITS);
+        }
         return (byte) (grid[x][y] & ~(1 << OccGridBit.GotRelayed.ordinal())
                 & ~(1 << OccGridBit.FinalTopologicalMap.ordinal()));
     }
 
     public int getBit(int xCoord, int yCoord, int bit) {
         try {
-            if ((grid[xCoord][yCoord] & (byte) (Math.pow(2, bit))) > 0) {
+            if (planes != null) {
+                // the byte test below is never positive for the sign bit (GotRelayed) or beyond
+                int cell = packedIndex(xCoord, yCoord);
+                return (bit < STORED_BITS - 1 && planes.test(bit, cell)) ? 1 : 0;
+            }
+            if ((grid[xCoord][yCoord] & (byte) (1 << bit)) > 0) {
                 return 1;
             } else {
                 return 0;
@@ -642,6 +1058,26 @@ public class OccupancyGrid implements IntGrid {
         }
     }
 
+    private int packedIndex(int x, int y) {
+        if (x < 0 || x >= width || y < 0 || y >= height) {
+            throw new ArrayIndexOutOfBoundsException("ERROR: Array index out of bounds at x=" + x + ", y=" + y + ".");
+        }
+        return x * height + y;
+    }
+
+    // the lowest numBits bits of the cell, as they would be stored in the byte
+    private int packedBits(int x, int y, int numBits) {
+        return planes.bits(packedIndex(x, y), numBits);
+    }
+
+    private void writeByte(int x, int y, byte value) {
+        if (planes == null) {
+            grid[x][y] = value;
+            return;
+        }
+        planes.write(packedIndex(x, y), value);
+    }
+
     public String toString(int xCoord, int yCoord) {
         String bitString = new String();
         for (int i = 0; i < 8; i++) {
@@ -671,6 +1107,22 @@ public class OccupancyGrid implements IntGrid {
      * @return true if direct line possible considering the knowledge of the agent, false if not
      */
     public boolean directLinePossible(Point source, Point dest, boolean allowUnknown, boolean showErrors) {
+        if (SimConstants.INTEGER_LINE_TRAVERSAL) {
+            // only the inside of the bounding box is checked, the end points' rows and columns are not
+            long blocked = LineTraversal.firstOnLine(this, allowUnknown ? OBSTACLE : NOT_FREE, 0,
+                    source.x, source.y, dest.x, dest.y,
+                    Math.min(source.x, dest.x) + 1, Math.min(source.y, dest.y) + 1,
+                    Math.max(source.x, dest.x) - 1, Math.max(source.y, dest.y) - 1);
+            if (blocked == LineTraversal.NONE) {
+                return true;
+            }
+            if (showErrors) {
+                simulator.ExplorationImage.addErrorMarker(
+                        new Point(LineTraversal.unpackX(blocked), LineTraversal.unpackY(blocked)),
+                        allowUnknown ? "obstacle" : "unfree", true);
+            }
+            return false;
+        }
         for (int i = Math.min(source.x, dest.x) + 1; i <= Math.max(source.x, dest.x) - 1; i++) {
             for (int j = Math.min(source.y, dest.y) + 1; j <= Math.max(source.y, dest.y) - 1; j++) {
                 //if (showErrors && (distPointToLine(sourceX, sourceY, destX, destY, i, j) <= 0.5)) {
@@ -726,6 +1178,9 @@ public class OccupancyGrid implements IntGrid {
     // Returns distance to nearest wall, up to a maximum distance
     @Override
     public boolean obstacleWithinDistance(int x, int y, int minDistance) {
+        if (SimConstants.OCC_GRID_CLEARANCE_FIELD && minDistance <= ObstacleClearance.RADIUS && locationExists(x, y)) {
+            return minDistance >= 0 && clearance().obstacleWithin(x, y, minDistance);
+        }
         for (int i = x - minDistance; i <= x + minDistance; i++) {
             for (int j = y - minDistance; j <= y + minDistance; j++) {
                 if (locationExists(i, j)
@@ -765,6 +1220,9 @@ public class OccupancyGrid implements IntGrid {
     }
 
     public int numObstaclesOnLine(int x1, int y1, int x2, int y2) {
+        if (SimConstants.INTEGER_LINE_TRAVERSAL) {
+            return LineTraversal.countSampled(this, OBSTACLE, 0, x1, y1, x2, y2, false);
+        }
         int counter = 0;
         double angle = Math.atan2(y2 - y1, x2 - x1);
         int distance = (int) (Math.sqrt(Math.pow(y2 - y1, 2) + Math.pow(x2 - x1, 2)));
@@ -854,23 +1312,48 @@ public class OccupancyGrid implements IntGrid {
         hashCode = 0; // something changed, so delete hashcode
         this.skeleton = null; // and cached stuff
         this.skeletonList.clear();
-        int bitValue = grid[xCoord][yCoord] & (byte) (Math.pow(2, bit));
+        if (planes != null) {
+            int cell = packedIndex(xCoord, yCoord);
+            // a bit that does not fit in the byte is never set, but still counts as a write
+            boolean isSet = bit < STORED_BITS && planes.test(bit, cell);
+            if (isSet == (value == 1)) {
+                return;
+            }
+            if (bit < STORED_BITS) {
+                planes.flip(bit, cell);
+            }
+            markChanged(xCoord, yCoord);
+            if (bit == OccGridBit.Obstacle.ordinal()) {
+                obstacleChanged(xCoord, yCoord);
+            }
+            return;
+        }
+        int bitValue = grid[xCoord][yCoord] & (byte) (1 << bit);
         if (bitValue == 0) {
             if (value == 0) {
                 return;
             } else {
-                grid[xCoord][yCoord] += (byte) (Math.pow(2, bit));
+                grid[xCoord][yCoord] += (byte) (1 << bit);
             }
         } else if (value == 1) {
             return;
         } else {
-            grid[xCoord][yCoord] -= (byte) (Math.pow(2, bit));
+            grid[xCoord][yCoord] -= (byte) (1 << bit);
+        }
+        markChanged(xCoord, yCoord);
+        if (bit == OccGridBit.Obstacle.ordinal()) {
+            obstacleChanged(xCoord, yCoord);
         }
     }
 
     private void setByte(int x, int y, byte value) {
         hashCode = 0; // something changed, so delete hashcode
-        grid[x][y] = value;
+        boolean wasObstacle = clearance != null && obstacleAt(x, y);
+        writeByte(x, y, value);
+        markChanged(x, y);
+        if (clearance != null && wasObstacle != obstacleAt(x, y)) {
+            obstacleChanged(x, y);
+        }
     }
 
     @Override
@@ -890,7 +1373,10 @@ public class OccupancyGrid implements IntGrid {
 
     public int[][] getSkeleton() {
         if (this.skeleton == null) {
-            this.skeleton = Skeleton.findSkeleton(this, false);
+            if (skeletonEngine == null) {
+                skeletonEngine = new SkeletonEngine(width, height);
+            }
+            this.skeleton = skeletonEngine.skeleton(this);
         }
         return this.skeleton;
     }
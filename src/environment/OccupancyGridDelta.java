@@ -0,0 +1,127 @@
+/*
+ *     Copyright 2010, 2015, 2017 Julian de Hoog (julian@dehoog.ca),
+ *     Victor Spirin (victor.spirin@cs.ox.ac.uk),
+ *     Christian Clausen (christian.clausen@uni-bremen.de
+ *
+ *     This file is part of MRESim 2.3, a simulator for testing the behaviour
+ *     of multiple robots exploring unknown environments.
+ *
+ *     If you use MRESim, I would appreciate an acknowledgement and/or a citation
+ *     of our papers:
+ *
+ *     @inproceedings{deHoog2009,
+ *         title = "Role-Based Autonomous Multi-Robot Exploration",
+ *         author = "Julian de Hoog, Stephen Cameron and Arnoud Visser",
+ *         year = "2009",
+ *         booktitle =
+ *     "International Conference on Advanced Cognitive Technologies and Applications (COGNITIVE)",
+ *         location = "Athens, Greece",
+ *         month = "November",
+ *     }
+ *
+ *     @incollection{spirin2015mresim,
+ *       title={MRESim, a Multi-robot Exploration Simulator for the Rescue Simulation League},
+ *       author={Spirin, Victor and de Hoog, Julian and Visser, Arnoud and Cameron, Stephen},
+ *       booktitle={RoboCup 2014: Robot World Cup XVIII},
+ *       pages={106--117},
+ *       year={2015},
+ *       publisher={Springer}
+ *     }
+ *
+ *     MRESim is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     MRESim is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License along with MRESim.
+ *     If not, see <http://www.gnu.org/licenses/>.
+ */
+package environment;
+
+/**
+ * The part of an OccupancyGrid that changed since a teammate last received it. Either carries a
+ * full copy of the grid (first contact, or the change log of the sender no longer reaches back far
+ * enough), or the new values of the changed cells together with the grid-wide counters, which is
+ * enough to bring the teammate's replica of the grid up to date.
+ */
+public class OccupancyGridDelta {
+
+    final int sourceGridID;
+    final int fromVersion;
+    final int toVersion;
+    final OccupancyGrid fullGrid;
+
+    // cell index is x * height + y
+    final int[] cells;
+    final byte[] values;
+    final boolean[] owned;
+    // the source's planes when the delta was taken, null for byte storage
+    final TiledPlanes snapshot;
+
+    final int cellsMarkedAsFree;
+    final int cellsMarkedAsFreeAndKnownAtBase;
+    final int cellsMarkedAsFreeAndRelayedAndNotKnownAtBase;
+    final int mapCellsChanged;
+
+    OccupancyGridDelta(OccupancyGrid fullGrid, int sourceGridID, int toVersion) {
+        this.sourceGridID = sourceGridID;
+        this.fromVersion = -1;
+        this.toVersion = toVersion;
+        this.fullGrid = fullGrid;
+        this.cells = null;
+        this.values = null;
+        this.owned = null;
+        this.snapshot = null;
+        this.cellsMarkedAsFree = 0;
+        this.cellsMarkedAsFreeAndKnownAtBase = 0;
+        this.cellsMarkedAsFreeAndRelayedAndNotKnownAtBase = 0;
+        this.mapCellsChanged = 0;
+    }
+
+    OccupancyGridDelta(int sourceGridID, int fromVersion, int toVersion, int[] cells, byte[] values,
+            boolean[] owned, TiledPlanes snapshot, int cellsMarkedAsFree, int cellsMarkedAsFreeAndKnownAtBase,
+            int cellsMarkedAsFreeAndRelayedAndNotKnownAtBase, int mapCellsChanged) {
+        this.sourceGridID = sourceGridID;
+        this.fromVersion = fromVersion;
+        this.toVersion = toVersion;
+        this.fullGrid = null;
+        this.cells = cells;
+        this.values = values;
+        this.owned = owned;
+        this.snapshot = snapshot;
+        this.cellsMarkedAsFree = cellsMarkedAsFree;
+        this.cellsMarkedAsFreeAndKnownAtBase = cellsMarkedAsFreeAndKnownAtBase;
+        this.cellsMarkedAsFreeAndRelayedAndNotKnownAtBase = cellsMarkedAsFreeAndRelayedAndNotKnownAtBase;
+        this.mapCellsChanged = mapCellsChanged;
+    }
+
+    public boolean isFull() {
+        return fullGrid != null;
+    }
+
+    /**
+     * Number of cells carried by this delta.
+     */
+    public int size() {
+        return isFull() ? fullGrid.width * fullGrid.height : cells.length;
+    }
+
+    /**
+     * Brings a replica of the source grid up to date.
+     *
+     * @param replica the replica the delta was computed for, may be null for a full delta
+     * @return the updated replica, a new grid if this is a full delta
+     */
+    public OccupancyGrid applyTo(OccupancyGrid replica) {
+        if (isFull()) {
+            return fullGrid;
+        }
+        replica.applyDelta(this);
+        return replica;
+    }
+}
@@ -0,0 +1,330 @@
+/*
+ *     Copyright 2010, 2015, 2017 Julian de Hoog (julian@dehoog.ca),
+ *     Victor Spirin (victor.spirin@cs.ox.ac.uk),
+ *     Christian Clausen (christian.clausen@uni-bremen.de
+ *
+ *     This file is part of MRESim 2.3, a simulator for testing the behaviour
+ *     of multiple robots exploring unknown environments.
+ *
+ *     If you use MRESim, I would appreciate an acknowledgement and/or a citation
+ *     of our papers:
+ *
+ *     @inproceedings{deHoog2009,
+ *         title = "Role-Based Autonomous Multi-Robot Exploration",
+ *         author = "Julian de Hoog, Stephen Cameron and Arnoud Visser",
+ *         year = "2009",
+ *         booktitle =
+ *     "International Conference on Advanced Cognitive Technologies and Applications (COGNITIVE)",
+ *         location = "Athens, Greece",
+ *         month = "November",
+ *     }
+ *
+ *     @incollection{spirin2015mresim,
+ *       title={MRESim, a Multi-robot Exploration Simulator for the Rescue Simulation League},
+ *       author={Spirin, Victor and de Hoog, Julian and Visser, Arnoud and Cameron, Stephen},
+ *       booktitle={RoboCup 2014: Robot World Cup XVIII},
+ *       pages={106--117},
+ *       year={2015},
+ *       publisher={Springer}
+ *     }
+ *
+ *     MRESim is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     MRESim is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License along with MRESim.
+ *     If not, see <http://www.gnu.org/licenses/>.
+ */
+package environment;
+
+import java.awt.Point;
+import java.awt.Rectangle;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import path.Path;
+
+/**
+ * Paths between topological nodes of one OccupancyGrid, keyed like the old static cache by
+ * Rectangle(start.x, start.y, goal.x, goal.y). Bounded, least recently used paths are evicted
+ * first. All methods are synchronized.
+ *
+ * Every path is filed under the tiles of the grid its points (plus one cell around them) lie in.
+ * Before the cache is used, invalidate() reads the cells that changed since the last call from the
+ * grid's change log and drops just the paths through the tiles where free space or obstacles
+ * changed; paths through unchanged parts of the map stay cached.
+ */
+public class PathCache {
+
+    private static final int TILE_SHIFT = 4;    // 16x16 cells per tile
+    // the bits path planning looks at
+    private static final int PASSABLE_MASK = (1 << OccupancyGrid.OccGridBit.FreeSpace.ordinal())
+            | (1 << OccupancyGrid.OccGridBit.Obstacle.ordinal());
+
+    private final int maxSize;
+    private final LinkedHashMap<Rectangle, Entry> entries;
+    private OccupancyGrid grid;
+    private int version = -1;
+    private int tilesX;
+    private int tilesY;
+    private HashSet<Entry>[] byTile;
+    private byte[] passable;        // passable bits of every cell at the last invalidate
+    private int[] tileStamp;
+    private int stamp;
+
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long invalidations;
+
+    private static class Entry {
+
+        final Rectangle key;
+        final Path path;
+        final int[] tiles;
+
+        Entry(Rectangle key, Path path, int[] tiles) {
+            this.key = key;
+            this.path = path;
+            this.tiles = tiles;
+        }
+    }
+
+    public PathCache(int maxSize) {
+        this.maxSize = Math.max(1, maxSize);
+        this.entries = new LinkedHashMap<Rectangle, Entry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Rectangle, Entry> eldest) {
+                if (size() > PathCache.this.maxSize) {
+                    unfile(eldest.getValue());
+                    evictions++;
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Drops the paths crossing cells of grid whose free space or obstacle state changed since the
+     * last call; other changes (relay, base station bits, ...) do not affect paths. Drops everything
+     * if the cache was used with another grid before.
+     */
+    public synchronized void invalidate(OccupancyGrid grid) {
+        GridChangeLog log = grid.changeLog();
+        if (this.grid != grid) {
+            this.grid = grid;
+            tilesX = (grid.width >> TILE_SHIFT) + 1;
+            tilesY = (grid.height >> TILE_SHIFT) + 1;
+            @SuppressWarnings({"unchecked", "rawtypes"})
+            HashSet<Entry>[] tiles = new HashSet[tilesX * tilesY];
+            byTile = tiles;
+            tileStamp = new int[tilesX * tilesY];
+            invalidations += entries.size();
+            entries.clear();
+            version = log.snapshot();
+            passable = new byte[grid.width * grid.height];
+            for (int x = 0; x < grid.width; x++) {
+                for (int y = 0; y < grid.height; y++) {
+                    passable[x * grid.height + y] = passableBits(x, y);
+                }
+            }
+            return;
+        }
+        int[] changed = log.changesSince(version);
+        version = log.snapshot();
+        nextStamp();
+        if (changed == null) {
+            // the log lost track, compare every cell
+            for (int x = 0; x < grid.width; x++) {
+                for (int y = 0; y < grid.height; y++) {
+                    invalidateIfChanged(x, y);
+                }
+            }
+            return;
+        }
+        for (int cell : changed) {
+            invalidateIfChanged(cell / grid.height, cell % grid.height);
+        }
+    }
+
+    private byte passableBits(int x, int y) {
+        return (byte) (grid.getByte(x, y) & PASSABLE_MASK);
+    }
+
+    private void invalidateIfChanged(int x, int y) {
+        int cell = x * grid.height + y;
+        byte now = passableBits(x, y);
+        if (passable[cell] == now) {
+            return;
+        }
+        passable[cell] = now;
+        int tile = tileOf(x, y);
+        if (tileStamp[tile] == stamp) {
+            return;
+        }
+        tileStamp[tile] = stamp;
+        HashSet<Entry> filed = byTile[tile];
+        if (filed == null || filed.isEmpty()) {
+            return;
+        }
+        for (Entry entry : filed.toArray(new Entry[filed.size()])) {
+            remove(entry);
+            invalidations++;
+        }
+    }
+
+    /**
+     * @return the cached path, null if there is none or it is no longer valid
+     */
+    public synchronized Path get(Rectangle key) {
+        Entry entry = entries.get(key);
+        if (entry != null && !entry.path.isValid()) {
+            remove(entry);
+            invalidations++;
+            entry = null;
+        }
+        if (entry == null) {
+            misses++;
+            return null;
+        }
+        hits++;
+        return entry.path;
+    }
+
+    public synchronized void put(Rectangle key, Path path) {
+        if (grid == null) {
+            return;
+        }
+        Entry old = entries.remove(key);
+        if (old != null) {
+            unfile(old);
+        }
+        Entry entry = new Entry(key, path, tilesCrossed(path));
+        for (int tile : entry.tiles) {
+            if (byTile[tile] == null) {
+                byTile[tile] = new HashSet<>();
+            }
+            byTile[tile].add(entry);
+        }
+        entries.put(key, entry);
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        if (byTile != null) {
+            for (HashSet<Entry> filed : byTile) {
+                if (filed != null) {
+                    filed.clear();
+                }
+            }
+        }
+    }
+
+    private void remove(Entry entry) {
+        entries.remove(entry.key);
+        unfile(entry);
+    }
+
+    private void unfile(Entry entry) {
+        for (int tile : entry.tiles) {
+            byTile[tile].remove(entry);
+        }
+    }
+
+    private int tileOf(int x, int y) {
+        return (x >> TILE_SHIFT) * tilesY + (y >> TILE_SHIFT);
+    }
+
+    private void nextStamp() {
+        stamp++;
+        if (stamp == Integer.MAX_VALUE) {
+            Arrays.fill(tileStamp, 0);
+            stamp = 1;
+        }
+    }
+
+    /**
+     * Tiles touched by the straight segments between the path's points, widened by one cell.
+     */
+    private int[] tilesCrossed(Path path) {
+        nextStamp();
+        IntArrayList tiles = new IntArrayList();
+        List<Point> points = path.getPoints();
+        Point prev = path.getStartPoint();
+        if (points == null || points.isEmpty()) {
+            if (prev != null) {
+                addTiles(prev, prev, tiles);
+            }
+            return tiles.toArray();
+        }
+        Iterator<Point> it = points.iterator();
+        if (prev == null) {
+            prev = it.next();
+        }
+        addTiles(prev, prev, tiles);
+        while (it.hasNext()) {
+            Point curr = it.next();
+            addTiles(prev, curr, tiles);
+            prev = curr;
+        }
+        return tiles.toArray();
+    }
+
+    private void addTiles(Point a, Point b, IntArrayList tiles) {
+        int x0 = Math.max(0, Math.min(a.x, b.x) - 1) >> TILE_SHIFT;
+        int x1 = Math.min(grid.width - 1, Math.max(a.x, b.x) + 1) >> TILE_SHIFT;
+        int y0 = Math.max(0, Math.min(a.y, b.y) - 1) >> TILE_SHIFT;
+        int y1 = Math.min(grid.height - 1, Math.max(a.y, b.y) + 1) >> TILE_SHIFT;
+        for (int tx = x0; tx <= x1; tx++) {
+            for (int ty = y0; ty <= y1; ty++) {
+                int tile = tx * tilesY + ty;
+                if (tileStamp[tile] != stamp) {
+                    tileStamp[tile] = stamp;
+                    tiles.add(tile);
+                }
+            }
+        }
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    /**
+     * @return number of paths dropped because the cache was full
+     */
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    /**
+     * @return number of paths dropped because the map changed under them or they became invalid
+     */
+    public synchronized long getInvalidations() {
+        return invalidations;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("PathCache[size %d/%d, hits %d, misses %d, evictions %d, invalidations %d]",
+                entries.size(), maxSize, hits, misses, evictions, invalidations);
+    }
+}
@@ -55,8 +55,10 @@ import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.io.PrintWriter;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.LinkedList;
+import java.util.stream.IntStream;
 import javax.imageio.ImageIO;
 import path.TopologicalNode;
 
@@ -188,48 +190,7 @@ public class Skeleton {
      * @return the skeletonized grid
      */
     private static int[][] skeletonize(int[][] grid, int max) {
-        int width = grid.length;
-        int height = grid[0].length;
-
-        int u1[][] = new int[width][height];
-        int u2[][] = new int[width][height];
-
-        for (int i = 0; i < width; i++) {
-            System.arraycopy(grid[i], 0, u1[i], 0, height);
-            System.arraycopy(grid[i], 0, u2[i], 0, height);
-        }
-
-        boolean found = true;
-        int counter = 0;
-
-        while (found) {
-            found = false;
-            for (int i = 2; i < width - 2; i++) {
-                for (int j = 2; j < height - 2; j++) {
-                    if (u1[i][j] == 1) {
-                        if ((numNonzeroNeighbors(u1, i, j) >= 2) && (numNonzeroNeighbors(u1, i, j) <= 6)) {
-                            if (neighborTraversal(u1, i, j) == 1) {
-                                if (u1[i][j - 1] * u1[i - 1][j] * u1[i + 1][j] == 0 || neighborTraversal(u1, i, j - 1) != 1) {
-                                    if (u1[i][j - 1] * u1[i - 1][j] * u1[i][j + 1] == 0 || neighborTraversal(u1, i - 1, j) != 1) {
-                                        u2[i][j] = 0;
-                                        found = true;
-                                    }
-                                }
-                            }
-                        }
-                    }
-                }
-            }
-            if (!found || counter == max) {
-                return u2;
-            }
-            for (int i = 2; i < width - 2; i++) {
-                System.arraycopy(u2[i], 2, u1[i], 2, height - 2 - 2);
-            }
-
-            counter++;
-        }
-        return null;
+        return SkeletonEngine.skeletonize(grid, max);
     }
 
     /**
@@ -507,33 +468,58 @@ public class Skeleton {
         return rvPts;
     }
 
+    // neighbours in the order they compete for a cell in fillAreas: nw, n, ne, w, e, sw, s, se
+    private static final int[] VOTE_DX = {-1, 0, 1, -1, 1, -1, 0, 1};
+    private static final int[] VOTE_DY = {-1, -1, -1, 0, 0, 1, 1, 1};
+    // and the orders unassigned neighbours of key points and of grown cells are queued in
+    private static final int[] SEED_DX = {-1, 1, 0, 0, -1, -1, 1, 1};
+    private static final int[] SEED_DY = {0, 0, -1, 1, -1, 1, 1, -1};
+    private static final int[] QUEUE_DX = {-1, 1, 0, 0, -1, -1, 1, 1};
+    private static final int[] QUEUE_DY = {0, 0, -1, 1, -1, 1, -1, 1};
+
     /**
      * Fill a grid with the id of the next topological node (on key-points) by expanding around the
      * nodes simultaniously
      *
+     * The areas of free space that are not connected to each other grow independently, on the
+     * common fork-join pool if there are several; the result is the same as growing them all from
+     * one queue.
+     *
      * @param occGrid
      * @param keyPoints
      * @param nodes
      * @return
      */
     public static int[][] fillAreas(OccupancyGrid occGrid, LinkedList<Point> keyPoints, HashMap<Integer, TopologicalNode> nodes) {
-        int[][] areaGrid = new int[occGrid.width][occGrid.height];
-        LinkedList<Point> pointsOfInterest = new LinkedList<Point>();
+        int width = occGrid.width;
+        int height = occGrid.height;
+        int[][] areaGrid = new int[width][height];
 
         //Initialize areaGrid - set unexplored areas to UNEXPLORED_NODE_ID, obstacles to -1, free space to 0.
-        for (int i = 0; i < areaGrid.length; i++) {
-            for (int j = 0; j < areaGrid[0].length; j++) {
-                if ((occGrid.obstacleAt(i, j)) || (i == 0) || (j == 0) || (i == (areaGrid.length - 1)) || (j == (areaGrid[0].length - 1))) {
+        IntStream columns = IntStream.range(0, width);
+        if (SimConstants.PARALLEL_TOPOLOGICAL_MAP) {
+            columns = columns.parallel();
+        }
+        columns.forEach(i -> {
+            for (int j = 0; j < height; j++) {
+                if ((occGrid.obstacleAt(i, j)) || (i == 0) || (j == 0) || (i == (width - 1)) || (j == (height - 1))) {
                     areaGrid[i][j] = -1;
-                } else if ((!occGrid.obstacleAt(i, j)) && (!occGrid.freeSpaceAt(i, j))) {
+                } else if (!occGrid.freeSpaceAt(i, j)) {
                     areaGrid[i][j] = SimConstants.UNEXPLORED_NODE_ID; //unexplored space
                 } else {
                     areaGrid[i][j] = 0;
                 }
             }
+        });
+
+        // cells nodes can grow into, labelled by connected area, if that is worth doing in parallel
+        int[] region = null;
+        if (SimConstants.PARALLEL_TOPOLOGICAL_MAP && nodes.size() > 2) {
+            region = labelRegions(areaGrid);
         }
 
-        // initialize the keypoint of each Node to the node's ID; add the immediate neighbour cells to "points of interest" list
+        // initialize the keypoint of each Node to the node's ID; add the immediate neighbour cells to "points of interest" queue
+        HashMap<Integer, IntQueue> queues = new HashMap<>();
         for (TopologicalNode t : nodes.values()) {
             if (t.getID() == SimConstants.UNEXPLORED_NODE_ID) {
                 continue;
@@ -541,340 +527,156 @@ public class Skeleton {
             Point p = t.getPosition();
             if ((areaGrid[p.x][p.y] >= 0) && (areaGrid[p.x][p.y] < SimConstants.UNEXPLORED_NODE_ID)) {
                 areaGrid[p.x][p.y] = t.getID();
-                if (areaGrid[p.x - 1][p.y] == 0) {
-                    pointsOfInterest.add(new Point(p.x - 1, p.y));
-                }
-                if (areaGrid[p.x + 1][p.y] == 0) {
-                    pointsOfInterest.add(new Point(p.x + 1, p.y));
-                }
-                if (areaGrid[p.x][p.y - 1] == 0) {
-                    pointsOfInterest.add(new Point(p.x, p.y - 1));
-                }
-                if (areaGrid[p.x][p.y + 1] == 0) {
-                    pointsOfInterest.add(new Point(p.x, p.y + 1));
+                Integer key = region == null ? 0 : region[p.x * height + p.y];
+                IntQueue pointsOfInterest = queues.get(key);
+                if (pointsOfInterest == null) {
+                    pointsOfInterest = new IntQueue();
+                    queues.put(key, pointsOfInterest);
                 }
-                if (areaGrid[p.x - 1][p.y - 1] == 0) {
-                    pointsOfInterest.add(new Point(p.x - 1, p.y - 1));
-                }
-                if (areaGrid[p.x - 1][p.y + 1] == 0) {
-                    pointsOfInterest.add(new Point(p.x - 1, p.y + 1));
-                }
-                if (areaGrid[p.x + 1][p.y + 1] == 0) {
-                    pointsOfInterest.add(new Point(p.x + 1, p.y + 1));
-                }
-                if (areaGrid[p.x + 1][p.y - 1] == 0) {
-                    pointsOfInterest.add(new Point(p.x + 1, p.y - 1));
+                for (int k = 0; k < 8; k++) {
+                    if (areaGrid[p.x + SEED_DX[k]][p.y + SEED_DY[k]] == 0) {
+                        pointsOfInterest.add((p.x + SEED_DX[k]) * height + p.y + SEED_DY[k]);
+                    }
                 }
             }
         }
-        int maxQueueSize;
 
-        maxQueueSize = 0;
-        while (!pointsOfInterest.isEmpty()) {
-            if (pointsOfInterest.size() > maxQueueSize) {
-                maxQueueSize = pointsOfInterest.size();
+        IntQueue[] perRegion = queues.values().toArray(new IntQueue[queues.size()]);
+        IntArrayList[] assigned = new IntArrayList[perRegion.length];
+        IntStream regions = IntStream.range(0, perRegion.length);
+        if (perRegion.length > 1) {
+            regions = regions.parallel();
+        }
+        regions.forEach(r -> assigned[r] = growAreas(areaGrid, perRegion[r], nodes));
+        for (IntArrayList cells : assigned) {
+            for (int k = 0; k < cells.size(); k++) {
+                occGrid.setFinalTopologicalMapCell(cells.get(k) / height, cells.get(k) % height);
             }
-            Point p = pointsOfInterest.iterator().next();
-            pointsOfInterest.remove(p);
-            if (areaGrid[p.x][p.y] == 0) //cell unassigned to any node and freeSpace
-            {
-                // calculate what area most surrounding cells belong to
-                int nw = 0;
-                int n = 0;
-                int ne = 0;
-                int w = 0;
-                int e = 0;
-                int sw = 0;
-                int s = 0;
-                int se = 0;
-
-                if ((areaGrid[p.x - 1][p.y - 1] > 0) && (areaGrid[p.x - 1][p.y - 1] < SimConstants.UNEXPLORED_NODE_ID)) {
-                    //nw has a node
-                    //If any other neighbor of p is the same node, nw++
-                    if (areaGrid[p.x][p.y - 1] == areaGrid[p.x - 1][p.y - 1]) {
-                        nw++;
-                    }
-                    if (areaGrid[p.x + 1][p.y - 1] == areaGrid[p.x - 1][p.y - 1]) {
-                        nw++;
-                    }
-                    if (areaGrid[p.x - 1][p.y] == areaGrid[p.x - 1][p.y - 1]) {
-                        nw++;
-                    }
-                    if (areaGrid[p.x + 1][p.y] == areaGrid[p.x - 1][p.y - 1]) {
-                        nw++;
-                    }
-                    if (areaGrid[p.x - 1][p.y + 1] == areaGrid[p.x - 1][p.y - 1]) {
-                        nw++;
-                    }
-                    if (areaGrid[p.x][p.y + 1] == areaGrid[p.x - 1][p.y - 1]) {
-                        nw++;
-                    }
-                    if (areaGrid[p.x + 1][p.y + 1] == areaGrid[p.x - 1][p.y - 1]) {
-                        nw++;
-                    }
-                } else {
-                    // if p is obstacle, unexploredNode nw--
-                    nw--;
-                }
-                if ((areaGrid[p.x][p.y - 1] > 0) && (areaGrid[p.x][p.y - 1] < SimConstants.UNEXPLORED_NODE_ID)) {
-                    if (areaGrid[p.x - 1][p.y - 1] == areaGrid[p.x][p.y - 1]) {
-                        n++;
-                    }
-                    if (areaGrid[p.x + 1][p.y - 1] == areaGrid[p.x][p.y - 1]) {
-                        n++;
-                    }
-                    if (areaGrid[p.x - 1][p.y] == areaGrid[p.x][p.y - 1]) {
-                        n++;
-                    }
-                    if (areaGrid[p.x + 1][p.y] == areaGrid[p.x][p.y - 1]) {
-                        n++;
-                    }
-                    if (areaGrid[p.x - 1][p.y + 1] == areaGrid[p.x][p.y - 1]) {
-                        n++;
-                    }
-                    if (areaGrid[p.x][p.y + 1] == areaGrid[p.x][p.y - 1]) {
-                        n++;
-                    }
-                    if (areaGrid[p.x + 1][p.y + 1] == areaGrid[p.x][p.y - 1]) {
-                        n++;
-                    }
-                } else {
-                    n--;
-                }
-                if ((areaGrid[p.x + 1][p.y - 1] > 0) && (areaGrid[p.x + 1][p.y - 1] < SimConstants.UNEXPLORED_NODE_ID)) {
-                    if (areaGrid[p.x - 1][p.y - 1] == areaGrid[p.x + 1][p.y - 1]) {
-                        ne++;
-                    }
-                    if (areaGrid[p.x][p.y - 1] == areaGrid[p.x + 1][p.y - 1]) {
-                        ne++;
-                    }
-                    if (areaGrid[p.x - 1][p.y] == areaGrid[p.x + 1][p.y - 1]) {
-                        ne++;
-                    }
-                    if (areaGrid[p.x + 1][p.y] == areaGrid[p.x + 1][p.y - 1]) {
-                        ne++;
-                    }
-                    if (areaGrid[p.x - 1][p.y + 1] == areaGrid[p.x + 1][p.y - 1]) {
-                        ne++;
-                    }
-                    if (areaGrid[p.x][p.y + 1] == areaGrid[p.x + 1][p.y - 1]) {
-                        ne++;
-                    }
-                    if (areaGrid[p.x + 1][p.y + 1] == areaGrid[p.x + 1][p.y - 1]) {
-                        ne++;
-                    }
-                } else {
-                    ne--;
-                }
-                if ((areaGrid[p.x - 1][p.y] > 0) && (areaGrid[p.x - 1][p.y] < SimConstants.UNEXPLORED_NODE_ID)) {
-                    if (areaGrid[p.x - 1][p.y - 1] == areaGrid[p.x - 1][p.y]) {
-                        w++;
-                    }
-                    if (areaGrid[p.x][p.y - 1] == areaGrid[p.x - 1][p.y]) {
-                        w++;
-                    }
-                    if (areaGrid[p.x + 1][p.y - 1] == areaGrid[p.x - 1][p.y]) {
-                        w++;
-                    }
-                    if (areaGrid[p.x + 1][p.y] == areaGrid[p.x - 1][p.y]) {
-                        w++;
-                    }
-                    if (areaGrid[p.x - 1][p.y + 1] == areaGrid[p.x - 1][p.y]) {
-                        w++;
-                    }
-                    if (areaGrid[p.x][p.y + 1] == areaGrid[p.x - 1][p.y]) {
-                        w++;
-                    }
-                    if (areaGrid[p.x + 1][p.y + 1] == areaGrid[p.x - 1][p.y]) {
-                        w++;
-                    }
-                } else {
-                    w--;
-                }
-                if ((areaGrid[p.x + 1][p.y] > 0) && (areaGrid[p.x + 1][p.y] < SimConstants.UNEXPLORED_NODE_ID)) {
-                    if (areaGrid[p.x - 1][p.y - 1] == areaGrid[p.x + 1][p.y]) {
-                        e++;
-                    }
-                    if (areaGrid[p.x][p.y - 1] == areaGrid[p.x + 1][p.y]) {
-                        e++;
-                    }
-                    if (areaGrid[p.x + 1][p.y - 1] == areaGrid[p.x + 1][p.y]) {
-                        e++;
-                    }
-                    if (areaGrid[p.x - 1][p.y] == areaGrid[p.x + 1][p.y]) {
-                        e++;
-                    }
-                    if (areaGrid[p.x - 1][p.y + 1] == areaGrid[p.x + 1][p.y]) {
-                        e++;
-                    }
-                    if (areaGrid[p.x][p.y + 1] == areaGrid[p.x + 1][p.y]) {
-                        e++;
-                    }
-                    if (areaGrid[p.x + 1][p.y + 1] == areaGrid[p.x + 1][p.y]) {
-                        e++;
-                    }
-                } else {
-                    e--;
-                }
-                if ((areaGrid[p.x - 1][p.y + 1] > 0) && (areaGrid[p.x - 1][p.y + 1] < SimConstants.UNEXPLORED_NODE_ID)) {
-                    if (areaGrid[p.x - 1][p.y - 1] == areaGrid[p.x - 1][p.y + 1]) {
-                        sw++;
-                    }
-                    if (areaGrid[p.x][p.y - 1] == areaGrid[p.x - 1][p.y + 1]) {
-                        sw++;
-                    }
-                    if (areaGrid[p.x + 1][p.y - 1] == areaGrid[p.x - 1][p.y + 1]) {
-                        sw++;
-                    }
-                    if (areaGrid[p.x - 1][p.y] == areaGrid[p.x - 1][p.y + 1]) {
-                        sw++;
-                    }
-                    if (areaGrid[p.x + 1][p.y] == areaGrid[p.x - 1][p.y + 1]) {
-                        sw++;
-                    }
-                    if (areaGrid[p.x][p.y + 1] == areaGrid[p.x - 1][p.y + 1]) {
-                        sw++;
-                    }
-                    if (areaGrid[p.x + 1][p.y + 1] == areaGrid[p.x - 1][p.y + 1]) {
-                        sw++;
-                    }
-                } else {
-                    sw--;
-                }
+        }
 
-                if ((areaGrid[p.x][p.y + 1] > 0) && (areaGrid[p.x][p.y + 1] < SimConstants.UNEXPLORED_NODE_ID)) {
-                    if (areaGrid[p.x - 1][p.y - 1] == areaGrid[p.x][p.y + 1]) {
-                        s++;
-                    }
-                    if (areaGrid[p.x][p.y - 1] == areaGrid[p.x][p.y + 1]) {
-                        s++;
-                    }
-                    if (areaGrid[p.x + 1][p.y - 1] == areaGrid[p.x][p.y + 1]) {
-                        s++;
-                    }
-                    if (areaGrid[p.x - 1][p.y] == areaGrid[p.x][p.y + 1]) {
-                        s++;
-                    }
-                    if (areaGrid[p.x + 1][p.y] == areaGrid[p.x][p.y + 1]) {
-                        s++;
-                    }
-                    if (areaGrid[p.x - 1][p.y + 1] == areaGrid[p.x][p.y + 1]) {
-                        s++;
-                    }
-                    if (areaGrid[p.x + 1][p.y + 1] == areaGrid[p.x][p.y + 1]) {
-                        s++;
-                    }
-                } else {
-                    s--;
+        //Are there some areas we haven't assigned to a node yet?
+        //Fill with unexplored to avoid holes in the map
+        /*for (int i = 1; i < areaGrid.length - 1; i++) {
+            for (int j = 1; j < areaGrid[0].length - 1; j++) {
+                if (areaGrid[i][j] == 0) {
+                    areaGrid[i][j] = SimConstants.UNEXPLORED_NODE_ID;
                 }
+            }
+        }*/
+        //writeToImg(areaGrid, null, "testing");
+        return areaGrid;
+    }
 
-                if ((areaGrid[p.x + 1][p.y + 1] > 0) && (areaGrid[p.x + 1][p.y + 1] < SimConstants.UNEXPLORED_NODE_ID)) {
-                    if (areaGrid[p.x - 1][p.y - 1] == areaGrid[p.x + 1][p.y + 1]) {
-                        se++;
-                    }
-                    if (areaGrid[p.x][p.y - 1] == areaGrid[p.x + 1][p.y + 1]) {
-                        se++;
-                    }
-                    if (areaGrid[p.x + 1][p.y - 1] == areaGrid[p.x + 1][p.y + 1]) {
-                        se++;
-                    }
-                    if (areaGrid[p.x - 1][p.y] == areaGrid[p.x + 1][p.y + 1]) {
-                        se++;
-                    }
-                    if (areaGrid[p.x + 1][p.y] == areaGrid[p.x + 1][p.y + 1]) {
-                        se++;
-                    }
-                    if (areaGrid[p.x - 1][p.y + 1] == areaGrid[p.x + 1][p.y + 1]) {
-                        se++;
-                    }
-                    if (areaGrid[p.x][p.y + 1] == areaGrid[p.x + 1][p.y + 1]) {
-                        se++;
+    /**
+     * Grows the nodes into the unassigned cells reachable from the queued ones. Each cell goes to
+     * the neighbouring node that most of its other neighbours belong to.
+     *
+     * @return the cells assigned to a node, which still have to be marked in the occupancy grid
+     */
+    private static IntArrayList growAreas(int[][] areaGrid, IntQueue pointsOfInterest,
+            HashMap<Integer, TopologicalNode> nodes) {
+        int height = areaGrid[0].length;
+        int queueLimit = Math.max(10000000, (areaGrid.length * height) * 10);
+        IntArrayList assigned = new IntArrayList();
+        int[] around = new int[8];
+        int maxQueueSize = 0;
+        while (!pointsOfInterest.isEmpty()) {
+            if (pointsOfInterest.size() > maxQueueSize) {
+                maxQueueSize = pointsOfInterest.size();
+            }
+            int cell = pointsOfInterest.poll();
+            int x = cell / height;
+            int y = cell % height;
+            if (areaGrid[x][y] != 0) {
+                continue;
+            }
+            // calculate what area most surrounding cells belong to; the first direction with the
+            // most occurences wins, directions without a node count -1
+            for (int k = 0; k < 8; k++) {
+                around[k] = areaGrid[x + VOTE_DX[k]][y + VOTE_DY[k]];
+            }
+            int winner = 0;
+            int best = Integer.MIN_VALUE;
+            for (int k = 0; k < 8; k++) {
+                int votes = -1;
+                if (around[k] > 0 && around[k] < SimConstants.UNEXPLORED_NODE_ID) {
+                    votes = 0;
+                    for (int other = 0; other < 8; other++) {
+                        if (other != k && around[other] == around[k]) {
+                            votes++;
+                        }
                     }
-                } else {
-                    se--;
                 }
-
-                //The direction with the most occurences wins and may give the cell his nodeID
-                if (nw >= n && nw >= ne && nw >= w && nw >= e && nw >= sw && nw >= s && nw >= se) {
-                    areaGrid[p.x][p.y] = areaGrid[p.x - 1][p.y - 1];
-                } else if (n >= nw && n >= ne && n >= w && n >= e && n >= sw && n >= s && n >= se) {
-                    areaGrid[p.x][p.y] = areaGrid[p.x][p.y - 1];
-                } else if (ne >= nw && ne >= n && ne >= w && ne >= e && ne >= sw && ne >= s && ne >= se) {
-                    areaGrid[p.x][p.y] = areaGrid[p.x + 1][p.y - 1];
-                } else if (w >= nw && w >= n && w >= ne && w >= e && w >= sw && w >= s && w >= se) {
-                    areaGrid[p.x][p.y] = areaGrid[p.x - 1][p.y];
-                } else if (e >= nw && e >= n && e >= ne && e >= w && e >= sw && e >= s && e >= se) {
-                    areaGrid[p.x][p.y] = areaGrid[p.x + 1][p.y];
-                } else if (sw >= nw && sw >= n && sw >= ne && sw >= w && sw >= e && sw >= s && sw >= se) {
-                    areaGrid[p.x][p.y] = areaGrid[p.x - 1][p.y + 1];
-                } else if (s >= nw && s >= n && s >= ne && s >= w && s >= e && s >= sw && s >= se) {
-                    areaGrid[p.x][p.y] = areaGrid[p.x][p.y + 1];
-                } else if (se >= nw && se >= n && se >= ne && se >= w && se >= e && se >= sw && se >= s) {
-                    areaGrid[p.x][p.y] = areaGrid[p.x + 1][p.y + 1];
-                }
-                if (areaGrid[p.x][p.y] == -1) {
-                    //unexplored won the competition... not useful!
-                    areaGrid[p.x][p.y] = 0;
-                } else if ((areaGrid[p.x][p.y] > 0) && (areaGrid[p.x][p.y] < SimConstants.UNEXPLORED_NODE_ID)) {
-                    occGrid.setFinalTopologicalMapCell(p.x, p.y);
-                    nodes.get(areaGrid[p.x][p.y]).addCell(p);
+                if (votes > best) {
+                    best = votes;
+                    winner = k;
                 }
+            }
+            areaGrid[x][y] = around[winner];
+            if (areaGrid[x][y] == -1) {
+                //unexplored won the competition... not useful!
+                areaGrid[x][y] = 0;
+            } else if ((areaGrid[x][y] > 0) && (areaGrid[x][y] < SimConstants.UNEXPLORED_NODE_ID)) {
+                assigned.add(cell);
+                nodes.get(areaGrid[x][y]).addCell(new Point(x, y));
+            }
 
-
-                /*if (pointsOfInterest.size() > 1000000)
-                {
-                    // there have to be duplicates, let's prune
-                    for (Point pnt: pointsOfInterest)
-                    {
-                        if (areaGrid[pnt.x][pnt.y] != 0)
-                            pointsOfInterest.remove(pnt);
+            if (pointsOfInterest.size() < queueLimit) {
+                for (int k = 0; k < 8; k++) {
+                    if (areaGrid[x + QUEUE_DX[k]][y + QUEUE_DY[k]] == 0) {
+                        pointsOfInterest.add((x + QUEUE_DX[k]) * height + y + QUEUE_DY[k]);
                     }
-                }*/
-                if (pointsOfInterest.size() < Math.max(10000000, (areaGrid.length * areaGrid[0].length) * 10)) {
-                    if (areaGrid[p.x - 1][p.y] == 0) {
-                        pointsOfInterest.add(new Point(p.x - 1, p.y));
-                    }
-                    if (areaGrid[p.x + 1][p.y] == 0) {
-                        pointsOfInterest.add(new Point(p.x + 1, p.y));
-                    }
-                    if (areaGrid[p.x][p.y - 1] == 0) {
-                        pointsOfInterest.add(new Point(p.x, p.y - 1));
-                    }
-                    if (areaGrid[p.x][p.y + 1] == 0) {
-                        pointsOfInterest.add(new Point(p.x, p.y + 1));
-                    }
-                    if (areaGrid[p.x - 1][p.y - 1] == 0) {
-                        pointsOfInterest.add(new Point(p.x - 1, p.y - 1));
-                    }
-                    if (areaGrid[p.x - 1][p.y + 1] == 0) {
-                        pointsOfInterest.add(new Point(p.x - 1, p.y + 1));
-                    }
-                    if (areaGrid[p.x + 1][p.y - 1] == 0) {
-                        pointsOfInterest.add(new Point(p.x + 1, p.y - 1));
-                    }
-                    if (areaGrid[p.x + 1][p.y + 1] == 0) {
-                        pointsOfInterest.add(new Point(p.x + 1, p.y + 1));
-                    }
-                } else {
-                    System.err.println("!!!!TOPOLOGICAL map might contain errors, pointsofinterest queue exhausted!");
                 }
+            } else {
+                System.err.println("!!!!TOPOLOGICAL map might contain errors, pointsofinterest queue exhausted!");
             }
         }
         if (SimConstants.DEBUG_OUTPUT) {
             System.out.println("Max queue size: " + maxQueueSize);
         }
+        return assigned;
+    }
 
-        //Are there some areas we haven't assigned to a node yet?
-        //Fill with unexplored to avoid holes in the map
-        /*for (int i = 1; i < areaGrid.length - 1; i++) {
-            for (int j = 1; j < areaGrid[0].length - 1; j++) {
-                if (areaGrid[i][j] == 0) {
-                    areaGrid[i][j] = SimConstants.UNEXPLORED_NODE_ID;
+    /**
+     * Labels the 8-connected areas of cells nodes can grow into (0 or a node id in areaGrid).
+     *
+     * @return label per cell, x * height + y, -1 for cells in no area
+     */
+    private static int[] labelRegions(int[][] areaGrid) {
+        int width = areaGrid.length;
+        int height = areaGrid[0].length;
+        int[] region = new int[width * height];
+        Arrays.fill(region, -1);
+        IntQueue queue = new IntQueue();
+        int regions = 0;
+        for (int i = 1; i < width - 1; i++) {
+            for (int j = 1; j < height - 1; j++) {
+                if (region[i * height + j] != -1 || !growable(areaGrid[i][j])) {
+                    continue;
                 }
+                region[i * height + j] = regions;
+                queue.add(i * height + j);
+                while (!queue.isEmpty()) {
+                    int cell = queue.poll();
+                    int x = cell / height;
+                    int y = cell % height;
+                    for (int k = 0; k < 8; k++) {
+                        int nx = x + VOTE_DX[k];
+                        int ny = y + VOTE_DY[k];
+                        if (region[nx * height + ny] == -1 && growable(areaGrid[nx][ny])) {
+                            region[nx * height + ny] = regions;
+                            queue.add(nx * height + ny);
+                        }
+                    }
+                }
+                regions++;
             }
-        }*/
-        //writeToImg(areaGrid, null, "testing");
-        return areaGrid;
+        }
+        return region;
+    }
+
+    private static boolean growable(int area) {
+        return area >= 0 && area < SimConstants.UNEXPLORED_NODE_ID;
     }
 
     /**
@@ -0,0 +1,446 @@
+/*
+ *     Copyright 2010, 2015, 2017 Julian de Hoog (julian@dehoog.ca),
+ *     Victor Spirin (victor.spirin@cs.ox.ac.uk),
+ *     Christian Clausen (christian.clausen@uni-bremen.de
+ *
+ *     This file is part of MRESim 2.3, a simulator for testing the behaviour
+ *     of multiple robots exploring unknown environments.
+ *
+ *     If you use MRESim, I would appreciate an acknowledgement and/or a citation
+ *     of our papers:
+ *
+ *     @inproceedings{deHoog2009,
+ *         title = "Role-Based Autonomous Multi-Robot Exploration",
+ *         author = "Julian de Hoog, Stephen Cameron and Arnoud Visser",
+ *         year = "2009",
+ *         booktitle =
+ *     "International Conference on Advanced Cognitive Technologies and Applications (COGNITIVE)",
+ *         location = "Athens, Greece",
+ *         month = "November",
+ *     }
+ *
+ *     @incollection{spirin2015mresim,
+ *       title={MRESim, a Multi-robot Exploration Simulator for the Rescue Simulation League},
+ *       author={Spirin, Victor and de Hoog, Julian and Visser, Arnoud and Cameron, Stephen},
+ *       booktitle={RoboCup 2014: Robot World Cup XVIII},
+ *       pages={106--117},
+ *       year={2015},
+ *       publisher={Springer}
+ *     }
+ *
+ *     MRESim is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     MRESim is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License along with MRESim.
+ *     If not, see <http://www.gnu.org/licenses/>.
+ */
+package environment;
+
+import config.SimConstants;
+import java.awt.Rectangle;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+/**
+ * Thinning of free space into a skeleton with the rule of Skeleton.skeletonize, on bit-packed
+ * columns. Whether a cell is deleted in a pass only depends on the 15 cells that make up its own
+ * 8-neighbourhood and those of its north and west neighbours, so the rule is a table indexed by
+ * those bits, and after the first pass only cells near a deletion of the previous pass are tested.
+ *
+ * The engine of an OccupancyGrid keeps the free space and skeleton of its last run. On the next
+ * request it reads the cells that changed from the grid's change log and only thins a window
+ * around the changed areas, copying the result back if it joins up with the old skeleton. A full
+ * run is done instead if the windows would cover much of the map or the result does not join up.
+ * Large windows are tested on the common fork-join pool. All methods are synchronized.
+ */
+class SkeletonEngine {
+
+    private static final boolean[] DELETABLE = buildTable();
+    private static final int TILE_SHIFT = 5;    // changed cells are grouped in tiles of 32x32
+    private static final int MAX_TILES = 64;    // more changed tiles than this, thin everything
+    private static final int PARALLEL_CELLS = 1 << 16;  // windows this large are tested in parallel
+
+    private final int width;
+    private final int height;
+    private final int words;                    // words per column, cell (x, y) is bit y of column x
+    private final long[] free;                  // free space of the last run
+    private final long[] skeleton;              // skeleton of free
+    private OccupancyGrid grid;
+    private int version;
+    private int passes;                         // passes that deleted cells in the last full run
+
+    // window being thinned, same layout as free
+    private int winX;
+    private int winY;
+    private int winW;
+    private int winH;
+    private int winWords;
+    private long[] buf;
+    private long[] active;                      // cells to test in the next pass
+    private final IntArrayList deleted;
+    private IntArrayList[] deletedPerChunk;
+
+    private long fullRuns;
+    private long localRuns;
+
+    SkeletonEngine(int width, int height) {
+        this.width = width;
+        this.height = height;
+        this.words = (height + 63) >>> 6;
+        this.free = new long[width * words];
+        this.skeleton = new long[width * words];
+        this.buf = new long[0];
+        this.active = new long[0];
+        this.deleted = new IntArrayList();
+        this.deletedPerChunk = new IntArrayList[0];
+    }
+
+    /**
+     * Skeleton of the given int grid (0 is not free), as Skeleton.skeletonize computes it.
+     *
+     * @param max passes after the first one, at most
+     */
+    static int[][] skeletonize(int[][] grid, int max) {
+        SkeletonEngine engine = new SkeletonEngine(grid.length, grid[0].length);
+        for (int x = 0; x < engine.width; x++) {
+            for (int y = 0; y < engine.height; y++) {
+                if (grid[x][y] != 0) {
+                    engine.free[x * engine.words + (y >>> 6)] |= 1L << y;
+                }
+            }
+        }
+        engine.load(0, 0, engine.width, engine.height);
+        engine.thin(max);
+        return engine.toGrid(engine.buf);
+    }
+
+    /**
+     * Skeleton of the free space of grid, brought up to date with the changes since the last call.
+     *
+     * @return a new array, 1 on the skeleton
+     */
+    synchronized int[][] skeleton(OccupancyGrid grid) {
+        GridChangeLog log = grid.changeLog();
+        int[] changed = this.grid == grid ? log.changesSince(version) : null;
+        version = log.snapshot();
+        this.grid = grid;
+        if (changed == null) {
+            for (int x = 0; x < width; x++) {
+                for (int y = 0; y < height; y++) {
+                    setBit(free, x * words, y, grid.freeSpaceAt(x, y));
+                }
+            }
+            thinAll();
+        } else {
+            IntArrayList flipped = new IntArrayList();
+            for (int cell : changed) {
+                int x = cell / height;
+                int y = cell % height;
+                boolean now = grid.freeSpaceAt(x, y);
+                if (getBit(free, x * words, y) != now) {
+                    setBit(free, x * words, y, now);
+                    flipped.add(cell);
+                }
+            }
+            if (!flipped.isEmpty() && !(SimConstants.INCREMENTAL_SKELETON && thinAround(flipped))) {
+                thinAll();
+            }
+        }
+        return toGrid(skeleton);
+    }
+
+    synchronized long getFullRuns() {
+        return fullRuns;
+    }
+
+    synchronized long getLocalRuns() {
+        return localRuns;
+    }
+
+    private void thinAll() {
+        load(0, 0, width, height);
+        passes = thin(Integer.MAX_VALUE);
+        System.arraycopy(buf, 0, skeleton, 0, skeleton.length);
+        fullRuns++;
+    }
+
+    /**
+     * Thins a window around each area with changed cells. Changes spread by at most 2 cells per
+     * pass, and the cells a window leaves out at its border make errors that spread just as fast,
+     * so a window reaching 4 cells per pass of the last full run beyond the area gives the right
+     * skeleton 2 cells per pass around it. The 2 cells around that have to match the old skeleton.
+     *
+     * @return false if the skeleton has to be thinned in full instead
+     */
+    private boolean thinAround(IntArrayList flipped) {
+        int margin = 4 * passes + 12;
+        int tilesY = (height >> TILE_SHIFT) + 1;
+        boolean[] tiles = new boolean[((width >> TILE_SHIFT) + 1) * tilesY];
+        List<Rectangle> areas = new ArrayList<>();
+        for (int i = 0; i < flipped.size(); i++) {
+            int tx = (flipped.get(i) / height) >> TILE_SHIFT;
+            int ty = (flipped.get(i) % height) >> TILE_SHIFT;
+            if (!tiles[tx * tilesY + ty]) {
+                tiles[tx * tilesY + ty] = true;
+                if (areas.size() == MAX_TILES) {
+                    return false;
+                }
+                areas.add(new Rectangle(tx << TILE_SHIFT, ty << TILE_SHIFT, 1 << TILE_SHIFT, 1 << TILE_SHIFT));
+            }
+        }
+        // merge areas whose windows overlap
+        boolean merged = true;
+        while (merged) {
+            merged = false;
+            for (int i = 0; i < areas.size() && !merged; i++) {
+                for (int j = i + 1; j < areas.size() && !merged; j++) {
+                    if (grow(areas.get(i), margin).intersects(grow(areas.get(j), margin))) {
+                        areas.set(i, areas.get(i).union(areas.remove(j)));
+                        merged = true;
+                    }
+                }
+            }
+        }
+        long windowCells = 0;
+        for (Rectangle area : areas) {
+            Rectangle window = grow(area, margin);
+            windowCells += (long) window.width * window.height;
+        }
+        if (windowCells > (long) width * height / 2) {
+            return false;
+        }
+
+        for (Rectangle area : areas) {
+            Rectangle window = grow(area, margin);
+            load(window.x, window.y, window.width, window.height);
+            int localPasses = thin(Integer.MAX_VALUE);
+            if (localPasses > passes) {
+                return false;
+            }
+            Rectangle inner = grow(area, 2 * localPasses + 2);
+            Rectangle outer = grow(inner, 2);
+            for (int x = outer.x; x < outer.x + outer.width; x++) {
+                for (int y = outer.y; y < outer.y + outer.height; y++) {
+                    if (!inner.contains(x, y)
+                            && getBit(buf, (x - winX) * winWords, y - winY) != getBit(skeleton, x * words, y)) {
+                        return false;
+                    }
+                }
+            }
+            for (int x = inner.x; x < inner.x + inner.width; x++) {
+                for (int y = inner.y; y < inner.y + inner.height; y++) {
+                    setBit(skeleton, x * words, y, getBit(buf, (x - winX) * winWords, y - winY));
+                }
+            }
+            localRuns++;
+        }
+        return true;
+    }
+
+    /**
+     * The rectangle grown by the given number of cells on each side, clipped to the grid.
+     */
+    private Rectangle grow(Rectangle r, int cells) {
+        int x0 = Math.max(0, r.x - cells);
+        int y0 = Math.max(0, r.y - cells);
+        int x1 = Math.min(width, r.x + r.width + cells);
+        int y1 = Math.min(height, r.y + r.height + cells);
+        return new Rectangle(x0, y0, x1 - x0, y1 - y0);
+    }
+
+    /**
+     * Copies the free space of the window into buf.
+     */
+    private void load(int x0, int y0, int w, int h) {
+        winX = x0;
+        winY = y0;
+        winW = w;
+        winH = h;
+        winWords = (h + 63) >>> 6;
+        if (buf.length < w * winWords) {
+            buf = new long[w * winWords];
+            active = new long[w * winWords];
+        }
+        for (int x = 0; x < w; x++) {
+            int src = (x0 + x) * words;
+            for (int k = 0; k < winWords; k++) {
+                int y = y0 + (k << 6);
+                int w0 = src + (y >>> 6);
+                int s = y & 63;
+                long v = free[w0] >>> s;
+                if (s != 0 && w0 + 1 < free.length) {
+                    v |= free[w0 + 1] << (64 - s);
+                }
+                int rows = h - (k << 6);
+                if (rows < 64) {
+                    v &= (1L << rows) - 1;
+                }
+                buf[x * winWords + k] = v;
+            }
+        }
+    }
+
+    /**
+     * Thins the window in buf, leaving the 2 cells along its border as they are.
+     *
+     * @param max passes after the first one, at most
+     * @return the number of passes that deleted cells
+     */
+    private int thin(int max) {
+        int cells = winW * winWords;
+        Arrays.fill(active, 0, cells, -1L);
+        int deleting = 0;
+        int columns = winW - 4;
+        int chunks = 1;
+        if (SimConstants.PARALLEL_TOPOLOGICAL_MAP && columns > 0 && winW * winH >= PARALLEL_CELLS) {
+            chunks = Math.min(columns, 4 * ForkJoinPool.getCommonPoolParallelism());
+        }
+        if (deletedPerChunk.length < chunks) {
+            deletedPerChunk = new IntArrayList[chunks];
+            for (int c = 0; c < chunks; c++) {
+                deletedPerChunk[c] = new IntArrayList();
+            }
+        }
+        for (int pass = 0;; pass++) {
+            deleted.clear();
+            if (chunks == 1) {
+                findDeletable(2, winW - 2, deleted);
+            } else {
+                // cells are only deleted after all of them were tested, so column ranges can be
+                // tested at the same time
+                final int parts = chunks;
+                IntStream.range(0, parts).parallel().forEach(c -> findDeletable(
+                        2 + columns * c / parts, 2 + columns * (c + 1) / parts, deletedPerChunk[c]));
+                for (int c = 0; c < chunks; c++) {
+                    for (int i = 0; i < deletedPerChunk[c].size(); i++) {
+                        deleted.add(deletedPerChunk[c].get(i));
+                    }
+                }
+            }
+            if (deleted.isEmpty()) {
+                return deleting;
+            }
+            deleting++;
+            Arrays.fill(active, 0, cells, 0L);
+            for (int i = 0; i < deleted.size(); i++) {
+                int x = deleted.get(i) / winH;
+                int y = deleted.get(i) % winH;
+                buf[x * winWords + (y >>> 6)] &= ~(1L << y);
+                // cells whose neighbourhood contains (x, y)
+                for (int nx = Math.max(0, x - 1); nx <= Math.min(winW - 1, x + 2); nx++) {
+                    for (int ny = Math.max(0, y - 1); ny <= Math.min(winH - 1, y + 2); ny++) {
+                        active[nx * winWords + (ny >>> 6)] |= 1L << ny;
+                    }
+                }
+            }
+            if (pass == max) {
+                return deleting;
+            }
+        }
+    }
+
+    /**
+     * Collects the cells of columns x0 to x1 - 1 that the current pass deletes.
+     */
+    private void findDeletable(int x0, int x1, IntArrayList out) {
+        out.clear();
+        for (int x = x0; x < x1; x++) {
+            for (int k = 0; k < winWords; k++) {
+                long candidates = buf[x * winWords + k] & active[x * winWords + k];
+                int y0 = k << 6;
+                if (y0 == 0) {
+                    candidates &= -1L << 2;
+                }
+                int end = winH - 2 - y0;
+                if (end < 64) {
+                    candidates &= end <= 0 ? 0 : (1L << end) - 1;
+                }
+                while (candidates != 0) {
+                    int y = y0 + Long.numberOfTrailingZeros(candidates);
+                    candidates &= candidates - 1;
+                    if (DELETABLE[neighbourhood(x, y)]) {
+                        out.add(x * winH + y);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Index into DELETABLE: rows y - 2 to y + 1 of columns x - 1, x and x + 1, then rows y - 1 to
+     * y + 1 of column x - 2.
+     */
+    private int neighbourhood(int x, int y) {
+        return bits(x - 1, y - 2, 4) | bits(x, y - 2, 4) << 4 | bits(x + 1, y - 2, 4) << 8
+                | bits(x - 2, y - 1, 3) << 12;
+    }
+
+    private int bits(int x, int y, int n) {
+        int w = x * winWords + (y >>> 6);
+        int s = y & 63;
+        long v = buf[w] >>> s;
+        if (s + n > 64) {
+            v |= buf[w + 1] << (64 - s);
+        }
+        return (int) v & ((1 << n) - 1);
+    }
+
+    private static boolean getBit(long[] bits, int column, int y) {
+        return (bits[column + (y >>> 6)] & (1L << y)) != 0;
+    }
+
+    private static void setBit(long[] bits, int column, int y, boolean value) {
+        if (value) {
+            bits[column + (y >>> 6)] |= 1L << y;
+        } else {
+            bits[column + (y >>> 6)] &= ~(1L << y);
+        }
+    }
+
+    /**
+     * Unpacks a full-grid bitmap.
+     */
+    private int[][] toGrid(long[] bits) {
+        int[][] grid = new int[width][height];
+        for (int x = 0; x < width; x++) {
+            for (int k = 0; k < words; k++) {
+                long v = bits[x * words + k];
+                while (v != 0) {
+                    grid[x][(k << 6) + Long.numberOfTrailingZeros(v)] = 1;
+                    v &= v - 1;
+                }
+            }
+        }
+        return grid;
+    }
+
+    private static boolean[] buildTable() {
+        boolean[] table = new boolean[1 << 15];
+        int[][] g = new int[5][5]; // g[2][2] is the cell tested
+        for (int index = 0; index < table.length; index++) {
+            for (int i = 0; i < 4; i++) {
+                g[1][i] = (index >>> i) & 1;
+                g[2][i] = (index >>> (4 + i)) & 1;
+                g[3][i] = (index >>> (8 + i)) & 1;
+            }
+            for (int i = 0; i < 3; i++) {
+                g[0][i + 1] = (index >>> (12 + i)) & 1;
+            }
+            int n = Skeleton.numNonzeroNeighbors(g, 2, 2);
+            table[index] = g[2][2] == 1 && n >= 2 && n <= 6 && Skeleton.neighborTraversal(g, 2, 2) == 1
+                    && (g[2][1] * g[1][2] * g[3][2] == 0 || Skeleton.neighborTraversal(g, 2, 1) != 1)
+                    && (g[2][1] * g[1][2] * g[2][3] == 0 || Skeleton.neighborTraversal(g, 1, 2) != 1);
+        }
+        return table;
+    }
+}
@@ -0,0 +1,297 @@
+/*
+ *     Copyright 2010, 2015, 2017 Julian de Hoog (julian@dehoog.ca),
+ *     Victor Spirin (victor.spirin@cs.ox.ac.uk),
+ *     Christian Clausen (christian.clausen@uni-bremen.de
+ *
+ *     This file is part of MRESim 2.3, a simulator for testing the behaviour
+ *     of multiple robots exploring unknown environments.
+ *
+ *     If you use MRESim, I would appreciate an acknowledgement and/or a citation
+ *     of our papers:
+ *
+ *     @inproceedings{deHoog2009,
+ *         title = "Role-Based Autonomous Multi-Robot Exploration",
+ *         author = "Julian de Hoog, Stephen Cameron and Arnoud Visser",
+ *         year = "2009",
+ *         booktitle =
+ *     "International Conference on Advanced Cognitive Technologies and Applications (COGNITIVE)",
+ *         location = "Athens, Greece",
+ *         month = "November",
+ *     }
+ *
+ *     @incollection{spirin2015mresim,
+ *       title={MRESim, a Multi-robot Exploration Simulator for the Rescue Simulation League},
+ *       author={Spirin, Victor and de Hoog, Julian and Visser, Arnoud and Cameron, Stephen},
+ *       booktitle={RoboCup 2014: Robot World Cup XVIII},
+ *       pages={106--117},
+ *       year={2015},
+ *       publisher={Springer}
+ *     }
+ *
+ *     MRESim is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     MRESim is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License along with MRESim.
+ *     If not, see <http://www.gnu.org/licenses/>.
+ */
+package environment;
+
+import java.awt.Point;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.function.Predicate;
+
+/**
+ * Uniform grid of square buckets over Point-like objects, for distance queries that would
+ * otherwise scan a whole list.
+ *
+ * Results are the ones a scan of the items in insertion order finds: radius queries return items
+ * in insertion order, nearest queries break distance ties towards the item added first, with
+ * distances as computed by Point.distance. Items that move must be passed to {@link #update}
+ * before the next query.
+ */
+public class SpatialIndex<T extends Point> {
+
+    private static class Candidate {
+
+        final int id;
+        final double distance;
+
+        Candidate(int id, double distance) {
+            this.id = id;
+            this.distance = distance;
+        }
+    }
+
+    private static final Comparator<Candidate> CLOSEST_FIRST
+            = Comparator.<Candidate>comparingDouble(c -> c.distance).thenComparingInt(c -> c.id);
+
+    private final int cellSize;
+    private final HashMap<Long, IntArrayList> buckets = new HashMap<>();
+    private final IdentityHashMap<T, Integer> ids = new IdentityHashMap<>();
+    private final ArrayList<T> items = new ArrayList<>();   // by id, null once removed
+    private int[] filedX = new int[16];                      // bucket each id is filed under
+    private int[] filedY = new int[16];
+    private int minBucketX = Integer.MAX_VALUE;
+    private int maxBucketX = Integer.MIN_VALUE;
+    private int minBucketY = Integer.MAX_VALUE;
+    private int maxBucketY = Integer.MIN_VALUE;
+
+    /**
+     * @param cellSize side of a bucket; about the radius of typical queries works well
+     */
+    public SpatialIndex(int cellSize) {
+        if (cellSize < 1) {
+            throw new IllegalArgumentException("Cell size must be positive: " + cellSize);
+        }
+        this.cellSize = cellSize;
+    }
+
+    public SpatialIndex(Collection<? extends T> items, int cellSize) {
+        this(cellSize);
+        for (T item : items) {
+            add(item);
+        }
+    }
+
+    public int size() {
+        return ids.size();
+    }
+
+    /**
+     * @return false if the item is already in the index
+     */
+    public boolean add(T item) {
+        if (ids.containsKey(item)) {
+            return false;
+        }
+        int id = items.size();
+        items.add(item);
+        ids.put(item, id);
+        if (id == filedX.length) {
+            filedX = Arrays.copyOf(filedX, id * 2);
+            filedY = Arrays.copyOf(filedY, id * 2);
+        }
+        file(id, item);
+        return true;
+    }
+
+    /**
+     * @return false if the item is not in the index
+     */
+    public boolean remove(T item) {
+        Integer id = ids.remove(item);
+        if (id == null) {
+            return false;
+        }
+        unfile(id);
+        items.set(id, null);
+        return true;
+    }
+
+    /**
+     * Moves an item that changed its coordinates to the right bucket. It keeps its place in the
+     * insertion order.
+     *
+     * @return false if the item is not in the index
+     */
+    public boolean update(T item) {
+        Integer id = ids.get(item);
+        if (id == null) {
+            return false;
+        }
+        if (bucketOf(item.x) != filedX[id] || bucketOf(item.y) != filedY[id]) {
+            unfile(id);
+            file(id, item);
+        }
+        return true;
+    }
+
+    /**
+     * @return items at most radius away from centre, in insertion order
+     */
+    public List<T> withinDistance(Point centre, double radius) {
+        List<T> result = new ArrayList<>();
+        if (ids.isEmpty() || !(radius >= 0)) {
+            return result;
+        }
+        int fromX = clamp(Math.floor((centre.x - radius) / cellSize), minBucketX, maxBucketX);
+        int toX = clamp(Math.floor((centre.x + radius) / cellSize), minBucketX, maxBucketX);
+        int fromY = clamp(Math.floor((centre.y - radius) / cellSize), minBucketY, maxBucketY);
+        int toY = clamp(Math.floor((centre.y + radius) / cellSize), minBucketY, maxBucketY);
+        IntArrayList found = new IntArrayList();
+        for (int bx = fromX; bx <= toX; bx++) {
+            for (int by = fromY; by <= toY; by++) {
+                IntArrayList bucket = buckets.get(key(bx, by));
+                if (bucket == null) {
+                    continue;
+                }
+                for (int k = 0; k < bucket.size(); k++) {
+                    int id = bucket.get(k);
+                    if (items.get(id).distance(centre) <= radius) {
+                        found.add(id);
+                    }
+                }
+            }
+        }
+        int[] sorted = found.toArray();
+        Arrays.sort(sorted);
+        for (int id : sorted) {
+            result.add(items.get(id));
+        }
+        return result;
+    }
+
+    /**
+     * @return up to k items closest to centre, closest first
+     */
+    public List<T> nearest(Point centre, int k) {
+        return nearest(centre, k, item -> true);
+    }
+
+    /**
+     * @return the item closest to centre that is accepted, null if there is none
+     */
+    public T nearest(Point centre, Predicate<? super T> accept) {
+        List<T> closest = nearest(centre, 1, accept);
+        return closest.isEmpty() ? null : closest.get(0);
+    }
+
+    /**
+     * Searches rings of buckets around centre outwards. The predicate is tested in order of
+     * distance, and only until k items are accepted.
+     *
+     * @return up to k accepted items closest to centre, closest first
+     */
+    public List<T> nearest(Point centre, int k, Predicate<? super T> accept) {
+        List<T> result = new ArrayList<>();
+        if (ids.isEmpty() || k <= 0) {
+            return result;
+        }
+        int cx = bucketOf(centre.x);
+        int cy = bucketOf(centre.y);
+        int lastRing = Math.max(Math.max(cx - minBucketX, maxBucketX - cx), Math.max(cy - minBucketY, maxBucketY - cy));
+        ArrayList<Candidate> pending = new ArrayList<>();
+        for (int ring = 0; ring <= lastRing && result.size() < k; ring++) {
+            for (int bx = cx - ring; bx <= cx + ring; bx++) {
+                boolean edge = (bx == cx - ring || bx == cx + ring);
+                for (int by = cy - ring; by <= cy + ring; by += edge ? 1 : 2 * ring) {
+                    collect(bx, by, centre, pending);
+                }
+            }
+            // anything in further rings is more than ring * cellSize away
+            take(pending, ring < lastRing ? (double) ring * cellSize : Double.POSITIVE_INFINITY, k, accept, result);
+        }
+        return result;
+    }
+
+    private void collect(int bx, int by, Point centre, List<Candidate> pending) {
+        IntArrayList bucket = buckets.get(key(bx, by));
+        if (bucket == null) {
+            return;
+        }
+        for (int k = 0; k < bucket.size(); k++) {
+            int id = bucket.get(k);
+            pending.add(new Candidate(id, items.get(id).distance(centre)));
+        }
+    }
+
+    // moves pending candidates up to maxDistance into result, closest first, until k are accepted
+    private void take(ArrayList<Candidate> pending, double maxDistance, int k, Predicate<? super T> accept,
+            List<T> result) {
+        pending.sort(CLOSEST_FIRST);
+        int taken = 0;
+        while (taken < pending.size() && pending.get(taken).distance <= maxDistance && result.size() < k) {
+            T item = items.get(pending.get(taken++).id);
+            if (accept.test(item)) {
+                result.add(item);
+            }
+        }
+        pending.subList(0, taken).clear();
+    }
+
+    private void file(int id, T item) {
+        int bx = bucketOf(item.x);
+        int by = bucketOf(item.y);
+        buckets.computeIfAbsent(key(bx, by), unused -> new IntArrayList(4)).add(id);
+        filedX[id] = bx;
+        filedY[id] = by;
+        minBucketX = Math.min(minBucketX, bx);
+        maxBucketX = Math.max(maxBucketX, bx);
+        minBucketY = Math.min(minBucketY, by);
+        maxBucketY = Math.max(maxBucketY, by);
+    }
+
+    private void unfile(int id) {
+        Long key = key(filedX[id], filedY[id]);
+        IntArrayList bucket = buckets.get(key);
+        bucket.removeSwap(id);
+        if (bucket.isEmpty()) {
+            buckets.remove(key);
+        }
+    }
+
+    private int bucketOf(int coordinate) {
+        return Math.floorDiv(coordinate, cellSize);
+    }
+
+    private static long key(int bx, int by) {
+        return ((long) bx << 32) | (by & 0xffffffffL);
+    }
+
+    private static int clamp(double bucket, int min, int max) {
+        return (int) Math.max(min, Math.min(max, bucket));
+    }
+}
@@ -0,0 +1,228 @@
+/*
+ *     Copyright 2010, 2015, 2017 Julian de Hoog (julian@dehoog.ca),
+ *     Victor Spirin (victor.spirin@cs.ox.ac.uk),
+ *     Christian Clausen (christian.clausen@uni-bremen.de
+ *
+ *     This file is part of MRESim 2.3, a simulator for testing the behaviour
+ *     of multiple robots exploring unknown environments.
+ *
+ *     If you use MRESim, I would appreciate an acknowledgement and/or a citation
+ *     of our papers:
+ *
+ *     @inproceedings{deHoog2009,
+ *         title = "Role-Based Autonomous Multi-Robot Exploration",
+ *         author = "Julian de Hoog, Stephen Cameron and Arnoud Visser",
+ *         year = "2009",
+ *         booktitle =
+ *     "International Conference on Advanced Cognitive Technologies and Applications (COGNITIVE)",
+ *         location = "Athens, Greece",
+ *         month = "November",
+ *     }
+ *
+ *     @incollection{spirin2015mresim,
+ *       title={MRESim, a Multi-robot Exploration Simulator for the Rescue Simulation League},
+ *       author={Spirin, Victor and de Hoog, Julian and Visser, Arnoud and Cameron, Stephen},
+ *       booktitle={RoboCup 2014: Robot World Cup XVIII},
+ *       pages={106--117},
+ *       year={2015},
+ *       publisher={Springer}
+ *     }
+ *
+ *     MRESim is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     MRESim is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License along with MRESim.
+ *     If not, see <http://www.gnu.org/licenses/>.
+ */
+package environment;
+
+import java.util.Arrays;
+
+/**
+ * Bit planes of an OccupancyGrid, split into tiles of TILE_WORDS words that are shared between
+ * copies and only copied when one of them writes. Word w of plane p is the same word as in a flat
+ * long[planes][words] layout, so cell x * height + y keeps its place.
+ *
+ * A tile marked shared may be referenced by other instances and is never written in place. Marks
+ * are only ever set on both sides of a share and cleared by the instance that copied the tile, so
+ * an instance may copy a tile nobody else holds any more, but never writes one somebody else does.
+ */
+class TiledPlanes {
+
+    static final int TILE_SHIFT = 6;
+    static final int TILE_WORDS = 1 << TILE_SHIFT;      // 4096 cells
+    private static final int TILE_MASK = TILE_WORDS - 1;
+
+    private final int planes;
+    private final int words;
+    private final long[][] tiles;   // word w of plane p is tiles[w >>> TILE_SHIFT][p * TILE_WORDS + (w & TILE_MASK)]
+    private final boolean[] shared;
+    private long[] deltaCells;      // scratch for adoptMatching, all zero between calls
+
+    TiledPlanes(int planes, int cells) {
+        this.planes = planes;
+        this.words = (cells + 63) >>> 6;
+        int tileCount = (words + TILE_MASK) >>> TILE_SHIFT;
+        this.tiles = new long[tileCount][];
+        this.shared = new boolean[tileCount];
+        // everything starts out unknown: all tiles share one zero tile until written
+        long[] zero = new long[planes * TILE_WORDS];
+        Arrays.fill(tiles, zero);
+        Arrays.fill(shared, true);
+    }
+
+    private TiledPlanes(TiledPlanes source) {
+        this.planes = source.planes;
+        this.words = source.words;
+        this.tiles = source.tiles.clone();
+        this.shared = new boolean[tiles.length];
+        Arrays.fill(source.shared, true);
+        Arrays.fill(shared, true);
+    }
+
+    /**
+     * @return a copy sharing all tiles with this one
+     */
+    TiledPlanes copy() {
+        return new TiledPlanes(this);
+    }
+
+    int words() {
+        return words;
+    }
+
+    long word(int plane, int w) {
+        return tiles[w >>> TILE_SHIFT][(plane << TILE_SHIFT) | (w & TILE_MASK)];
+    }
+
+    boolean test(int plane, int cell) {
+        return (word(plane, cell >>> 6) & (1L << cell)) != 0;
+    }
+
+    // the lowest numPlanes bits of the cell, bit p from plane p
+    int bits(int cell, int numPlanes) {
+        int w = cell >>> 6;
+        long[] tile = tiles[w >>> TILE_SHIFT];
+        int at = w & TILE_MASK;
+        long mask = 1L << cell;
+        int value = 0;
+        for (int p = 0; p < numPlanes; p++) {
+            if ((tile[(p << TILE_SHIFT) | at] & mask) != 0) {
+                value |= 1 << p;
+            }
+        }
+        return value;
+    }
+
+    // sets the cell to the lowest bits of value, bit p in plane p
+    void write(int cell, int value) {
+        int w = cell >>> 6;
+        long[] tile = writable(w >>> TILE_SHIFT);
+        int at = w & TILE_MASK;
+        long mask = 1L << cell;
+        for (int p = 0; p < planes; p++) {
+            if ((value & (1 << p)) != 0) {
+                tile[(p << TILE_SHIFT) | at] |= mask;
+            } else {
+                tile[(p << TILE_SHIFT) | at] &= ~mask;
+            }
+        }
+    }
+
+    void flip(int plane, int cell) {
+        int w = cell >>> 6;
+        writable(w >>> TILE_SHIFT)[(plane << TILE_SHIFT) | (w & TILE_MASK)] ^= 1L << cell;
+    }
+
+    private long[] writable(int t) {
+        if (shared[t]) {
+            tiles[t] = tiles[t].clone();
+            shared[t] = false;
+        }
+        return tiles[t];
+    }
+
+    /**
+     * Takes over the tiles of source that this one would equal after writing the given cells with
+     * their values in source, in place of writing them.
+     *
+     * @return per tile, whether it was taken over; the cells in the others still need writing
+     */
+    boolean[] adoptMatching(TiledPlanes source, int[] cells) {
+        boolean[] adopted = new boolean[tiles.length];
+        if (source.words != words || source.planes != planes) {
+            return adopted;
+        }
+        if (deltaCells == null) {
+            deltaCells = new long[words];
+        }
+        boolean[] touched = new boolean[tiles.length];
+        for (int cell : cells) {
+            deltaCells[cell >>> 6] |= 1L << cell;
+            touched[cell >>> (6 + TILE_SHIFT)] = true;
+        }
+        for (int t = 0; t < tiles.length; t++) {
+            if (!touched[t]) {
+                continue;
+            }
+            long[] mine = tiles[t];
+            long[] theirs = source.tiles[t];
+            boolean matches = true;
+            for (int at = 0; at < TILE_WORDS && matches; at++) {
+                long diff = 0;
+                for (int p = 0; p < planes; p++) {
+                    diff |= mine[(p << TILE_SHIFT) | at] ^ theirs[(p << TILE_SHIFT) | at];
+                }
+                int w = (t << TILE_SHIFT) | at;
+                matches = (diff & ~(w < words ? deltaCells[w] : 0)) == 0;
+            }
+            if (matches) {
+                tiles[t] = theirs;
+                shared[t] = true;
+                source.shared[t] = true;
+                adopted[t] = true;
+            }
+            Arrays.fill(deltaCells, t << TILE_SHIFT, Math.min(words, (t + 1) << TILE_SHIFT), 0);
+        }
+        return adopted;
+    }
+
+    static int tileOf(int cell) {
+        return cell >>> (6 + TILE_SHIFT);
+    }
+
+    /**
+     * Same value as Arrays.deepHashCode of the flat long[planes][words] layout.
+     */
+    int deepHashCode() {
+        int result = 1;
+        for (int p = 0; p < planes; p++) {
+            int planeHash = 1;
+            for (int w = 0; w < words; w++) {
+                long element = word(p, w);
+                planeHash = 31 * planeHash + (int) (element ^ (element >>> 32));
+            }
+            result = 31 * result + planeHash;
+        }
+        return result;
+    }
+
+    int tileCount() {
+        return tiles.length;
+    }
+
+    long[] tile(int t) {
+        return tiles[t];
+    }
+
+    int tileBytes() {
+        return planes * TILE_WORDS * Long.BYTES;
+    }
+}
@@ -50,11 +50,8 @@ import gui.ShowSettings.ShowSettingsAgent;
 import java.awt.Point;
 import java.awt.Rectangle;
 import java.io.File;
-import java.util.ConcurrentModificationException;
 import java.util.HashMap;
-import java.util.Iterator;
 import java.util.LinkedList;
-import java.util.Map;
 import path.Path;
 import path.TopologicalNode;
 import simulator.ExplorationImage;
@@ -82,7 +79,7 @@ public class TopologicalMap {
     private LinkedList<Point> secondKeyPointsBorder;
 
     //cached paths between nodes; first param is two points, start and finish
-    private static HashMap<Rectangle, Path> pathCache = new HashMap<Rectangle, Path>();
+    private final PathCache pathCache = new PathCache(SimConstants.PATH_CACHE_SIZE);
     private LinkedList<Point> junctionPoints;
 
     public TopologicalMap(OccupancyGrid occGrid) {
@@ -107,25 +104,6 @@ public class TopologicalMap {
         keyPointsBorder = null;
         secondKeyPointsBorder = null;
         junctionPoints = null;
-
-        Iterator<Map.Entry<Rectangle, Path>> iterator = pathCache.entrySet().iterator();
-        LinkedList<Rectangle> toRemove = new LinkedList<>();
-        try {
-            while (iterator.hasNext()) {
-                Map.Entry<Rectangle, Path> entry = iterator.next();
-                if (!(entry.getKey().x == entry.getValue().getStartPoint().x && entry.getKey().y == entry.getValue().getStartPoint().y && entry.getKey().width == entry.getValue().getGoalPoint().x && entry.getKey().height == entry.getValue().getGoalPoint().y) || !entry.getValue().isValid()) {
-                    //iterator.remove(); //This gives a concurrendModException!?!? (Should never be known in different Threads!)
-                    toRemove.add(entry.getKey());
-                }
-            }
-
-            //Only necessary because of strange concurrentMod
-            for (Rectangle r : toRemove) {
-                pathCache.remove(r);
-            }
-        } catch (ConcurrentModificationException ex) {
-            System.err.println("CuncurrentModException");
-        }
     }
 
     public final void setGrid(OccupancyGrid occGrid) {
@@ -136,6 +114,10 @@ public class TopologicalMap {
         return this.occGrid;
     }
 
+    public PathCache getPathCache() {
+        return pathCache;
+    }
+
     private void generateSkeleton() {
         skeletonGrid = occGrid.getSkeleton();
         skeletonPoints = Skeleton.gridToList(skeletonGrid);
@@ -242,6 +224,8 @@ public class TopologicalMap {
 
         // calculate the areas for each node
         areaGrid = Skeleton.fillAreas(occGrid, getKeyPoints(), topologicalNodes);
+        // forget cached paths through parts of the map that changed since the last time
+        pathCache.invalidate(occGrid);
         //find node neighbours
         generateBorderPoints();
 
@@ -260,13 +244,11 @@ public class TopologicalMap {
                                         //Tiny areas make problems in path planning!
                                         continue;
                                     }
-                                    Path pathToNode;
                                     //check path cache
                                     Rectangle pathCoords = new Rectangle(node.getPosition().x, node.getPosition().y,
                                             neighbourNode.getPosition().x, neighbourNode.getPosition().y);
-                                    if (pathCache.containsKey(pathCoords)) {
-                                        pathToNode = pathCache.get(pathCoords);
-                                    } else {
+                                    Path pathToNode = pathCache.get(pathCoords);
+                                    if (pathToNode == null) {
                                         pathToNode = new Path(occGrid, node.getPosition(), neighbourNode.getPosition(), false, true, false);
                                         pathToNode.testPath(true);
                                         if (!pathToNode.getStartPoint().equals(node.getPosition())
@@ -77,7 +77,7 @@ public class FrontierUtility implements Comparable<FrontierUtility> {
 
     public Path getPath(RealAgent calcAgent) {
         if (path == null) {
-            calculateUtilityExact(calcAgent);
+            path = calcAgent.calculatePath(agent.getLocation(), frontier.getCentre(), false, false/*ute.frontier.getClosestPoint(start, agent.getOccupancyGrid())*/);
         }
         return path;
     }
@@ -125,13 +125,11 @@ public class FrontierUtility implements Comparable<FrontierUtility> {
             exact = true;
             return;
         }
-        path = calcAgent.calculatePath(agent.getLocation(), frontier.getCentre(), false, false/*ute.frontier.getClosestPoint(start, agent.getOccupancyGrid())*/);
+        // only the length is needed, the frontier centre is shared by every agent rating it
+        double length = calcAgent.calculatePathLength(frontier.getCentre(), agent.getLocation());
 
-        if (path.found) {
-            if (path.getLength() == 0) {
-                path = calcAgent.calculatePath(agent.getLocation(), frontier.getCentre(), false, false/*ute.frontier.getClosestPoint(start, agent.getOccupancyGrid())*/);
-            }
-            utility = (frontier.getSize() * 100000000) / Math.pow(path.getLength(), 4);
+        if (length >= 0) {
+            utility = (frontier.getSize() * 100000000) / Math.pow(length, 4);
         } else {
             utility = -1000;
         }
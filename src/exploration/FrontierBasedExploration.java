@@ -49,7 +49,6 @@ public class FrontierBasedExploration extends BasicExploration implements Explor
 
     @Override
     public Point takeStep(int timeElapsed) {
-        agent.flushLog();
         if(timeElapsed == 0){
             return agent.stay();
         }
@@ -126,11 +125,11 @@ public class FrontierBasedExploration extends BasicExploration implements Explor
         chooseFrontier();
 
         if(destination != null && !agent.isMissionComplete()){
-            agent.announce("New Destination: ".concat(destination.toString()));
+            agent.announce("New Destination: %s", destination);
             agent.setPath(agent.calculateAStarPath(destination,EXACT_PATH));
             while(agent.getPath() == null || !agent.getPath().found || !agent.getPath().isValid()){
                 agent.addBadFrontier(frontierTarget);
-                agent.announce("Added to bad frontiers: ".concat(frontierTarget.toString()));
+                agent.announce("Added to bad frontiers: %s", frontierTarget);
                 Path p;
                 do {
                     destination = null;
@@ -217,11 +216,8 @@ public class FrontierBasedExploration extends BasicExploration implements Explor
         frontiers.clear();
 
         // Find all the boundaries between the "known" tiles and "unknown tiles"
-        LinkedList<LinkedList<Point>> contours = ContourTracer.findAllContours(agent.getOccupancyGrid());
-
-        // convert the contours to frontiers, and filter out all those that are invalid
-        for (LinkedList<Point> contour : contours) {
-            Frontier frontier = new Frontier(agent.getX(), agent.getY(), contour);
+        // and convert them to frontiers, filtering out all those that are invalid
+        for (Frontier frontier : ContourTracer.findAllFrontiers(agent.getOccupancyGrid(), agent.getX(), agent.getY())) {
             if(frontier.getArea() >= SimConstants.MIN_FRONTIER_SIZE && !agent.isBadFrontier(frontier) && !frontier.equals(frontierTarget)){
                 frontiers.add(frontier);
             }
@@ -1,5 +1,6 @@
 package exploration;
 
+import Logging.DebugLog;
 import agents.Agent;
 import agents.RealAgent;
 import config.SimConstants;
@@ -9,8 +10,6 @@ import environment.OccupancyGrid;
 import path.TopologicalNode;
 
 import java.awt.*;
-import java.io.FileOutputStream;
-import java.io.IOException;
 import java.util.*;
 import java.util.List;
 import java.util.stream.Collectors;
@@ -30,16 +29,9 @@ public class HungarianComms {
     private final Map<Integer, RealAgent> indexToAgent;
     private final List<Boolean> agentAtRendezvous;
     private final List<Point> agentPoints;
-    private static final FileOutputStream outputFile;
-
-    static {
-        try {
-            outputFile = new FileOutputStream("/home/alec/Documents/Cambridge/Work/dissertation/Test Data/run3.txt", false);
-
-        } catch (IOException e) {
-            throw new RuntimeException(e);
-        }
-    }
+    // set by the simulator of a GUI run, headless runs leave it null and log nothing
+    private static volatile DebugLog.Channel outputFile;
+    private static final DebugLog.Channel console = DebugLog.open("", DebugLog.STDOUT);
 
     private List<RealAgent> agents = new ArrayList<>();
 
@@ -116,12 +108,20 @@ public class HungarianComms {
         return target;
     }
 
-    public static synchronized void writeToDebug(String s){
-        try {
-            outputFile.write(s.getBytes());
-            outputFile.write("\n".getBytes());
-        } catch (IOException e) {
-            throw new RuntimeException(e);
+    /**
+     * Sets where writeToDebug goes, closing the previous channel; null drops the output.
+     */
+    public static synchronized void setDebugChannel(DebugLog.Channel channel) {
+        if (outputFile != null) {
+            outputFile.close();
+        }
+        outputFile = channel;
+    }
+
+    public static void writeToDebug(String s){
+        DebugLog.Channel channel = outputFile;
+        if (channel != null) {
+            channel.log(DebugLog.Level.DEBUG, DebugLog.Category.COMMS, s);
         }
     }
 
@@ -159,9 +159,7 @@ public class HungarianComms {
         }
 
 
-        LinkedList<LinkedList<Point>> contours = ContourTracer.findAllContours(a.getOccupancyGrid());
-        ArrayList<Frontier> frontiers = new ArrayList<>();
-        contours.forEach(c -> frontiers.add(new Frontier(a.getX(), a.getY(), c)));
+        ArrayList<Frontier> frontiers = new ArrayList<>(ContourTracer.findAllFrontiers(a.getOccupancyGrid(), a.getX(), a.getY()));
         frontiers.removeIf(frontier ->frontier.getArea() <= SimConstants.MIN_FRONTIER_SIZE);
         frontiers.sort(Frontier::compareTo);
 
@@ -229,12 +227,12 @@ public class HungarianComms {
             n.removeImpossibleNeighbours(a.getOccupancyGrid());
         }
 
-        if(SimConstants.ALEC_DEBUG){
-            System.out.println("Before Prims");
+        if(console.isEnabled(DebugLog.Level.DEBUG, DebugLog.Category.COMMS)){
+            console.log(DebugLog.Level.DEBUG, DebugLog.Category.COMMS, "Before Prims");
             for(TopologicalNode n1 : nodes){
                 for(TopologicalNode n2 : n1.getListOfNeighbours()){
                     // output the graph in a format I can use to visualise in mermaid
-                    System.out.println(" ".concat(String.valueOf(n1.getID())).concat(" --> ").concat(String.valueOf(n2.getID())));
+                    console.log(DebugLog.Level.DEBUG, DebugLog.Category.COMMS, " ".concat(String.valueOf(n1.getID())).concat(" --> ").concat(String.valueOf(n2.getID())));
                 }
             }
         }
@@ -254,7 +252,8 @@ public class HungarianComms {
         nodes.forEach(TopologicalNode::clearNeighbours);
 
         List<Integer> nodesInTree = new ArrayList<>(nodes.size());
-        nodesInTree.add(new Random().nextInt(nodes.size())); // Start from the 1st node since the choice doesn't matter
+        Random random = baseStation.getRandom();
+        nodesInTree.add((random == null ? new Random() : random).nextInt(nodes.size())); // Start from the 1st node since the choice doesn't matter
 
         while(nodesInTree.size() < nodes.size()){
             double minEdge = Double.MAX_VALUE;
@@ -281,12 +280,12 @@ public class HungarianComms {
 
         // Now, our topological nodes should form a tree
 
-        if(SimConstants.ALEC_DEBUG){
-            System.out.println("After Prims");
+        if(console.isEnabled(DebugLog.Level.DEBUG, DebugLog.Category.COMMS)){
+            console.log(DebugLog.Level.DEBUG, DebugLog.Category.COMMS, "After Prims");
             for(TopologicalNode n1 : nodes){
                 for(TopologicalNode n2 : n1.getListOfNeighbours()){
                     // output the graph in a format I can use to visualise in mermaid
-                    System.out.println(" ".concat(String.valueOf(n1.getID())).concat(" --> ").concat(String.valueOf(n2.getID())));
+                    console.log(DebugLog.Level.DEBUG, DebugLog.Category.COMMS, " ".concat(String.valueOf(n1.getID())).concat(" --> ").concat(String.valueOf(n2.getID())));
                 }
             }
         }
@@ -322,12 +321,12 @@ public class HungarianComms {
                 next.clear();
             }
 
-            if(SimConstants.ALEC_DEBUG){
-                System.out.println("After tree-ification");
+            if(console.isEnabled(DebugLog.Level.DEBUG, DebugLog.Category.COMMS)){
+                console.log(DebugLog.Level.DEBUG, DebugLog.Category.COMMS, "After tree-ification");
                 for(TopologicalNode n1 : nodes){
                     for(TopologicalNode n2 : n1.getListOfNeighbours()){
                         // output the graph in a format I can use to visualise in mermaid
-                        System.out.println(" ".concat(String.valueOf(n1.getID())).concat(" --> ").concat(String.valueOf(n2.getID())));
+                        console.log(DebugLog.Level.DEBUG, DebugLog.Category.COMMS, " ".concat(String.valueOf(n1.getID())).concat(" --> ").concat(String.valueOf(n2.getID())));
                     }
                 }
             }
@@ -362,14 +361,14 @@ public class HungarianComms {
                 root.setParent(null);
             }
 
-            if(SimConstants.ALEC_DEBUG){
-                System.out.println("After Skinning");
+            if(console.isEnabled(DebugLog.Level.DEBUG, DebugLog.Category.COMMS)){
+                console.log(DebugLog.Level.DEBUG, DebugLog.Category.COMMS, "After Skinning");
                 for(TopologicalNode n1 : nodes){
                     String name1 = String.valueOf(n1.getID()).concat(n1.getFrontiers().isEmpty() ? "" : "!");
                     for(TopologicalNode n2 : n1.getListOfNeighbours()){
                         String name2 = String.valueOf(n2.getID()).concat(n2.getFrontiers().isEmpty() ? "" : "!");
                         // output the graph in a format I can use to visualise in mermaid
-                        System.out.println(" ".concat(name1).concat(" --> ").concat(name2));
+                        console.log(DebugLog.Level.DEBUG, DebugLog.Category.COMMS, " ".concat(name1).concat(" --> ").concat(name2));
                     }
                 }
             }
@@ -379,14 +378,14 @@ public class HungarianComms {
             //nodes.removeIf(TopologicalNode::wasThinned);
 
 
-            if(SimConstants.ALEC_DEBUG){
-                System.out.println("After Thinning");
+            if(console.isEnabled(DebugLog.Level.DEBUG, DebugLog.Category.COMMS)){
+                console.log(DebugLog.Level.DEBUG, DebugLog.Category.COMMS, "After Thinning");
                 for(TopologicalNode n1 : nodes){
                     String name1 = String.valueOf(n1.getID()).concat(n1.getFrontiers().isEmpty() ? "" : "!");
                     for(TopologicalNode n2 : n1.getListOfNeighbours()){
                         String name2 = String.valueOf(n2.getID()).concat(n2.getFrontiers().isEmpty() ? "" : "!");
                         // output the graph in a format I can use to visualise in mermaid
-                        System.out.println(" ".concat(name1).concat(" --> ").concat(name2));
+                        console.log(DebugLog.Level.DEBUG, DebugLog.Category.COMMS, " ".concat(name1).concat(" --> ").concat(name2));
                     }
                 }
             }
@@ -395,14 +394,14 @@ public class HungarianComms {
             // However, this is a singly linked tree, we would like it to be doubly linked
             nodes.forEach(TopologicalNode::makeDoublyLinked);
 
-            if(SimConstants.ALEC_DEBUG){
-                System.out.println("After Making Doubly Linked");
+            if(console.isEnabled(DebugLog.Level.DEBUG, DebugLog.Category.COMMS)){
+                console.log(DebugLog.Level.DEBUG, DebugLog.Category.COMMS, "After Making Doubly Linked");
                 for(TopologicalNode n1 : nodes){
                     String name1 = String.valueOf(n1.getID()).concat(n1.getFrontiers().isEmpty() ? "" : "!");
                     for(TopologicalNode n2 : n1.getListOfNeighbours()){
                         String name2 = String.valueOf(n2.getID()).concat(n2.getFrontiers().isEmpty() ? "" : "!");
                         // output the graph in a format I can use to visualise in mermaid
-                        System.out.println(" ".concat(name1).concat(" --> ").concat(name2));
+                        console.log(DebugLog.Level.DEBUG, DebugLog.Category.COMMS, " ".concat(name1).concat(" --> ").concat(name2));
                     }
                 }
             }
@@ -126,7 +126,7 @@ public class LFComms {
             assignIndices();
             begun = true;
         }
-        a.announce("Current location ".concat(a.getLocation().toString()));
+        a.announce("Current location %s", a.getLocation());
 
         switch (getState(a)){
             case Initial:
@@ -254,7 +254,7 @@ public class LFComms {
             return waitingForSuccessors(a);
         } else{
             Point next = a.getNextPathPoint();
-            a.announce("Target = ".concat(predPoint.toString()).concat(", Next Point = ".concat(next.toString())));
+            a.announce("Target = %s, Next Point = %s", predPoint, next);
             return next;
         }
     }
@@ -303,10 +303,8 @@ public class LFComms {
         frontiers.clear();
 
         // Find all the boundaries between the "known" tiles and "unknown tiles"
-        LinkedList<LinkedList<Point>> contours = ContourTracer.findAllContours(leader.getOccupancyGrid());
-        // convert the contours to frontiers, and filter out all those that are invalid
-        for (LinkedList<Point> contour : contours) {
-            Frontier frontier = new Frontier(leader.getX(), leader.getY(), contour);
+        // and convert them to frontiers, filtering out all those that are invalid
+        for (Frontier frontier : ContourTracer.findAllFrontiers(leader.getOccupancyGrid(), leader.getX(), leader.getY())) {
             if(frontier.getArea() >= SimConstants.MIN_FRONTIER_SIZE && !leader.isBadFrontier(frontier) && !failPlanFrontiers.contains(frontier) && !explored.contains(frontier)){
                 frontiers.add(frontier);
             }
@@ -394,11 +392,11 @@ public class LFComms {
             // Step 5)
             // Base case: First path against base station
             if (!checkPathAgainstPoint(indexToAgent.get(0).getCommRange(), baseStation.getLocation(), paths.get(0))) {
-                baseStation.announce("Agent ".concat(String.valueOf(0).concat(") Path is not okay")));
+                baseStation.announce("Agent 0) Path is not okay");
                 goHome();
                 return;
             } else {
-                baseStation.announce("Agent ".concat(String.valueOf(0).concat(") Path is okay")));
+                baseStation.announce("Agent 0) Path is okay");
                 indexToAgent.get(0).setPathInvalid();
                 indexToAgent.get(0).setPath(paths.get(0));
                 setState(indexToAgent.get(0), State.WaitForSuccessors);
@@ -407,7 +405,7 @@ public class LFComms {
             // Recursive case: Each path against the last one
             for (int i = 1; i < paths.size(); i++) {
                 if (checkPaths(baseStation.getCommRange(), paths.get(i - 1), paths.get(i))) {
-                    baseStation.announce("Agent ".concat(String.valueOf(i).concat(") Path is okay")));
+                    baseStation.announce("Agent %s) Path is okay", i);
                     indexToAgent.get(i).setPathInvalid();
                     indexToAgent.get(i).setPath(paths.get(i));
                     setState(indexToAgent.get(i), State.WaitForSuccessors);
@@ -417,7 +415,7 @@ public class LFComms {
                     predId = i - 1;
                     setSuccessors(indexToAgent.get(i), State.MovingToPredecessor);
                     for (int j = i; j < agentToIndex.size(); j++) {
-                        baseStation.announce("Agent ".concat(String.valueOf(j).concat(") Path is not okay")));
+                        baseStation.announce("Agent %s) Path is not okay", j);
                         RealAgent agent = indexToAgent.get(j);
                         setAgentBSPath(agent);
                     }
@@ -457,8 +455,8 @@ public class LFComms {
         List<Point> output = new ArrayList<>(agentToIndex.size());
         Point prev = p.getStartPoint(); // should always be the base station
         baseStation.announce("Finding agent positions");
-        baseStation.announce("Start = ".concat(prev.toString()));
-        baseStation.announce("Goal = ".concat(p.getGoalPoint().toString()));
+        baseStation.announce("Start = %s", prev);
+        baseStation.announce("Goal = %s", p.getGoalPoint());
         int agentI = 0;
         int range = indexToAgent.get(agentI).getCommRange();
 
@@ -489,9 +487,9 @@ public class LFComms {
     **/
     private synchronized boolean checkPaths(int range, Path a, Path b){
         baseStation.announce("");
-        baseStation.announce("Checking ".concat(a.toString()).concat(" against ").concat(b.toString()));
-        baseStation.announce(a.toString().concat(" has ".concat(String.valueOf(a.getPoints().size()).concat(" points"))));
-        baseStation.announce(b.toString().concat(" has ".concat(String.valueOf(b.getPoints().size()).concat(" points"))));
+        baseStation.announce("Checking %s against %s", a, b);
+        baseStation.announce("%s has %s points", a, a.getPoints().size());
+        baseStation.announce("%s has %s points", b, b.getPoints().size());
 
         int aI = 0;
         int bI = 0;
@@ -515,7 +513,7 @@ public class LFComms {
      * Checks if b can be traversed while maintaining connection to point a
      */
     private synchronized boolean checkPathAgainstPoint(int range, Point a, Path b){
-        baseStation.announce("checking ".concat(b.toString()).concat(" against ").concat(a.toString()));
+        baseStation.announce("checking %s against %s", b, a);
         for(Point p : b.getPoints()){
             if(!isPositionOkay(range, a, p)){
                 return false;
@@ -51,6 +51,7 @@ import config.SimConstants;
 import config.SimulatorConfig;
 import environment.TopologicalMap;
 import java.awt.Point;
+import java.util.Random;
 
 /**
  *
@@ -101,12 +102,12 @@ public class RandomExploration extends BasicExploration implements Exploration {
         Point nextStep = null;
         switch (relayType) {
             case Random:
-                if (!agent.comStations.isEmpty() && (Math.random() < simConfig.getComStationDropChance())) {
+                if (!agent.comStations.isEmpty() && (nextDouble() < simConfig.getComStationDropChance())) {
                     state = Agent.ExplorationState.SettingRelay;
                 }
 
                 TeammateAgent relay = agent.findNearComStation(agent.getSpeed());
-                if (agent.comStations.size() < agent.getComStationLimit() && relay != null && Math.random() < simConfig.getComStationTakeChance()) {
+                if (agent.comStations.size() < agent.getComStationLimit() && relay != null && nextDouble() < simConfig.getComStationTakeChance()) {
                     state = Agent.ExplorationState.TakingRelay;
                     nextStep = relay.getLocation();
                 }
@@ -160,4 +161,9 @@ public class RandomExploration extends BasicExploration implements Exploration {
             }
         }
     }
+
+    private double nextDouble() {
+        Random random = agent.getRandom();
+        return (random == null) ? Math.random() : random.nextDouble();
+    }
 }
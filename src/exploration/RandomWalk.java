@@ -61,7 +61,17 @@ public class RandomWalk {
         generator = new Random(SimConstants.RANDOM_SEED);
     }
 
+    /**
+     * Generator for the given agent: its own if the run was given a seed, so neither parallel runs
+     * nor agents stepped in parallel draw from each other's sequence, else the shared one.
+     */
+    public static Random generator(RealAgent agent) {
+        Random random = agent.getRandom();
+        return (random == null) ? generator : random;
+    }
+
     public static Point randomStep(RealAgent agent, double speed) {
+        Random generator = generator(agent);
         int maxcounter = 100;
         int ranVar;
         int newX = agent.getX();
@@ -69,7 +69,6 @@ public class RoleBasedExploration extends BasicExploration implements Exploratio
 
     @Override
     public Point takeStep(int timeElapsed) {
-        agent.flushLog();
         if(timeElapsed == 0){
             return agent.stay();
         }
@@ -79,10 +78,10 @@ public class RoleBasedExploration extends BasicExploration implements Exploratio
             timeSinceLastComm++;
         }
 
-        agent.announce("Rendezvous is ".concat(comm.getRendezvous().toString()));
-        agent.announce("Current Position is ".concat(agent.getLocation().toString()));
+        agent.announce("Rendezvous is %s", comm.getRendezvous());
+        agent.announce("Current Position is %s", agent.getLocation());
         if(agent.isExplorer() && destination != null){
-            agent.announce("Destination is ".concat(destination.toString()));
+            agent.announce("Destination is %s", destination);
         }
 
 
@@ -133,7 +132,7 @@ public class RoleBasedExploration extends BasicExploration implements Exploratio
             chooseFrontier();
 
             if(destination != null && !agent.isMissionComplete()) {
-                agent.announce("New Destination: ".concat(destination.toString()));
+                agent.announce("New Destination: %s", destination);
                 agent.setPath(agent.calculatePath(destination, EXACT_PATH));
                 while(agent.getPath() == null || !agent.getPath().found || !agent.getPath().isValid()){
                     agent.addBadFrontier(frontierTarget);
@@ -141,7 +140,7 @@ public class RoleBasedExploration extends BasicExploration implements Exploratio
                         agentState = State.RunningToRelay;
                         return takeStep(timeElapsed);
                     }
-                    agent.announce("Added to bad frontiers: ".concat(frontierTarget.toString()));
+                    agent.announce("Added to bad frontiers: %s", frontierTarget);
                     destination = null;
                     chooseFrontier();
                     agent.setPath(agent.calculatePath(destination,EXACT_PATH));
@@ -241,12 +240,12 @@ public class RoleBasedExploration extends BasicExploration implements Exploratio
             destination = null;
 
             chooseFrontier();
-            agent.announce("Rendezvous set to ".concat(comm.getRendezvous().toString()));
+            agent.announce("Rendezvous set to %s", comm.getRendezvous());
             agentState = State.Exploring;
             agent.setPath(agent.calculatePath(destination,EXACT_PATH));
             while(agent.getPath() == null || !agent.getPath().found || !agent.getPath().isValid()){
                 agent.addBadFrontier(frontierTarget);
-                agent.announce("Added to bad frontiers: ".concat(frontierTarget.toString()));
+                agent.announce("Added to bad frontiers: %s", frontierTarget);
                 destination = null;
                 chooseFrontier();
                 // TODO: if frontiers == empty, exit
@@ -255,7 +254,7 @@ public class RoleBasedExploration extends BasicExploration implements Exploratio
 
             comm.setRendezvous(agent.getPath().getMidpoint());
             returnTimer = getReturnTimer();
-            agent.announce("New return timer: ".concat(String.valueOf(returnTimer)));
+            agent.announce("New return timer: %s", returnTimer);
         } else{
             agent.setOccupancyGrid(comm.getExplorer().getOccupancyGrid());
             agentState = State.ReturnToBase;
@@ -303,11 +302,8 @@ public class RoleBasedExploration extends BasicExploration implements Exploratio
         frontiers.clear();
 
         // Find all the boundaries between the "known" tiles and "unknown tiles"
-        LinkedList<LinkedList<Point>> contours = ContourTracer.findAllContours(agent.getOccupancyGrid());
-
-        // convert the contours to frontiers, and filter out all those that are invalid
-        for (LinkedList<Point> contour : contours) {
-            Frontier frontier = new Frontier(agent.getX(), agent.getY(), contour);
+        // and convert them to frontiers, filtering out all those that are invalid
+        for (Frontier frontier : ContourTracer.findAllFrontiers(agent.getOccupancyGrid(), agent.getX(), agent.getY())) {
             if(frontier.getArea() >= SimConstants.MIN_FRONTIER_SIZE && !agent.isBadFrontier(frontier) && frontier != frontierTarget){
                 frontiers.add(frontier);
             }
@@ -44,15 +44,14 @@
 
 package exploration;
 
+import Logging.AgentLog;
 import agents.Agent.AgentState;
 import config.RobotConfig;
 import java.awt.Point;
-import java.io.BufferedReader;
-import java.io.File;
-import java.io.FileReader;
-import java.io.IOException;
 
 /**
+ * Replays an agent log. The file is parsed once (see AgentLog) and every lookup after that is an
+ * array access, so replaying T cycles no longer re-reads the file T times.
  *
  * @author julh
  */
@@ -60,149 +59,86 @@ public class RunFromLog implements Exploration {
 
     String fileName;
     int agentNo;
+    private AgentLog log;
+    private boolean opened;
 
     public RunFromLog(String fileName, int agentNo) {
         this.fileName = fileName;
         this.agentNo = agentNo;
     }
 
-    @Override
-    public Point takeStep(int time) {
-        Point nextStep = new Point(0, 0);
-
-        File file = new File(fileName);
+    private AgentLog log() {
+        if (!opened) {
+            log = AgentLog.open(fileName);
+            opened = true;
+        }
+        return log;
+    }
 
-        if (file.exists()) {
-            try (BufferedReader inFile = new BufferedReader(new FileReader(file))) {
-                for (int i = 0; i < time; i++) {
-                    inFile.readLine();
-                }
+    /**
+     * @return true if there is a row for this time; false if it is past the end of the log, or the
+     * row could not be parsed (reported on the console)
+     */
+    private boolean hasRow(AgentLog log, int time) {
+        if (log.isCorrupt(time)) {
+            System.out.println("RunFromLog: Error -- incorrect data format in file " + fileName);
+            return false;
+        }
+        return log.has(time, agentNo);
+    }
 
-                String tokens[] = inFile.readLine().split("\\s");
-                nextStep.x = Integer.parseInt(tokens[(agentNo - 1) * 6 + 1]);
-                nextStep.y = Integer.parseInt(tokens[(agentNo - 1) * 6 + 2]);
-            } catch (NullPointerException e) {
-                // No more data, run finished.
-                return null;
-            } catch (IOException e) {
-                System.out.println("RunFromLog: Error -- could not read data from " + fileName);
-            } catch (NumberFormatException e) {
-                System.out.println("RunFromLog: Error -- incorrect data format in file " + fileName);
-            }
+    @Override
+    public Point takeStep(int time) {
+        AgentLog log = log();
+        if (log == null) {
+            return new Point(0, 0);
+        }
+        if (time >= log.getRows()) {
+            // No more data, run finished.
+            return null;
         }
-        return nextStep;
+        if (!hasRow(log, time)) {
+            return new Point(0, 0);
+        }
+        return new Point(log.getX(time, agentNo), log.getY(time, agentNo));
     }
 
     public Point getGoal(int time) {
-        Point nextStep = new Point(0, 0);
-
-        File file = new File(fileName);
-
-        if (file.exists()) {
-            try (BufferedReader inFile = new BufferedReader(new FileReader(file))) {
-                for (int i = 0; i < time; i++) {
-                    inFile.readLine();
-                }
-
-                String tokens[] = inFile.readLine().split("\\s");
-                nextStep.x = (int) Double.parseDouble(tokens[(agentNo - 1) * 6 + 3]);
-                nextStep.y = (int) Double.parseDouble(tokens[(agentNo - 1) * 6 + 4]);
-            } catch (NullPointerException e) {
-                // No more data, run finished.
-                return null;
-            } catch (IOException e) {
-                System.out.println("RunFromLog: Error -- could not read data from " + fileName);
-            } catch (NumberFormatException e) {
-                System.out.println("RunFromLog: Error -- incorrect data format in file " + fileName);
-            }
+        AgentLog log = log();
+        if (log == null) {
+            return new Point(0, 0);
+        }
+        if (time >= log.getRows()) {
+            return null;
+        }
+        if (!hasRow(log, time)) {
+            return new Point(0, 0);
         }
-        return nextStep;
+        return new Point(log.getGoalX(time, agentNo), log.getGoalY(time, agentNo));
     }
 
     public AgentState getState(int time) {
-        /*Point nextStep = new Point(0, 0);
-
-        File file = new File(fileName);
-
-        if (file.exists()) {
-            try (BufferedReader inFile = new BufferedReader(new FileReader(file))) {
-                for (int i = 0; i < time; i++) {
-                    inFile.readLine();
-                }
-
-                String tokens[] = inFile.readLine().split("\\s");
-                String state = tokens[(agentNo - 1) * 6 + 6];
-                if (state.equals("GetInfoFromChild")) {
-                    return AgentState.GetInfoFromChild;
-                }
-                if (state.equals("Explore")) {
-                    return AgentState.Explore;
-                }
-                if (state.equals("GiveParentInfo")) {
-                    return AgentState.GiveParentInfo;
-                }
-                if (state.equals("GoToChild")) {
-                    return AgentState.GoToChild;
-                }
-                if (state.equals("Initial")) {
-                    return AgentState.Initial;
-                }
-                if (state.equals("OutOfService")) {
-                    return AgentState.OutOfService;
-                }
-                if (state.equals("ReturnToParent")) {
-                    return AgentState.ReturnToBaseStation;
-                }
-                if (state.equals("WaitForChild")) {
-                    return AgentState.WaitForChild;
-                }
-                if (state.equals("WaitForParent")) {
-                    return AgentState.WaitForParent;
-                }
-            } catch (NullPointerException e) {
-                // No more data, run finished.
-                return null;
-            } catch (IOException e) {
-                System.out.println("RunFromLog: Error -- could not read data from " + fileName);
-            } catch (NumberFormatException e) {
-                System.out.println("RunFromLog: Error -- incorrect data format in file " + fileName);
-            }
-        }*/
-        return AgentState.Initial;
+        AgentLog log = log();
+        if (log == null || !log.has(time, agentNo)) {
+            return AgentState.Initial;
+        }
+        AgentState state = log.getState(time, agentNo);
+        return (state == null) ? AgentState.Initial : state;
     }
 
     public RobotConfig.roletype getRole(int time) {
-        Point nextStep = new Point(0, 0);
-
-        File file = new File(fileName);
-
-        if (file.exists()) {
-            try (BufferedReader inFile = new BufferedReader(new FileReader(file))) {
-                for (int i = 0; i < time; i++) {
-                    inFile.readLine();
-                }
-
-                String tokens[] = inFile.readLine().split("\\s");
-                String role = tokens[(agentNo - 1) * 6 + 5];
-                if (role.equals("BaseStation")) {
-                    return RobotConfig.roletype.BaseStation;
-                }
-                if (role.equals("Explorer")) {
-                    return RobotConfig.roletype.Explorer;
-                }
-                if (role.equals("Relay")) {
-                    return RobotConfig.roletype.Relay;
-                }
-            } catch (NullPointerException e) {
-                // No more data, run finished.
-                return null;
-            } catch (IOException e) {
-                System.out.println("RunFromLog: Error -- could not read data from " + fileName);
-            } catch (NumberFormatException e) {
-                System.out.println("RunFromLog: Error -- incorrect data format in file " + fileName);
-            }
+        AgentLog log = log();
+        if (log == null) {
+            return RobotConfig.roletype.BaseStation;
+        }
+        if (time >= log.getRows()) {
+            return null;
+        }
+        if (!hasRow(log, time)) {
+            return RobotConfig.roletype.BaseStation;
         }
-        return RobotConfig.roletype.BaseStation;
+        RobotConfig.roletype role = log.getRole(time, agentNo);
+        return (role == null) ? RobotConfig.roletype.BaseStation : role;
     }
 
     @Override
@@ -49,12 +49,17 @@ import agents.TeammateAgent;
 import communication.CommLink;
 import communication.PropModel1;
 import config.SimConstants;
+import environment.CommLinkCache;
 import environment.Frontier;
+import environment.IntArrayList;
 import environment.OccupancyGrid;
+import environment.SpatialIndex;
 import java.awt.Point;
+import java.util.ArrayList;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.PriorityQueue;
+import java.util.stream.IntStream;
 import org.apache.commons.math3.random.SobolSequenceGenerator;
 import path.Path;
 
@@ -70,6 +75,8 @@ public class MultiPointRendezvousStrategy implements IRendezvousStrategy {
 
     private List<NearRVPoint> generatedPoints;
     private List<CommLink> connectionsToBase;
+    // links between sample points of earlier replans
+    private final CommLinkCache commLinkCache = SimConstants.COMM_LINK_CACHE ? new CommLinkCache() : null;
 
     public MultiPointRendezvousStrategy(RealAgent agent, MultiPointRendezvousStrategySettings settings) {
         this.agent = agent;
@@ -118,7 +125,7 @@ public class MultiPointRendezvousStrategy implements IRendezvousStrategy {
             generatedPoints.add(relayRVPoint);
 
             System.out.print(SimConstants.INDENT + "Finding commlinks ... ");
-            connectionsToBase = FindCommLinks(generatedPoints, agent);
+            connectionsToBase = FindCommLinks(generatedPoints, indexPoints(generatedPoints, agent), agent, commLinkCache);
             int pathsCalculated = 0;
 
             double minDistToExplorer = Double.MAX_VALUE;
@@ -126,7 +133,7 @@ public class MultiPointRendezvousStrategy implements IRendezvousStrategy {
             for (CommLink link : relayRVPoint.commLinks) {
                 NearRVPoint connectedPoint = link.getRemotePoint();
 
-                double dist = agent.calculatePath(connectedPoint.getLocation(), agent.getLocation(), false, false).getLength();
+                double dist = Math.max(0, agent.calculatePathLength(agent.getLocation(), connectedPoint.getLocation()));
                 if (dist < minDistToExplorer) {
                     bestRVPoint = connectedPoint;
                     minDistToExplorer = dist;
@@ -409,10 +416,10 @@ public class MultiPointRendezvousStrategy implements IRendezvousStrategy {
             parentPoint = childPoint;
         }
 
-        double timeRelayToBase = agent.calculatePath(relay.getLocation(), basePoint, false, false).getLength();
-        double timeBaseToRV = agent.calculatePath(basePoint, parentPoint, false, false).getLength();
-        double timeExpToFrontier = agent.calculatePath(agent.getLocation(), frontierCentre, false, false).getLength();
-        double timeFrontierToRV = agent.calculatePath(frontierCentre, childPoint, false, false).getLength();
+        double timeRelayToBase = Math.max(0, agent.calculatePathLength(basePoint, relay.getLocation()));
+        double timeBaseToRV = Math.max(0, agent.calculatePathLength(basePoint, parentPoint));
+        double timeExpToFrontier = Math.max(0, agent.calculatePathLength(frontierCentre, agent.getLocation()));
+        double timeFrontierToRV = Math.max(0, agent.calculatePathLength(frontierCentre, childPoint));
 
         double timeToMeetingR = timeRelayToBase + timeBaseToRV;
         timeToMeetingR = timeElapsed + timeToMeetingR / SimConstants.DEFAULT_SPEED;
@@ -482,38 +489,105 @@ public class MultiPointRendezvousStrategy implements IRendezvousStrategy {
     //This method finds comm connections between generatedPoints, and returns the subset of points within comm range
     //of base station
     public static List<CommLink> FindCommLinks(List<NearRVPoint> generatedPoints, RealAgent ag) {
+        return FindCommLinks(generatedPoints, indexPoints(generatedPoints, ag), ag);
+    }
+
+    // buckets as large as the maximum comm range, so a range query looks at 3x3 buckets
+    private static SpatialIndex<NearRVPoint> indexPoints(List<NearRVPoint> points, RealAgent ag) {
+        int cellSize = (int) Math.max(1, Math.ceil(PropModel1.getMaxRange(ag.getCommRange())));
+        return new SpatialIndex<NearRVPoint>(points, cellSize);
+    }
+
+    /**
+     * Same as {@link #FindCommLinks(List, RealAgent)}, with an index of generatedPoints to look up
+     * the points in range of each point instead of checking all pairs.
+     */
+    public static List<CommLink> FindCommLinks(List<NearRVPoint> generatedPoints, SpatialIndex<NearRVPoint> pointIndex,
+            RealAgent ag) {
+        return FindCommLinks(generatedPoints, pointIndex, ag, null);
+    }
+
+    /**
+     * Same as {@link #FindCommLinks(List, SpatialIndex, RealAgent)}, taking the links the map has
+     * not changed under from the cache (if not null). The remaining ones are checked in parallel.
+     */
+    public static List<CommLink> FindCommLinks(List<NearRVPoint> generatedPoints, SpatialIndex<NearRVPoint> pointIndex,
+            RealAgent ag, CommLinkCache cache) {
         //LinkedList<CommLink> commLinks = new LinkedList<CommLink>();
         LinkedList<CommLink> connsToBase = new LinkedList<CommLink>();
         NearRVPoint base = new NearRVPoint(ag.getTeammate(SimConstants.BASE_STATION_TEAMMATE_ID).getX(),
                 ag.getTeammate(SimConstants.BASE_STATION_TEAMMATE_ID).getY());
+        double maxRange = PropModel1.getMaxRange(ag.getCommRange());
+        OccupancyGrid grid = ag.getOccupancyGrid();
+        int commRange = ag.getCommRange();
+        if (cache != null) {
+            cache.invalidate(grid, commRange);
+        }
 
+        // pairs of points in range, in the order of generatedPoints
+        List<NearRVPoint> from = new ArrayList<>();
+        List<NearRVPoint> to = new ArrayList<>();
         for (NearRVPoint p1 : generatedPoints) {
-            for (NearRVPoint p2 : generatedPoints) {
-                if (p1.distance(p2) <= PropModel1.getMaxRange(ag.getCommRange())) {
-                    //TODO: range should be min of ours and our teammate's
-                    if (PropModel1.isConnected(ag.getOccupancyGrid(), ag.getCommRange(), (Point) p1, (Point) p2)) {
-                        //check if connection is line of sight?
-                        int numWalls = ag.getOccupancyGrid().numObstaclesOnLine(p1.x, p1.y, p2.x, p2.y);
-
-                        CommLink link = new CommLink(p1, p2);
-                        link.numObstacles = numWalls;
-                        //commLinks.add(link);
-                        p1.commLinks.add(link);
-                        if (p1.equals(base)) {
-                            if (SimConstants.DEBUG_OUTPUT) {
-                                System.out.println(SimConstants.INDENT + "Base is " + p1 + ", adding connected point " + p2);
-                            }
-                            connsToBase.add(link);
-                        }
-                        //commLinks.add(new CommLink(p2, p1, null, null));
+            for (NearRVPoint p2 : pointIndex.withinDistance(p1, maxRange)) {
+                from.add(p1);
+                to.add(p2);
+            }
+        }
+        int[] walls = new int[from.size()];
+        IntArrayList unknown = new IntArrayList();
+        for (int k = 0; k < walls.length; k++) {
+            walls[k] = (cache != null) ? cache.get(from.get(k), to.get(k)) : CommLinkCache.UNKNOWN;
+            if (walls[k] == CommLinkCache.UNKNOWN) {
+                unknown.add(k);
+            }
+        }
+        IntStream checks = IntStream.range(0, unknown.size());
+        if (SimConstants.PARALLEL_COMM_LINKS) {
+            checks = checks.parallel();
+        }
+        checks.forEach(u -> {
+            int k = unknown.get(u);
+            walls[k] = commLinkWalls(grid, commRange, from.get(k), to.get(k));
+        });
+        if (cache != null) {
+            for (int u = 0; u < unknown.size(); u++) {
+                int k = unknown.get(u);
+                cache.put(from.get(k), to.get(k), walls[k]);
+            }
+            cache.endPass();
+        }
+
+        for (int k = 0; k < walls.length; k++) {
+            if (walls[k] != CommLinkCache.NOT_CONNECTED) {
+                NearRVPoint p1 = from.get(k);
+                NearRVPoint p2 = to.get(k);
+                CommLink link = new CommLink(p1, p2);
+                link.numObstacles = walls[k];
+                //commLinks.add(link);
+                p1.commLinks.add(link);
+                if (p1.equals(base)) {
+                    if (SimConstants.DEBUG_OUTPUT) {
+                        System.out.println(SimConstants.INDENT + "Base is " + p1 + ", adding connected point " + p2);
                     }
+                    connsToBase.add(link);
                 }
+                //commLinks.add(new CommLink(p2, p1, null, null));
             }
         }
 
         return connsToBase;
     }
 
+    // walls on the line from p1 to p2, or CommLinkCache.NOT_CONNECTED
+    private static int commLinkWalls(OccupancyGrid grid, int commRange, Point p1, Point p2) {
+        //TODO: range should be min of ours and our teammate's
+        if (!PropModel1.isConnected(grid, commRange, p1, p2)) {
+            return CommLinkCache.NOT_CONNECTED;
+        }
+        //check if connection is line of sight?
+        return grid.numObstaclesOnLine(p1.x, p1.y, p2.x, p2.y);
+    }
+
     private Point getExplorerFrontier() {
         Point frontierCentre = agent.getLocation();
         if (agent.getFrontier() != null) {
@@ -528,7 +602,7 @@ public class MultiPointRendezvousStrategy implements IRendezvousStrategy {
         return frontierCentre;
     }
 
-    private PriorityQueue<NearRVPoint> GetPointsWithinDistOfFrontier(List<NearRVPoint> generatedPoints, double maxDist) {
+    private PriorityQueue<NearRVPoint> GetPointsWithinDistOfFrontier(SpatialIndex<NearRVPoint> pointIndex, double maxDist) {
         PriorityQueue<NearRVPoint> pointsNearFrontier = new PriorityQueue<NearRVPoint>();
 
         Point frontierCentre = getExplorerFrontier();
@@ -537,11 +611,8 @@ public class MultiPointRendezvousStrategy implements IRendezvousStrategy {
             System.out.println(agent + " frontierCentre is " + frontierCentre);
         }
         // create priority queue of all potential rvpoints within given straight line distance
-        for (NearRVPoint p : generatedPoints) {
+        for (NearRVPoint p : pointIndex.withinDistance(frontierCentre, maxDist)) {
             double dist = p.distance(frontierCentre);
-            if (dist > maxDist) {
-                continue;
-            }
             p.setDistanceToFrontier(dist);
             pointsNearFrontier.add(p);
         }
@@ -588,10 +659,9 @@ public class MultiPointRendezvousStrategy implements IRendezvousStrategy {
 
             for (NearRVPoint basePoint : pointsConnectedToBase) {
                 pathsCalculated++;
-                Path pathToBase = ag.calculatePath(origPoint, basePoint, false, false);
-                double pathLen = Double.MAX_VALUE;
-                if (pathToBase.found) {
-                    pathLen = pathToBase.getLength();
+                double pathLen = ag.calculatePathLength(origPoint, basePoint);
+                if (pathLen < 0) {
+                    pathLen = Double.MAX_VALUE;
                 }
                 if (pathLen < origPoint.distanceToParent) {
                     origPoint.distanceToParent = pathLen;
@@ -632,7 +702,7 @@ public class MultiPointRendezvousStrategy implements IRendezvousStrategy {
         generatedPoints.add(explorerRVPoint);
 
         System.out.print(SimConstants.INDENT + "Finding commlinks ... ");
-        connectionsToBase = FindCommLinks(generatedPoints, agent);
+        connectionsToBase = FindCommLinks(generatedPoints, indexPoints(generatedPoints, agent), agent, commLinkCache);
         if (SimConstants.DEBUG_OUTPUT) {
             System.out.println(agent + " connectionsToBase count is " + connectionsToBase.size());
         }
@@ -663,8 +733,8 @@ public class MultiPointRendezvousStrategy implements IRendezvousStrategy {
             if (!f.equals(agent.getFrontier())) { //potential frontier for the relay to explore
                 //can relay even get to frontier in time, if the meeting point was at frontier centre?
                 double timeToFrontier = 0;
-                timeToFrontier += agent.calculatePath(relay.getLocation(), currentRelayBasePoint, false, false).getLength();
-                timeToFrontier += agent.calculatePath(currentRelayBasePoint, f.getCentre(), false, false).getLength();
+                timeToFrontier += Math.max(0, agent.calculatePathLength(currentRelayBasePoint, relay.getLocation()));
+                timeToFrontier += Math.max(0, agent.calculatePathLength(currentRelayBasePoint, f.getCentre()));
                 double hereToFrontier = timeToFrontier;
                 double delta = explorerPoint.distance(f.getCentre()) - agent.getCommRange();
                 if (delta < 0) {
@@ -690,11 +760,11 @@ public class MultiPointRendezvousStrategy implements IRendezvousStrategy {
                 for (CommLink link : explorerRVPoint.commLinks) {
                     NearRVPoint connectedPoint = link.getRemotePoint();
 
-                    Path frontierToMeeting = agent.calculatePath(f.getCentre(), connectedPoint.getLocation(), false, false);
-                    double totalTime = (hereToFrontier + frontierToMeeting.getLength()) / agent.getSpeed();
+                    double frontierToMeeting = agent.calculatePathLength(f.getCentre(), connectedPoint.getLocation());
+                    double totalTime = (hereToFrontier + frontierToMeeting) / agent.getSpeed();
                     totalTime += agent.getTimeElapsed();
 
-                    if (!frontierToMeeting.found) {
+                    if (frontierToMeeting < 0) {
                         if (SimConstants.DEBUG_OUTPUT) {
                             System.out.println("Skipping frontier test2 at " + f.getCentre() + "; path not found! (between " + f.getCentre() + " and " + connectedPoint.getLocation());
                         }
@@ -814,7 +884,7 @@ public class MultiPointRendezvousStrategy implements IRendezvousStrategy {
         generatedPoints.add(explorerRVPoint);
 
         System.out.print(SimConstants.INDENT + "Finding commlinks ... ");
-        connectionsToBase = FindCommLinks(generatedPoints, agent);
+        connectionsToBase = FindCommLinks(generatedPoints, indexPoints(generatedPoints, agent), agent, commLinkCache);
         if (SimConstants.DEBUG_OUTPUT) {
             System.out.println(agent + " connectionsToBase count is " + connectionsToBase.size());
         }
@@ -893,8 +963,9 @@ public class MultiPointRendezvousStrategy implements IRendezvousStrategy {
 
         TeammateAgent relay = agent.getParentTeammate();
         generatedPoints = SampleEnvironmentPoints(agent, settings.SamplePointDensity);
-        connectionsToBase = FindCommLinks(generatedPoints, agent);
-        PriorityQueue<NearRVPoint> pointsNearFrontier = GetPointsWithinDistOfFrontier(generatedPoints, 100);
+        SpatialIndex<NearRVPoint> pointIndex = indexPoints(generatedPoints, agent);
+        connectionsToBase = FindCommLinks(generatedPoints, pointIndex, agent, commLinkCache);
+        PriorityQueue<NearRVPoint> pointsNearFrontier = GetPointsWithinDistOfFrontier(pointIndex, 100);
 
         int pathsCalculated = 0;
 
@@ -922,10 +993,9 @@ public class MultiPointRendezvousStrategy implements IRendezvousStrategy {
             //where explorer will be at the time, to calculate regret accurately.
 
             //For now, just calculate accurate distance to next frontier:
-            Path pathToFrontier = agent.calculatePath(p, getExplorerFrontier(), false, false);
-            double distToFrontier = Double.MAX_VALUE;
-            if (pathToFrontier.found) {
-                distToFrontier = pathToFrontier.getLength();
+            double distToFrontier = agent.calculatePathLength(getExplorerFrontier(), p);
+            if (distToFrontier < 0) {
+                distToFrontier = Double.MAX_VALUE;
             }
             pathsCalculated++;
             p.setDistanceToFrontier(distToFrontier);
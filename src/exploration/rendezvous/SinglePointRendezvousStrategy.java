@@ -193,9 +193,8 @@ public class SinglePointRendezvousStrategy implements IRendezvousStrategy {
         for (int i = 0; i < POINTS_NEAR_FRONTIER_TO_CONSIDER; i++) {
             if (pts.size() > 0) {
                 tempPoint = pts.remove();
-                Path p = agent.calculatePath(tempPoint, frontierCentre, false, false);
-                if (p.found) {
-                    pathCost = p.getLength();
+                pathCost = agent.calculatePathLength(frontierCentre, tempPoint);
+                if (pathCost >= 0) {
                     degree = Skeleton.neighborTraversal(skeletonGrid, tempPoint.x, tempPoint.y);
                     prunedNearRvPts.add(new NearRVPoint(tempPoint.x, tempPoint.y, UtilityDegree(pathCost, degree)));
                 }
@@ -213,15 +212,15 @@ public class SinglePointRendezvousStrategy implements IRendezvousStrategy {
         RendezvousAgentData rvd = agent.getRendezvousAgentData();
         Point baseLoc = agent.getTeammate(SimConstants.BASE_STATION_TEAMMATE_ID).getLocation();
         Point relayLoc = agent.getParentTeammate().getLocation();
-        Path pathParentToCS = agent.calculatePath(relayLoc, baseLoc, false, false);
-        Path pathCSToRendezvous = agent.calculatePath(baseLoc, rvd.getParentRendezvous().getParentLocation(), false, false);
+        double lengthParentToCS = Math.max(0, agent.calculatePathLength(baseLoc, relayLoc));
+        double lengthCSToRendezvous = Math.max(0, agent.calculatePathLength(baseLoc, rvd.getParentRendezvous().getParentLocation()));
         //Couldn't find pathCSToRV - approximate
-        if ((pathCSToRendezvous.getLength() == 0)
+        if ((lengthCSToRendezvous == 0)
                 && (!rvd.getParentRendezvous().getParentLocation().equals(agent.getTeammate(SimConstants.BASE_STATION_TEAMMATE_ID).getLocation()))) {
             //let's at least set it to a rough approximation - better than setting it to 0!
-            pathCSToRendezvous = pathParentToCS;
+            lengthCSToRendezvous = lengthParentToCS;
         }
-        double totalPathLength = pathParentToCS.getLength() + pathCSToRendezvous.getLength();
+        double totalPathLength = lengthParentToCS + lengthCSToRendezvous;
         if (settings.useSimpleCircleCommModelForBaseRange) {
             totalPathLength = totalPathLength - 2 * Math.min(agent.getParentTeammate().getCommRange(),
                     agent.getTeammate(SimConstants.BASE_STATION_TEAMMATE_ID).getCommRange());
@@ -236,9 +235,9 @@ public class SinglePointRendezvousStrategy implements IRendezvousStrategy {
                 frontierLoc = agent.getLocation();
             }
             if (frontierLoc != null) {
-                Path here2Frontier = agent.calculatePath(agent.getLocation(), frontierLoc, false, false);
-                Path front2rv = agent.calculatePath(frontierLoc, rvd.getParentRendezvous().getChildLocation(), false, false);
-                int expTime = (int) (here2Frontier.getLength() + front2rv.getLength()) / SimConstants.DEFAULT_SPEED;
+                double here2Frontier = Math.max(0, agent.calculatePathLength(frontierLoc, agent.getLocation()));
+                double front2rv = Math.max(0, agent.calculatePathLength(frontierLoc, rvd.getParentRendezvous().getChildLocation()));
+                int expTime = (int) (here2Frontier + front2rv) / SimConstants.DEFAULT_SPEED;
                 expTime += SimConstants.FRONTIER_MIN_EXPLORE_TIME;
                 //rvd.setTimeUntilRendezvous(Math.max(rvd.getTimeUntilRendezvous(), expTime));
             }
@@ -0,0 +1,302 @@
+/*
+ *     Copyright 2010, 2015, 2017 Julian de Hoog (julian@dehoog.ca),
+ *     Victor Spirin (victor.spirin@cs.ox.ac.uk),
+ *     Christian Clausen (christian.clausen@uni-bremen.de
+ *
+ *     This file is part of MRESim 2.3, a simulator for testing the behaviour
+ *     of multiple robots exploring unknown environments.
+ *
+ *     If you use MRESim, I would appreciate an acknowledgement and/or a citation
+ *     of our papers:
+ *
+ *     @inproceedings{deHoog2009,
+ *         title = "Role-Based Autonomous Multi-Robot Exploration",
+ *         author = "Julian de Hoog, Stephen Cameron and Arnoud Visser",
+ *         year = "2009",
+ *         booktitle =
+ *     "International Conference on Advanced Cognitive Technologies and Applications (COGNITIVE)",
+ *         location = "Athens, Greece",
+ *         month = "November",
+ *     }
+ *
+ *     @incollection{spirin2015mresim,
+ *       title={MRESim, a Multi-robot Exploration Simulator for the Rescue Simulation League},
+ *       author={Spirin, Victor and de Hoog, Julian and Visser, Arnoud and Cameron, Stephen},
+ *       booktitle={RoboCup 2014: Robot World Cup XVIII},
+ *       pages={106--117},
+ *       year={2015},
+ *       publisher={Springer}
+ *     }
+ *
+ *     MRESim is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     MRESim is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License along with MRESim.
+ *     If not, see <http://www.gnu.org/licenses/>.
+ */
+package path;
+
+import config.SimConstants;
+import environment.OccupancyGrid;
+import java.awt.Point;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Grid-indexed A* search used by Path.calculateAlecAStarPath. Scores, parents and the open set
+ * are kept in primitive arrays indexed by y * width + x, and every search bumps a generation
+ * stamp instead of clearing them, so an engine can be reused for any number of searches on grids
+ * of the same size.
+ *
+ * The search expands exactly the same nodes in the same order as the map-based implementation:
+ * the open set is ordered by f-score, then by distance from (0,0), then by the order in which the
+ * nodes were (re-)inserted, which is how the old list scan resolved complete ties.
+ *
+ * Engines are not thread-safe, use {@link #get()} to obtain the one owned by the current thread.
+ */
+final class GridAStar {
+
+    private static final ThreadLocal<GridAStar> ENGINES = new ThreadLocal<GridAStar>() {
+        @Override
+        protected GridAStar initialValue() {
+            return new GridAStar();
+        }
+    };
+
+    private int width;
+    private int height;
+    private int generation;
+
+    private int[] stamp;        // generation in which the cell was last touched
+    private double[] gScore;
+    private double[] fScore;
+    private double[] tieBreak;  // distance from (0,0)
+    private int[] parent;
+    private long[] insertOrder;
+    private int[] heapIndex;    // position in heap, -1 if not in the open set
+
+    private int[] heap;
+    private int heapSize;
+    private long insertCounter;
+
+    private GridAStar() {
+        width = -1;
+        height = -1;
+    }
+
+    static GridAStar get() {
+        return ENGINES.get();
+    }
+
+    /**
+     * Searches a path from start to goal on the lattice of the given step size.
+     *
+     * @param grid occupancy grid of the agent
+     * @param start start point, must be inside the grid
+     * @param goal goal point
+     * @param stepSize lattice spacing of the search
+     * @param pathPoints receives the path from start to goal if one is found
+     * @return true if the goal was reached
+     */
+    boolean search(OccupancyGrid grid, Point start, Point goal, int stepSize, List<Point> pathPoints) {
+        prepare(grid.width, grid.height);
+
+        int startIndex = touch(start.x, start.y);
+        gScore[startIndex] = 0.0;
+        fScore[startIndex] = start.distance(goal);
+        push(startIndex);
+
+        boolean goalInGrid = grid.locationExists(goal.x, goal.y);
+        int goalIndex = goalInGrid ? goal.y * width + goal.x : -1;
+        Point neighbour = new Point();
+
+        while (heapSize > 0) {
+            int current = pop();
+            if (current == goalIndex) {
+                reconstruct(start, startIndex, goalIndex, pathPoints);
+                return true;
+            }
+
+            int cx = current % width;
+            int cy = current / width;
+            Point currentPoint = new Point(cx, cy);
+
+            for (int nx = cx - stepSize; nx <= cx + stepSize; nx += stepSize) {
+                for (int ny = cy - stepSize; ny <= cy + stepSize; ny += stepSize) {
+                    if (nx == cx && ny == cy) {
+                        continue;
+                    }
+                    if (!grid.locationExists(nx, ny) || !grid.freeSpaceAt(nx, ny)) {
+                        continue;
+                    }
+                    neighbour.setLocation(nx, ny);
+                    if (!grid.directLinePossible(currentPoint, neighbour, true, false)) {
+                        continue;
+                    }
+                    if (stepSize == 1) {
+                        int dx = nx - cx;
+                        int dy = ny - cy;
+                        if (dx != 0 && dy != 0 && !(grid.freeSpaceAt(cx + dx, cy) && grid.freeSpaceAt(cx, cy + dy))) {
+                            continue;
+                        }
+                    }
+
+                    double tempGScore = gScore[current] + Point.distance(cx, cy, nx, ny);
+                    if (SimConstants.AVOID_WALLS
+                            && grid.obstacleWithinDistance(nx, ny, SimConstants.AVOID_WALL_DISTANCE)
+                            && start.distance(nx, ny) > SimConstants.AVOID_WALL_DISTANCE
+                            && goal.distance(nx, ny) > SimConstants.AVOID_WALL_DISTANCE) {
+                        tempGScore += Double.MAX_VALUE / 2;
+                    }
+
+                    int n = touch(nx, ny);
+                    if (tempGScore < gScore[n]) {
+                        parent[n] = current;
+                        gScore[n] = tempGScore;
+                        fScore[n] = tempGScore + goal.distance(nx, ny);
+                        if (heapIndex[n] < 0) {
+                            push(n);
+                        } else {
+                            siftUp(heapIndex[n]);
+                        }
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    private void reconstruct(Point start, int startIndex, int goalIndex, List<Point> pathPoints) {
+        int length = 1;
+        for (int c = goalIndex; c != startIndex; c = parent[c]) {
+            length++;
+        }
+        Point[] points = new Point[length];
+        points[0] = start;
+        int i = length - 1;
+        for (int c = goalIndex; c != startIndex; c = parent[c]) {
+            points[i--] = new Point(c % width, c / width);
+        }
+        for (Point p : points) {
+            pathPoints.add(p);
+        }
+    }
+
+    private void prepare(int newWidth, int newHeight) {
+        if (newWidth != width || newHeight != height) {
+            width = newWidth;
+            height = newHeight;
+            int cells = width * height;
+            stamp = new int[cells];
+            gScore = new double[cells];
+            fScore = new double[cells];
+            tieBreak = new double[cells];
+            parent = new int[cells];
+            insertOrder = new long[cells];
+            heapIndex = new int[cells];
+            heap = new int[64];
+            generation = 0;
+        }
+        generation++;
+        if (generation == 0) {
+            // stamps wrapped around, start from a clean slate
+            Arrays.fill(stamp, 0);
+            generation = 1;
+        }
+        heapSize = 0;
+        insertCounter = 0;
+    }
+
+    /**
+     * Makes sure the cell is initialised for the current search and returns its index.
+     */
+    private int touch(int x, int y) {
+        int index = y * width + x;
+        if (stamp[index] != generation) {
+            stamp[index] = generation;
+            gScore[index] = Double.MAX_VALUE;
+            fScore[index] = Double.MAX_VALUE;
+            tieBreak[index] = Math.hypot(x, y);
+            parent[index] = -1;
+            heapIndex[index] = -1;
+        }
+        return index;
+    }
+
+    private boolean less(int a, int b) {
+        int cmp = Double.compare(fScore[a], fScore[b]);
+        if (cmp == 0) {
+            cmp = Double.compare(tieBreak[a], tieBreak[b]);
+        }
+        if (cmp == 0) {
+            return insertOrder[a] < insertOrder[b];
+        }
+        return cmp < 0;
+    }
+
+    private void push(int cell) {
+        if (heapSize == heap.length) {
+            heap = Arrays.copyOf(heap, heap.length * 2);
+        }
+        insertOrder[cell] = insertCounter++;
+        heap[heapSize] = cell;
+        heapIndex[cell] = heapSize;
+        heapSize++;
+        siftUp(heapSize - 1);
+    }
+
+    private int pop() {
+        int top = heap[0];
+        heapIndex[top] = -1;
+        heapSize--;
+        if (heapSize > 0) {
+            heap[0] = heap[heapSize];
+            heapIndex[heap[0]] = 0;
+            siftDown(0);
+        }
+        return top;
+    }
+
+    private void siftUp(int pos) {
+        int cell = heap[pos];
+        while (pos > 0) {
+            int parentPos = (pos - 1) >>> 1;
+            int parentCell = heap[parentPos];
+            if (!less(cell, parentCell)) {
+                break;
+            }
+            heap[pos] = parentCell;
+            heapIndex[parentCell] = pos;
+            pos = parentPos;
+        }
+        heap[pos] = cell;
+        heapIndex[cell] = pos;
+    }
+
+    private void siftDown(int pos) {
+        int cell = heap[pos];
+        int half = heapSize >>> 1;
+        while (pos < half) {
+            int child = 2 * pos + 1;
+            int right = child + 1;
+            if (right < heapSize && less(heap[right], heap[child])) {
+                child = right;
+            }
+            if (!less(heap[child], cell)) {
+                break;
+            }
+            heap[pos] = heap[child];
+            heapIndex[heap[pos]] = pos;
+            pos = child;
+        }
+        heap[pos] = cell;
+        heapIndex[cell] = pos;
+    }
+}
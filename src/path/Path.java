@@ -391,6 +391,18 @@ public class Path {
 
         int stepSize = exact ? 1 : SimConstants.STEP_SIZE;
 
+        if (SimConstants.GRID_ASTAR && grid.locationExists(startPoint.x, startPoint.y)) {
+            if (!GridAStar.get().search(grid, startPoint, goalPoint, stepSize, pathPoints)) {
+                return false;
+            }
+            for (int i = pathPoints.size() - 1; i >= 0; i--) {
+                reversePathPoints.add(pathPoints.get(i));
+            }
+            found = true;
+            recalcLength();
+            return testPath(true);
+        }
+
         Map<Point, Point> backtrace = new HashMap<>();
         Map<Point, Double> gScores = new HashMap<>();
         Map<Point, Double> fScores = new HashMap<>();
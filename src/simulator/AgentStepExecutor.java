@@ -0,0 +1,225 @@
+/*
+ *     Copyright 2010, 2015, 2017 Julian de Hoog (julian@dehoog.ca),
+ *     Victor Spirin (victor.spirin@cs.ox.ac.uk),
+ *     Christian Clausen (christian.clausen@uni-bremen.de
+ *
+ *     This file is part of MRESim 2.3, a simulator for testing the behaviour
+ *     of multiple robots exploring unknown environments.
+ *
+ *     If you use MRESim, I would appreciate an acknowledgement and/or a citation
+ *     of our papers:
+ *
+ *     @inproceedings{deHoog2009,
+ *         title = "Role-Based Autonomous Multi-Robot Exploration",
+ *         author = "Julian de Hoog, Stephen Cameron and Arnoud Visser",
+ *         year = "2009",
+ *         booktitle =
+ *     "International Conference on Advanced Cognitive Technologies and Applications (COGNITIVE)",
+ *         location = "Athens, Greece",
+ *         month = "November",
+ *     }
+ *
+ *     @incollection{spirin2015mresim,
+ *       title={MRESim, a Multi-robot Exploration Simulator for the Rescue Simulation League},
+ *       author={Spirin, Victor and de Hoog, Julian and Visser, Arnoud and Cameron, Stephen},
+ *       booktitle={RoboCup 2014: Robot World Cup XVIII},
+ *       pages={106--117},
+ *       year={2015},
+ *       publisher={Springer}
+ *     }
+ *
+ *     MRESim is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     MRESim is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License along with MRESim.
+ *     If not, see <http://www.gnu.org/licenses/>.
+ */
+package simulator;
+
+import config.SimConstants;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Long-lived executor the agents' steps run on, shared by all simulations in this JVM. Replaces
+ * starting a new Thread per agent per cycle.
+ *
+ * @see SimConstants#AGENT_STEP_THREADS
+ * @see SimConstants#AGENT_STEP_VIRTUAL_THREADS
+ */
+public class AgentStepExecutor {
+
+    private static AgentStepExecutor shared;
+
+    private final ExecutorService executor;
+
+    /**
+     * Timing of one cycle of agent steps. Compute is the time spent inside the agents' step code,
+     * everything else on the longest path is scheduling overhead (queueing, thread hand-over,
+     * joining).
+     */
+    public static class StepTiming {
+
+        private final long wallNanos;
+        private final long computeNanos;
+        private final long longestStepNanos;
+        private final int numSteps;
+
+        StepTiming(long wallNanos, long computeNanos, long longestStepNanos, int numSteps) {
+            this.wallNanos = wallNanos;
+            this.computeNanos = computeNanos;
+            this.longestStepNanos = longestStepNanos;
+            this.numSteps = numSteps;
+        }
+
+        public long getWallNanos() {
+            return wallNanos;
+        }
+
+        public long getComputeNanos() {
+            return computeNanos;
+        }
+
+        public long getLongestStepNanos() {
+            return longestStepNanos;
+        }
+
+        public long getSchedulingOverheadNanos() {
+            return Math.max(0, wallNanos - longestStepNanos);
+        }
+
+        public int getNumSteps() {
+            return numSteps;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d steps: wall %.3fms, compute %.3fms, longest step %.3fms, scheduling overhead %.3fms",
+                    numSteps, wallNanos / 1e6, computeNanos / 1e6, longestStepNanos / 1e6,
+                    getSchedulingOverheadNanos() / 1e6);
+        }
+    }
+
+    private AgentStepExecutor(boolean virtualThreads, int numThreads) {
+        ExecutorService service = null;
+        if (virtualThreads) {
+            service = newVirtualThreadExecutor();
+        }
+        if (service == null) {
+            final AtomicInteger counter = new AtomicInteger();
+            service = Executors.newFixedThreadPool(numThreads, new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable r) {
+                    Thread t = new Thread(r, "AgentStep-" + counter.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                }
+            });
+        }
+        executor = service;
+    }
+
+    /**
+     * Virtual threads need Java 21, the project is built for Java 8, so look them up reflectively.
+     */
+    private static ExecutorService newVirtualThreadExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            System.err.println("[AgentStepExecutor] Virtual threads not available on this JVM, using platform threads.");
+            return null;
+        }
+    }
+
+    public static synchronized AgentStepExecutor getShared() {
+        if (shared == null) {
+            int threads = SimConstants.AGENT_STEP_THREADS;
+            if (threads <= 0) {
+                threads = Runtime.getRuntime().availableProcessors();
+            }
+            shared = new AgentStepExecutor(SimConstants.AGENT_STEP_VIRTUAL_THREADS, threads);
+        }
+        return shared;
+    }
+
+    /**
+     * Runs all steps and waits until every one of them has finished. If any step threw, the first
+     * exception is rethrown here (wrapped if checked) with the others attached as suppressed.
+     *
+     * @param steps agent steps of this cycle
+     * @return timing of the cycle
+     */
+    public StepTiming runAll(List<? extends Runnable> steps) {
+        final long[] stepNanos = new long[steps.size()];
+        List<Callable<Void>> tasks = new ArrayList<>(steps.size());
+        for (int i = 0; i < steps.size(); i++) {
+            final Runnable step = steps.get(i);
+            final int index = i;
+            tasks.add(() -> {
+                long start = System.nanoTime();
+                try {
+                    step.run();
+                } finally {
+                    stepNanos[index] = System.nanoTime() - start;
+                }
+                return null;
+            });
+        }
+
+        long start = System.nanoTime();
+        List<Future<Void>> futures;
+        try {
+            futures = executor.invokeAll(tasks);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for agent steps", e);
+        }
+        long wall = System.nanoTime() - start;
+
+        RuntimeException failure = null;
+        for (Future<Void> future : futures) {
+            try {
+                future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while waiting for agent steps", e);
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof Error) {
+                    throw (Error) cause;
+                }
+                if (failure == null) {
+                    failure = (cause instanceof RuntimeException)
+                            ? (RuntimeException) cause : new RuntimeException(cause);
+                } else {
+                    failure.addSuppressed(cause);
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+
+        long compute = 0;
+        long longest = 0;
+        for (long nanos : stepNanos) {
+            compute += nanos;
+            longest = Math.max(longest, nanos);
+        }
+        return new StepTiming(wall, compute, longest, steps.size());
+    }
+}
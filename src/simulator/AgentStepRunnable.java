@@ -75,7 +75,6 @@ public class AgentStepRunnable implements Runnable {
         Point nextStep;
         double[] sensorData;
         double distance_left = agent.getSpeed();
-        agent.flushLog();
         //Continue along the path,
         //until we have exhausted agent 'speed' per cycle or run out of path
         while (distance_left > 0) {
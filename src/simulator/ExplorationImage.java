@@ -66,19 +66,14 @@ import java.awt.Shape;
 import java.awt.geom.Ellipse2D;
 import java.awt.geom.Rectangle2D;
 import java.awt.image.BufferedImage;
-import java.awt.image.ColorModel;
-import java.awt.image.DataBuffer;
-import java.awt.image.DataBufferByte;
-import java.awt.image.IndexColorModel;
-import java.awt.image.Raster;
-import java.awt.image.SampleModel;
-import java.awt.image.SinglePixelPackedSampleModel;
-import java.awt.image.WritableRaster;
+import java.awt.image.DataBufferInt;
 import java.io.File;
 import java.io.IOException;
 import java.text.SimpleDateFormat;
+import java.util.Arrays;
 import java.util.Date;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.PriorityQueue;
 import javax.imageio.ImageIO;
@@ -95,19 +90,37 @@ public class ExplorationImage {
     private static LinkedList<Boolean> errorX = new LinkedList<>();
     private static LinkedList<Point> errorDirt = new LinkedList<>();
 
+    private static final int TILE_SHIFT = 4;    // dirty cells are redrawn in tiles of 16x16
+
+    private static final int UNEXPLORED = SimConstants.MapColor.unexplored().getRGB();
+    private static final int BACKGROUND = SimConstants.MapColor.background().getRGB();
+    private static final int EXPLORED = SimConstants.MapColor.explored().getRGB();
+    private static final int EXPLORED_BASE = SimConstants.MapColor.explored_base().getRGB();
+    private static final int AGENT_OBSTACLE = SimConstants.MapColor.agent_obstacle().getRGB();
+    private static final int WALL = SimConstants.MapColor.wall().getRGB();
+    private static final int OBSTACLE = SimConstants.MapColor.obstacle().getRGB();
+    private static final int SLOPE = SimConstants.MapColor.slope().getRGB();
+    private static final int HILL = SimConstants.MapColor.hill().getRGB();
+
     private int width;
     private int height;
-    ColorModel colorModel;
     Graphics2D g2D;
 
+    // The image shown is composed every update: the base layer (environment and what the agents
+    // know) is copied in, then the overlays (agents, ranges, paths, ...) are drawn on top. Only
+    // the base layer is kept between updates, and only its dirty tiles are recomposed.
     private BufferedImage image;
+    private int[] pixels;           // raster of image, y * width + x
+    private int[] base;             // base layer, same layout
+    private int tilesX;
+    private int tilesY;
+    private boolean[] dirtyTiles;
     HashSet gridHashBuffer;
     boolean forceFullUpdate = false;
 
     public ExplorationImage(Environment env) {
         width = env.getColumns();
         height = env.getRows();
-        colorModel = generate16ColorModel();
         resetImage();
     }
 
@@ -131,15 +144,15 @@ public class ExplorationImage {
         if ((row < 0) || (column < 0)) {
             return Color.WHITE;
         }
-        return new Color(image.getRGB(row, column));
+        return new Color(pixels[column * width + row]);
     }
 
     public void setPixel(int row, int column, int color) {
-        try {
-            image.setRGB(row, column, color);
-        } catch (ArrayIndexOutOfBoundsException e) {
+        if (row < 0 || row >= width || column < 0 || column >= height) {
             System.err.println(this.toString() + "Error: pixel out of image bounds (" + row + ", " + column + ")");
+            return;
         }
+        pixels[column * width + row] = color;
     }
 
     public void setPixel(int row, int column, Color color) {
@@ -176,51 +189,31 @@ public class ExplorationImage {
 
     public void setImage(String path) {
         try {
-            image = ImageIO.read(new File(path));
+            BufferedImage read = ImageIO.read(new File(path));
+            if (read != null) {
+                width = read.getWidth();
+                height = read.getHeight();
+                resetImage();
+                setG2D();
+                g2D.drawImage(read, 0, 0, null);
+                System.arraycopy(pixels, 0, base, 0, pixels.length);
+            }
         } catch (IOException e) {
         }
     }
 
     public final void resetImage() {
-        byte[] pixels = generatePixels(width, height, new Rectangle2D.Float(0, 0, width, height));
-        DataBuffer dbuf = new DataBufferByte(pixels, width * height, 0);
-        int bitMasks[] = new int[]{(byte) 0xf};
-        SampleModel sampleModel = new SinglePixelPackedSampleModel(
-                DataBuffer.TYPE_BYTE, width, height, bitMasks);
-        WritableRaster raster = Raster.createWritableRaster(sampleModel, dbuf, null);
-        image = new BufferedImage(colorModel, raster, false, null);
-
-        for (int i = 0; i < width; i++) {
-            for (int j = 0; j < height; j++) {
-                setPixel(i, j, SimConstants.MapColor.unexplored());
-            }
-        }
+        image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        pixels = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+        base = new int[width * height];
+        Arrays.fill(base, UNEXPLORED);
+        System.arraycopy(base, 0, pixels, 0, base.length);
+        tilesX = (width >> TILE_SHIFT) + 1;
+        tilesY = (height >> TILE_SHIFT) + 1;
+        dirtyTiles = new boolean[tilesX * tilesY];
     }
 // </editor-fold>
 
-    private void addDirtyAgentCells(RealAgent agent) {
-        // Erase old relay triangle
-        for (int i = agent.getX() - 2 * SimConstants.AGENT_RADIUS; i <= agent.getX() + 2 * SimConstants.AGENT_RADIUS; i++) {
-            for (int j = agent.getY() - 2 * SimConstants.AGENT_RADIUS; j <= agent.getY() + 2 * SimConstants.AGENT_RADIUS; j++) {
-                if (agent.getOccupancyGrid().locationExists(i, j)) {
-                    agent.getDirtyCells().add(new Point(i, j));
-                }
-            }
-        }
-
-        // Erase old relay name
-        for (int i = agent.getX() + SimConstants.AGENT_RADIUS; i <= agent.getX() + SimConstants.AGENT_RADIUS + 46; i++) {
-            for (int j = agent.getY() - SimConstants.AGENT_RADIUS - 12; j <= agent.getY() - SimConstants.AGENT_RADIUS + 12; j++) {
-                if (agent.getOccupancyGrid().locationExists(i, j)) {
-                    agent.getDirtyCells().add(new Point(i, j));
-                }
-            }
-        }
-
-        agent.getDirtyCells().addAll(
-                agent.getRendezvousStrategy().getRendezvousDisplayData().getDirtyCells(this, agent));
-    }
-
     private void addDirtyCommRangeCells(RealAgent agent) {
         for (Point cell : circlePoints(agent.getPrevX(), agent.getPrevY(), agent.getCommRange())) {
             if (agent.getOccupancyGrid().locationExists(cell.x, cell.y)) {
@@ -230,15 +223,25 @@ public class ExplorationImage {
         }
     }
 
-    private LinkedList<Point> findAllDirt(RealAgent[] agents) {
-        LinkedList<Point> allDirt = new LinkedList<>();
-        for (RealAgent agent : agents) {
-            allDirt = mergeLists(allDirt, agent.getDirtyCells());
+    private void markDirty(int x, int y) {
+        if (x >= 0 && x < width && y >= 0 && y < height) {
+            dirtyTiles[(y >> TILE_SHIFT) * tilesX + (x >> TILE_SHIFT)] = true;
         }
+    }
 
-        allDirt = mergeLists(allDirt, errorDirt);
-
-        return allDirt;
+    /**
+     * Marks the tiles of the cells the agents changed since the last update.
+     */
+    private void markAllDirt(RealAgent[] agents) {
+        for (RealAgent agent : agents) {
+            for (Point p : agent.getDirtyCells()) {
+                markDirty(p.x, p.y);
+            }
+        }
+        for (Point p : errorDirt) {
+            markDirty(p.x, p.y);
+        }
+        errorDirt.clear();
     }
 
     private void resetDirt(RealAgent[] agent) {
@@ -393,50 +396,29 @@ public class ExplorationImage {
                 agentSettings[i].hasMapInfo = true;
             }
         }
-        //if(settings.showEnv)
-        //    drawEnvironment(env.getFullStatus());
         if (this.forceFullUpdate) {
             dirtOnly = false;
             this.forceFullUpdate = false;
         }
         if (!dirtOnly) {
-            if (settings.showEnv) {
-                drawEnvironment(env.getFullStatus());
-            }
-
-            for (int a = agents.length - 1; a >= 0; a--) {
-                if (agentSettings[a].hasMapInfo) {
-                    for (int i = 0; i < width; i++) {
-                        for (int j = 0; j < height; j++) {
-                            updatePixelAgent(agentSettings[a], agents[a].getOccupancyGrid(), i, j);
-                        }
-                    }
-                }
-            }
+            Arrays.fill(dirtyTiles, true);
         } else {
-            LinkedList<Point> allDirt = findAllDirt(agents);
-
-            if (settings.showEnv) {
-                drawEnvironment(env.getFullStatus(), allDirt);
-            }
-
-            for (int i = agents.length - 1; i >= 0; i--) {
-                if (agentSettings[i].hasMapInfo) {
-                    final OccupancyGrid grid = agents[i].getOccupancyGrid();
-                    ShowSettingsAgent asettings = agentSettings[i];
-                    allDirt.stream().forEach((currCell) -> {
-                        updatePixelAgent(asettings, grid, currCell.x, currCell.y);
-                    });
+            markAllDirt(agents);
+        }
+        Environment.Status[][] status = settings.showEnv ? env.getFullStatus() : null;
+        for (int ty = 0; ty < tilesY; ty++) {
+            for (int tx = 0; tx < tilesX; tx++) {
+                if (dirtyTiles[ty * tilesX + tx]) {
+                    dirtyTiles[ty * tilesX + tx] = false;
+                    composeTile(tx, ty, status, agentSettings, agents);
                 }
             }
         }
 
         resetDirt(agents);
 
-        if (settings.showEnv) //UUUGGGLLLYYYYY Fix for crazy Java-Color Crap
-        {
-            drawEnvironmentAgain(env.getFullStatus());
-        }
+        // overlays are drawn on a fresh copy of the base layer
+        System.arraycopy(base, 0, pixels, 0, base.length);
 
         if (settings.showHierarchy) {
             drawHierarchy(agents);
@@ -471,7 +453,6 @@ public class ExplorationImage {
             //Draw paths
             if (agentSettings[i].showPath) {
                 drawPath(agents[i].getPathComming(), agents[i].getPathTaken());
-                agents[i].updatePathDirt();
             }
             //Draw skeleton
             //if(agentSettings[i].showSkeleton)
@@ -501,6 +482,75 @@ public class ExplorationImage {
         }
     }
 
+    private void composeTile(int tx, int ty, Environment.Status[][] status,
+            ShowSettingsAgent[] agentSettings, RealAgent[] agents) {
+        int x1 = Math.min(width, (tx + 1) << TILE_SHIFT);
+        int y1 = Math.min(height, (ty + 1) << TILE_SHIFT);
+        for (int y = ty << TILE_SHIFT; y < y1; y++) {
+            for (int x = tx << TILE_SHIFT; x < x1; x++) {
+                base[y * width + x] = composeCell(x, y, status, agentSettings, agents);
+            }
+        }
+    }
+
+    /**
+     * Base layer colour of a cell: the environment (if status is given), what the agents know on
+     * top, base station last, and obstacles, slopes and hills of the environment on top of that.
+     */
+    private int composeCell(int x, int y, Environment.Status[][] status,
+            ShowSettingsAgent[] agentSettings, RealAgent[] agents) {
+        int color = UNEXPLORED;
+        if (status != null) {
+            switch (status[x][y]) {
+                case barrier:
+                    color = WALL;
+                    break;
+                case obstacle:
+                    color = OBSTACLE;
+                    break;
+                case slope:
+                    color = SLOPE;
+                    break;
+                case hill:
+                    color = HILL;
+                    break;
+                default:
+                    color = BACKGROUND;
+            }
+        }
+        for (int a = agents.length - 1; a >= 0; a--) {
+            ShowSettingsAgent settings = agentSettings[a];
+            if (!settings.hasMapInfo) {
+                continue;
+            }
+            OccupancyGrid grid = agents[a].getOccupancyGrid();
+            if (grid.freeSpaceAt(x, y)) {
+                if (settings.baseStation) {
+                    color = EXPLORED_BASE;
+                } else if (settings.showFreeSpace) {
+                    color = EXPLORED;
+                }
+            } else if (settings.showFreeSpace && grid.obstacleAt(x, y)) {
+                color = AGENT_OBSTACLE;
+            }
+        }
+        if (status != null) {
+            switch (status[x][y]) {
+                case obstacle:
+                    color = OBSTACLE;
+                    break;
+                case slope:
+                    color = SLOPE;
+                    break;
+                case hill:
+                    color = HILL;
+                    break;
+                default:
+            }
+        }
+        return color;
+    }
+
 // </editor-fold>
 // <editor-fold defaultstate="collapsed" desc="Save screenshot">
     public void saveScreenshot(String dirName, int timeElapsed) {
@@ -603,8 +653,6 @@ public class ExplorationImage {
 
     public void updateAgent(RealAgent agent) {
         updateAgent(agent.getName(), agent.getX(), agent.getY(), agent.getHeading(), agent.getRole(), agent);
-        // Add changed cells nearPoint relay's dirt
-        addDirtyAgentCells(agent);
     }
 
     public void updateAgent(String name, int xLoc, int yLoc, double head, RobotConfig.roletype role, RealAgent agent) {
@@ -680,7 +728,6 @@ public class ExplorationImage {
                     for (int i = p.x - 1; i <= p.x + 1; i++) {
                         for (int j = p.y - 1; j <= p.y + 1; j++) {
                             setPixel(i, j, SimConstants.MapColor.link());
-                            agent.getDirtyCells().add(new Point(i, j));
                         }
                     }
                 }
@@ -709,13 +756,11 @@ public class ExplorationImage {
         for (Frontier f : frontiers) {
             for (Point p : f.getPolygonOutline()) {
                 setPixel(p.x, p.y, SimConstants.MapColor.frontier());
-                agent.getDirtyCells().add(new Point(p.x, p.y));
             }
             for (int q = f.getCentre().x - 2; q < f.getCentre().x + 2; q++) {
                 for (int j = f.getCentre().y - 2; j < f.getCentre().y + 2; j++) {
                     if ((q >= 0) && (j >= 0)) {
                         setPixel(q, j, Color.BLACK);
-                        agent.getDirtyCells().add(new Point(q, j));
                     }
                 }
             }
@@ -733,12 +778,19 @@ public class ExplorationImage {
         try {
             // part 1: future path
             //g2D.setPaint(Color.RED);
+            // every point but the last, iterated since get(i) walks the linked list
+            int red = Color.RED.getRGB();
+            Iterator<Point> it = futurePath.iterator();
             for (int i = 0; i < futurePath.size() - 1; i++) {
-                setPixel(futurePath.get(i).x, futurePath.get(i).y, Color.RED);
+                Point p = it.next();
+                setPixel(p.x, p.y, red);
                 //g2D.drawLine(((Point) pts.get(i)).x, ((Point) pts.get(i)).y, ((Point) pts.get(i + 1)).x, ((Point) pts.get(i + 1)).y);
             }
+            int black = Color.black.getRGB();
+            it = pastPath.iterator();
             for (int i = 0; i < pastPath.size() - 1; i++) {
-                setPixel(pastPath.get(i).x, pastPath.get(i).y, Color.black);
+                Point p = it.next();
+                setPixel(p.x, p.y, black);
                 //g2D.drawLine(((Point) pts.get(i)).x, ((Point) pts.get(i)).y, ((Point) pts.get(i + 1)).x, ((Point) pts.get(i + 1)).y);
             }
 
@@ -957,7 +1009,6 @@ public class ExplorationImage {
     }
 
     public void drawAreas(RealAgent[] agent) {
-        this.forceFullUpdate = true;//this sets a lot of pixels that cannot be added to dirt
         RealAgent agt = agent[1];
         //agt.getTopologicalMap().update(false);
         for (int i = 0; i < width; i++) {
@@ -1070,7 +1121,6 @@ public class ExplorationImage {
         for (Point p : polygonPoints(range)) {
             if (env.locationExists(p.x, p.y)) {
                 setPixel(p.x, p.y, color);
-                agent.getDirtyCells().add(new Point(p.x, p.y));
             }
         }
     }
@@ -1082,7 +1132,6 @@ public class ExplorationImage {
         for (Point p : circlePoints(agent.getX(), agent.getY(), agent.getCommRange())) {
             if (agent.getOccupancyGrid().locationExists(p.x, p.y)) {
                 setPixel(p.x, p.y, color);
-                agent.getDirtyCells().add(new Point(p.x, p.y));
             }
         }
     }
@@ -1202,103 +1251,6 @@ public class ExplorationImage {
         return list1;
     }
 
-    private byte[] generatePixels(int w, int h, Rectangle2D.Float loc) {
-        float xmin = loc.x;
-        float ymin = loc.y;
-        float xmax = loc.x + loc.width;
-        float ymax = loc.y + loc.height;
-
-        byte[] pixels = new byte[w * h];
-        int pIx = 0;
-        float[] p = new float[w];
-        float q = ymin;
-        float dp = (xmax - xmin) / w;
-        float dq = (ymax - ymin) / h;
-
-        p[0] = xmin;
-        for (int i = 1; i < w; i++) {
-            p[i] = p[i - 1] + dp;
-        }
-
-        for (int r = 0; r < h; r++) {
-            for (int c = 0; c < w; c++) {
-                int color = 1;
-                float x = 0.0f;
-                float y = 0.0f;
-                float xsqr;
-                float ysqr;
-                do {
-                    xsqr = x * x;
-                    ysqr = y * y;
-                    y = 2 * x * y + q;
-                    x = xsqr - ysqr + p[c];
-                    color++;
-                } while (color < 512 && xsqr + ysqr < 4);
-                pixels[pIx++] = (byte) (color % 16);
-            }
-            q += dq;
-        }
-        return pixels;
-    }
-
-    private static ColorModel generate16ColorModel() {
-        // Generate 16-color model
-        byte[] r = new byte[16];
-        byte[] g = new byte[16];
-        byte[] b = new byte[16];
-
-        r[0] = 0;
-        g[0] = 0;
-        b[0] = 0;
-        r[1] = 0;
-        g[1] = 0;
-        b[1] = (byte) 192;
-        r[2] = 0;
-        g[2] = 0;
-        b[2] = (byte) 255;
-        r[3] = 0;
-        g[3] = (byte) 192;
-        b[3] = 0;
-        r[4] = 0;
-        g[4] = (byte) 255;
-        b[4] = 0;
-        r[5] = 0;
-        g[5] = (byte) 192;
-        b[5] = (byte) 192;
-        r[6] = 0;
-        g[6] = (byte) 255;
-        b[6] = (byte) 255;
-        r[7] = (byte) 192;
-        g[7] = 0;
-        b[7] = 0;
-        r[8] = (byte) 255;
-        g[8] = 0;
-        b[8] = 0;
-        r[9] = (byte) 192;
-        g[9] = 0;
-        b[9] = (byte) 192;
-        r[10] = (byte) 255;
-        g[10] = 0;
-        b[10] = (byte) 255;
-        r[11] = (byte) 192;
-        g[11] = (byte) 192;
-        b[11] = 0;
-        r[12] = (byte) 255;
-        g[12] = (byte) 255;
-        b[12] = 0;
-        r[13] = (byte) 80;
-        g[13] = (byte) 80;
-        b[13] = (byte) 80;
-        r[14] = (byte) 192;
-        g[14] = (byte) 192;
-        b[14] = (byte) 192;
-        r[15] = (byte) 255;
-        g[15] = (byte) 255;
-        b[15] = (byte) 255;
-
-        return new IndexColorModel(4, 16, r, g, b);
-    }
-
     @Override
     public String toString() {
         return ("[ExplorationImage] ");
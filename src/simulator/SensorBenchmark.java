@@ -0,0 +1,153 @@
+/*
+ *     Copyright 2010, 2015, 2017 Julian de Hoog (julian@dehoog.ca),
+ *     Victor Spirin (victor.spirin@cs.ox.ac.uk),
+ *     Christian Clausen (christian.clausen@uni-bremen.de
+ *
+ *     This file is part of MRESim 2.3, a simulator for testing the behaviour
+ *     of multiple robots exploring unknown environments.
+ *
+ *     If you use MRESim, I would appreciate an acknowledgement and/or a citation
+ *     of our papers:
+ *
+ *     @inproceedings{deHoog2009,
+ *         title = "Role-Based Autonomous Multi-Robot Exploration",
+ *         author = "Julian de Hoog, Stephen Cameron and Arnoud Visser",
+ *         year = "2009",
+ *         booktitle =
+ *     "International Conference on Advanced Cognitive Technologies and Applications (COGNITIVE)",
+ *         location = "Athens, Greece",
+ *         month = "November",
+ *     }
+ *
+ *     @incollection{spirin2015mresim,
+ *       title={MRESim, a Multi-robot Exploration Simulator for the Rescue Simulation League},
+ *       author={Spirin, Victor and de Hoog, Julian and Visser, Arnoud and Cameron, Stephen},
+ *       booktitle={RoboCup 2014: Robot World Cup XVIII},
+ *       pages={106--117},
+ *       year={2015},
+ *       publisher={Springer}
+ *     }
+ *
+ *     MRESim is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     MRESim is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License along with MRESim.
+ *     If not, see <http://www.gnu.org/licenses/>.
+ */
+package simulator;
+
+import config.EnvLoader;
+import config.SimConstants;
+import environment.Environment;
+import java.awt.HeadlessException;
+import java.awt.Point;
+import java.io.File;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Compares SensorEngine.scan with the original implementation on every map in the environment
+ * directory: checks that both produce the same readings and reports the time per scan. JMH is not
+ * part of the build, so this does its own warm-up and measurement rounds.
+ *
+ * Usage: java -Djava.awt.headless=true -cp dist/MRESim.jar simulator.SensorBenchmark [envDir] [senseRange]
+ * [samples]
+ */
+public class SensorBenchmark {
+
+    private static final int WARMUP_ROUNDS = 3;
+    private static final int MEASURE_ROUNDS = 5;
+
+    public static void main(String args[]) {
+        String envDir = (args.length > 0) ? args[0] : SimConstants.DEFAULT_ENV_DIRECTORY;
+        int senseRange = (args.length > 1) ? Integer.parseInt(args[1]) : 200;
+        int samples = (args.length > 2) ? Integer.parseInt(args[2]) : 500;
+
+        File[] maps = new File(envDir).listFiles((dir, name) -> name.endsWith(".png")
+                || name.endsWith(".jpg") || name.endsWith(".gif"));
+        if (maps == null || maps.length == 0) {
+            System.err.println("No maps found in " + envDir);
+            return;
+        }
+        Arrays.sort(maps);
+
+        System.out.format("%-32s %10s %14s %14s %8s%n", "map", "mismatches", "reference us", "engine us", "speedup");
+        for (File map : maps) {
+            Environment env;
+            try {
+                env = EnvLoader.loadWallConfig(map.getPath());
+            } catch (HeadlessException e) {
+                env = null; // map too large, the loader wants to show a dialog
+            }
+            if (env == null) {
+                System.out.format("%-32s skipped, could not be loaded%n", map.getName());
+                continue;
+            }
+            Point[] locs = new Point[samples];
+            double[] headings = new double[samples];
+            sample(env, samples, locs, headings);
+
+            int mismatches = 0;
+            for (int i = 0; i < samples; i++) {
+                if (!Arrays.equals(SensorEngine.scanReference(env, locs[i], headings[i], senseRange),
+                        SensorEngine.scan(env, locs[i], headings[i], senseRange))) {
+                    mismatches++;
+                }
+            }
+
+            double reference = 0;
+            double engine = 0;
+            for (int round = 0; round < WARMUP_ROUNDS + MEASURE_ROUNDS; round++) {
+                long start = System.nanoTime();
+                for (int i = 0; i < samples; i++) {
+                    SensorEngine.scanReference(env, locs[i], headings[i], senseRange);
+                }
+                long middle = System.nanoTime();
+                for (int i = 0; i < samples; i++) {
+                    SensorEngine.scan(env, locs[i], headings[i], senseRange);
+                }
+                long end = System.nanoTime();
+                if (round >= WARMUP_ROUNDS) {
+                    reference += (middle - start) / 1000.0 / samples / MEASURE_ROUNDS;
+                    engine += (end - middle) / 1000.0 / samples / MEASURE_ROUNDS;
+                }
+            }
+            System.out.format("%-32s %10d %14.1f %14.1f %7.1fx%n", map.getName(), mismatches, reference, engine,
+                    reference / engine);
+        }
+    }
+
+    /**
+     * Random free locations, with headings as they occur when following a path: the direction
+     * between two points of the A* lattice.
+     */
+    private static void sample(Environment env, int samples, Point[] locs, double[] headings) {
+        Random random = new Random(SimConstants.RANDOM_SEED);
+        int i = 0;
+        int attempts = 0;
+        while (i < samples && attempts < samples * 1000) {
+            attempts++;
+            int x = random.nextInt(env.getColumns());
+            int y = random.nextInt(env.getRows());
+            if (env.statusAt(x, y).ordinal() >= Environment.Status.obstacle.ordinal()) {
+                continue;
+            }
+            locs[i] = new Point(x, y);
+            int dx = random.nextInt(2 * SimConstants.STEP_SIZE + 1) - SimConstants.STEP_SIZE;
+            int dy = random.nextInt(2 * SimConstants.STEP_SIZE + 1) - SimConstants.STEP_SIZE;
+            headings[i] = Math.atan2(dy, dx);
+            i++;
+        }
+        for (; i < samples; i++) {
+            locs[i] = new Point(env.getColumns() / 2, env.getRows() / 2);
+            headings[i] = 0;
+        }
+    }
+}
@@ -0,0 +1,200 @@
+/*
+ *     Copyright 2010, 2015, 2017 Julian de Hoog (julian@dehoog.ca),
+ *     Victor Spirin (victor.spirin@cs.ox.ac.uk),
+ *     Christian Clausen (christian.clausen@uni-bremen.de
+ *
+ *     This file is part of MRESim 2.3, a simulator for testing the behaviour
+ *     of multiple robots exploring unknown environments.
+ *
+ *     If you use MRESim, I would appreciate an acknowledgement and/or a citation
+ *     of our papers:
+ *
+ *     @inproceedings{deHoog2009,
+ *         title = "Role-Based Autonomous Multi-Robot Exploration",
+ *         author = "Julian de Hoog, Stephen Cameron and Arnoud Visser",
+ *         year = "2009",
+ *         booktitle =
+ *     "International Conference on Advanced Cognitive Technologies and Applications (COGNITIVE)",
+ *         location = "Athens, Greece",
+ *         month = "November",
+ *     }
+ *
+ *     @incollection{spirin2015mresim,
+ *       title={MRESim, a Multi-robot Exploration Simulator for the Rescue Simulation League},
+ *       author={Spirin, Victor and de Hoog, Julian and Visser, Arnoud and Cameron, Stephen},
+ *       booktitle={RoboCup 2014: Robot World Cup XVIII},
+ *       pages={106--117},
+ *       year={2015},
+ *       publisher={Springer}
+ *     }
+ *
+ *     MRESim is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     MRESim is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License along with MRESim.
+ *     If not, see <http://www.gnu.org/licenses/>.
+ */
+package simulator;
+
+import environment.Environment;
+import java.awt.Point;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Simulated 181-ray laser range finder. Rays are sampled at the same integer offsets as the
+ * original implementation (one sample per unit of range, truncated towards zero), so the readings
+ * are identical, but the direction of every ray is looked up from a cache keyed by heading instead
+ * of calling Math.cos/Math.sin per sample, and obstacles are tested against the packed bitmap of
+ * the environment.
+ *
+ * Agents moving along a path keep the same heading for many sub-steps, so the cache hit rate is
+ * high.
+ */
+public final class SensorEngine {
+
+    public static final int NUM_RAYS = 181;
+
+    private static final int MAX_CACHED_HEADINGS = 256;
+
+    /**
+     * cos and sin of every ray for one heading.
+     */
+    private static final class Directions {
+
+        final double[] cos = new double[NUM_RAYS];
+        final double[] sin = new double[NUM_RAYS];
+
+        Directions(double heading) {
+            for (int i = 0; i < NUM_RAYS; i++) {
+                double currRayAngle = heading - Math.PI / 2 + Math.PI / 180 * i;
+                cos[i] = Math.cos(currRayAngle);
+                sin[i] = Math.sin(currRayAngle);
+            }
+        }
+    }
+
+    private static final Map<Long, Directions> directionCache = new LinkedHashMap<Long, Directions>(
+            MAX_CACHED_HEADINGS * 2, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, Directions> eldest) {
+            return size() > MAX_CACHED_HEADINGS;
+        }
+    };
+
+    private SensorEngine() {
+    }
+
+    private static Directions directions(double heading) {
+        Long key = Double.doubleToLongBits(heading);
+        synchronized (directionCache) {
+            Directions dirs = directionCache.get(key);
+            if (dirs == null) {
+                dirs = new Directions(heading);
+                directionCache.put(key, dirs);
+            }
+            return dirs;
+        }
+    }
+
+    /**
+     * Distance readings of all rays.
+     *
+     * @param env the environment
+     * @param loc location of the sensor
+     * @param heading heading of the sensor, the middle ray points this way
+     * @param senseRange range of the sensor
+     * @return distance per degree, from heading - 90 to heading + 90
+     */
+    public static double[] scan(Environment env, Point loc, double heading, int senseRange) {
+        double[] sensorData = new double[NUM_RAYS];
+        Directions dirs = directions(heading);
+        long[] obstacles = env.getObstacleBitmap();
+        int columns = env.getColumns();
+        int rows = env.getRows();
+        int x = loc.x;
+        int y = loc.y;
+
+        // ray samples closer than the nearest wall need no lookup, as long as none can leave the map
+        int clearSteps = 0;
+        if (x - senseRange >= 0 && x + senseRange < columns && y - senseRange >= 0 && y + senseRange < rows) {
+            int clearanceSq = env.squaredClearance(x, y, Environment.Status.obstacle.ordinal() - 1);
+            while (clearSteps + 1 < senseRange && (clearSteps + 1) * (clearSteps + 1) < clearanceSq) {
+                clearSteps++;
+            }
+        }
+
+        for (int i = 0; i < NUM_RAYS; i++) {
+            double cos = dirs.cos[i];
+            double sin = dirs.sin[i];
+            int prevDx = (int) (clearSteps * cos);
+            int prevDy = (int) (clearSteps * sin);
+            for (double m = clearSteps + 1; m <= senseRange; m++) {
+                int dx = (int) (m * cos);
+                int dy = (int) (m * sin);
+                int currRayX = x + dx;
+                int currRayY = y + dy;
+
+                if (currRayX < 0 || currRayX >= columns || currRayY < 0 || currRayY >= rows) {
+                    sensorData[i] = Math.sqrt((double) prevDx * prevDx + (double) prevDy * prevDy);
+                    break;
+                }
+                int index = currRayY * columns + currRayX;
+                if ((obstacles[index >>> 6] & (1L << index)) != 0 || m >= senseRange) {
+                    sensorData[i] = Math.sqrt((double) dx * dx + (double) dy * dy);
+                    break;
+                }
+                prevDx = dx;
+                prevDy = dy;
+            }
+        }
+
+        return sensorData;
+    }
+
+    /**
+     * The original per-sample implementation, kept as reference for {@link #scan}.
+     */
+    public static double[] scanReference(Environment env, Point nextLoc, double heading, int senseRange) {
+        double currRayAngle;
+        int prevRayX, prevRayY;
+        int currRayX, currRayY;
+        double sensorData[] = new double[NUM_RAYS];
+
+        //For every degree
+        for (int i = 0; i <= 180; i += 1) {
+            prevRayX = nextLoc.x;
+            prevRayY = nextLoc.y;
+
+            currRayAngle = heading - Math.PI / 2 + Math.PI / 180 * i;
+
+            for (double m = 1; m <= senseRange; m++) {
+                currRayX = nextLoc.x + (int) (m * Math.cos(currRayAngle));
+                currRayY = nextLoc.y + (int) (m * Math.sin(currRayAngle));
+
+                if (!env.locationExists(currRayX, currRayY)) {
+                    sensorData[i] = nextLoc.distance(prevRayX, prevRayY);
+                    break;
+                } else if (env.statusAt(currRayX, currRayY).ordinal() >= Environment.Status.obstacle.ordinal()) {
+                    sensorData[i] = nextLoc.distance(currRayX, currRayY);
+                    break;
+                } else if (m >= senseRange) {
+                    sensorData[i] = nextLoc.distance(currRayX, currRayY);
+                    break;
+                } else {
+                    prevRayX = currRayX;
+                    prevRayY = currRayY;
+                }
+            }
+        }
+
+        return sensorData;
+    }
+}
@@ -44,10 +44,14 @@
 
 package simulator;
 
+import Logging.AgentStats;
+import Logging.DebugLog;
+import Logging.RunRecorder;
 import agents.Agent;
 import agents.ComStation;
 import agents.RealAgent;
 import agents.TeammateAgent;
+import communication.CommConnectivity;
 import communication.DataMessage;
 import communication.DirectLine;
 import communication.PropModel1;
@@ -67,6 +71,7 @@ import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.io.*;
 import java.util.*;
+import javax.swing.Icon;
 import javax.swing.ImageIcon;
 import javax.swing.Timer;
 import org.json.JSONArray;
@@ -80,6 +85,7 @@ import org.json.JSONObject;
 public class SimulationFramework implements ActionListener {
 
     boolean pauseSimulation;                   // For stepping through simulation one step at a time
+    boolean runFinished;                       // Headless: set when the last run is complete
 
     boolean isBatch;                            // Are we running a batch file
     int runNumber;
@@ -102,7 +108,7 @@ public class SimulationFramework implements ActionListener {
 
     // Communication
     int[][] directCommTable;
-    int[][] multihopCommTable;
+    CommConnectivity connectivity = new CommConnectivity();   // multi-hop links, from directCommTable
 
     // Interesting data
     int timeElapsed;
@@ -118,18 +124,34 @@ public class SimulationFramework implements ActionListener {
     int numSwaps;
     int experiment = 0;
     FileOutputStream outputFile;
+    RunRecorder agentRecorder;                  // binary agent and data logs, open while a run lasts
+    RunRecorder dataRecorder;
+    private DebugLog.Channel debugLog;          // opened when there is something to log
 
     RobotTeamConfig robotTeamConfig;
 
     boolean logging_agent;
     boolean force_full_update;
+    private long lastFrameTime;     // when the image was last redrawn, ms
+
+    AgentStepExecutor.StepTiming lastStepTiming;
+
+    private final List<SimulationObserver> observers = new ArrayList<SimulationObserver>();
+
+    /**
+     * Creates a headless simulation: no GUI, no image and no Swing timer. Run it with
+     * {@link #runHeadless()} and get per-cycle data through {@link #addObserver}.
+     */
+    public SimulationFramework(RobotTeamConfig newRobotTeamConfig, SimulatorConfig newSimConfig) {
+        this(null, newRobotTeamConfig, newSimConfig, null);
+    }
 
     public SimulationFramework(MainGUI maingui, RobotTeamConfig newRobotTeamConfig,
             SimulatorConfig newSimConfig, ExplorationImage img) {
-        random = new Random();
         mainGUI = maingui;
         image = img;
         simConfig = newSimConfig;
+        random = simConfig.isSeeded() ? simConfig.newRandom(-1) : new Random();
         env = simConfig.getEnvironment();
         robotTeamConfig = newRobotTeamConfig;
 
@@ -139,8 +161,23 @@ public class SimulationFramework implements ActionListener {
         reset();
     }
 
+    public final boolean isHeadless() {
+        return mainGUI == null;
+    }
+
+    public void addObserver(SimulationObserver observer) {
+        observers.add(observer);
+    }
+
+    public void removeObserver(SimulationObserver observer) {
+        observers.remove(observer);
+    }
+
     private void reset() {
+        closeRecorders();
+        closeAgentDebugLogs();
         pauseSimulation = false;
+        runFinished = false;
         env = simConfig.getEnvironment();
 
         timeElapsed = 0;
@@ -157,9 +194,11 @@ public class SimulationFramework implements ActionListener {
         createAgents(robotTeamConfig);
 
         // Initialize Timer
-        timer = new Timer(0, this);
-        timer.setInitialDelay(SimConstants.INIT_DELAY);
-        timer.setCoalesce(true);
+        if (!isHeadless()) {
+            timer = new Timer(0, this);
+            timer.setInitialDelay(SimConstants.INIT_DELAY);
+            timer.setCoalesce(true);
+        }
 
         // Initialize Debris timing
         debrisTimer = new int[6];
@@ -236,12 +275,16 @@ public class SimulationFramework implements ActionListener {
     public boolean simulationCycle() {
         // only run at start
         if (timeElapsed == 0) {
-            try {
-                outputFile = new FileOutputStream("/home/alec/Documents/Cambridge/Work/dissertation/Test Data/experiment.txt", false);
+            if (!isHeadless()) {
+                try {
+                    outputFile = new FileOutputStream("/home/alec/Documents/Cambridge/Work/dissertation/Test Data/experiment.txt", false);
+                    HungarianComms.setDebugChannel(DebugLog.open("",
+                            DebugLog.fileSink("/home/alec/Documents/Cambridge/Work/dissertation/Test Data/run3.txt", false)));
 
 
-            } catch (IOException e) {
-                throw new RuntimeException(e);
+                } catch (IOException e) {
+                    throw new RuntimeException(e);
+                }
             }
             int goalArea = env.getTotalFreeSpace();
             // tells each agent how much of the map is actually "free space" so it can calculate how much it knows
@@ -257,13 +300,11 @@ public class SimulationFramework implements ActionListener {
         detectCommunication();
 
         for (int i = 0; i < numRobots - 1; i++) {
-            for (int j = i + 1; j < numRobots; j++) {
-                if (multihopCommTable[i][j] >= 1) {
-                    // Teammate Agents are the object held by each robot to store information about the other agents
-                    // If there is a multi-hop link between i and j, set their connection state to true
-                    agent[i].getTeammate(agent[j].getID()).setCommunicationLink(true);
-                    agent[j].getTeammate(agent[i].getID()).setCommunicationLink(true);
-                }
+            for (int j = connectivity.nextInComponent(i); j >= 0; j = connectivity.nextInComponent(j)) {
+                // Teammate Agents are the object held by each robot to store information about the other agents
+                // If there is a multi-hop link between i and j, set their connection state to true
+                agent[i].getTeammate(agent[j].getID()).setCommunicationLink(true);
+                agent[j].getTeammate(agent[i].getID()).setCommunicationLink(true);
             }
         }
 
@@ -274,27 +315,32 @@ public class SimulationFramework implements ActionListener {
 
         // Move agents
         agentSteps();
-        if(SimConstants.ALEC_DEBUG){
-            System.out.println();
-            System.out.println("Timestep: ".concat(String.valueOf(timeElapsed)));
+        if (DebugLog.isEnabled(DebugLog.Level.DEBUG, DebugLog.Category.SIMULATION)) {
+            debugLog().log(DebugLog.Level.DEBUG, DebugLog.Category.SIMULATION, "");
+            debugLog().log(DebugLog.Level.DEBUG, DebugLog.Category.SIMULATION, "Timestep: %s", timeElapsed);
         }
-        HungarianComms.writeToDebug("\n");
-        HungarianComms.writeToDebug("Timestep: ".concat(String.valueOf(timeElapsed)));
-        for(RealAgent a : agent){
-            HungarianComms.writeToDebug("Agent ".concat(a.toString()).concat(" map knowledge"));
-            HungarianComms.writeToDebug(String.valueOf(a.getStats().getPercentageKnown()));
+        if (!isHeadless() && DebugLog.isEnabled(DebugLog.Level.DEBUG, DebugLog.Category.COMMS)) {
+            HungarianComms.writeToDebug("\n");
+            HungarianComms.writeToDebug("Timestep: ".concat(String.valueOf(timeElapsed)));
+            for(RealAgent a : agent){
+                HungarianComms.writeToDebug("Agent ".concat(a.toString()).concat(" map knowledge"));
+                HungarianComms.writeToDebug(String.valueOf(a.getStats().getPercentageKnown()));
+            }
         }
 
 
-        agent[0].flushLog();
-
         // Update data
         if (timeElapsed % SimConstants.UPDATE_AGENT_KNOWLEDGE_INTERVAL == 0) {
             updateAgentKnowledgeData();
         }
         updateGlobalData();         // update data
-        updateGUI();    // update GUI
-        mainGUI.updateRobotConfig();
+        if (!isHeadless()) {
+            updateGUI(false);    // update GUI
+            mainGUI.updateRobotConfig();
+        } else {
+            // nothing is repainted, so drop the cells the image would have redrawn
+            Arrays.stream(agent).forEach(RealAgent::resetDirtyCells);
+        }
 
 
         // Logging
@@ -305,7 +351,7 @@ public class SimulationFramework implements ActionListener {
             a.getOccupancyGrid().saveToPNG(SimConstants.DEFAULT_IMAGE_LOG_DIRECTORY + "occuGrid " + a.toString() + timeElapsed + ".png");
             logging_agent = true; //There is a logging-wish
         });
-        if (logging_agent) {  //do non-agent-based logging if there is a wish to log for any robot
+        if (logging_agent && !isHeadless()) {  //do non-agent-based logging if there is a wish to log for any robot
             image.saveScreenshot(SimConstants.DEFAULT_IMAGE_LOG_DIRECTORY, timeElapsed);
         }
         logging_agent = false; //reset logging-wish for next cycle
@@ -313,6 +359,14 @@ public class SimulationFramework implements ActionListener {
         checkPause();               // check whether user wanted to pause
         avgCycleTime = (int) (System.currentTimeMillis() - simStartTime) / timeElapsed;
 
+        for (SimulationObserver observer : observers) {
+            observer.cycleCompleted(agent, timeElapsed, pctAreaKnownTeam, avgCycleTime);
+        }
+
+        if (isHeadless()) {
+            return checkRunFinish(agent, timeElapsed, pctAreaKnownTeam, avgCycleTime);
+        }
+
         // Alec logging code
         try {
             OccupancyGrid total = new OccupancyGrid(env.getColumns(), env.getRows());
@@ -437,7 +491,9 @@ public class SimulationFramework implements ActionListener {
                 out.println(simConfig.toString());
             }
 
-            mainGUI.updateFromRobotTeamConfig();
+            if (!isHeadless()) {
+                mainGUI.updateFromRobotTeamConfig();
+            }
         } catch (IOException | JSONException | NumberFormatException e) {
 
         }
@@ -494,8 +550,25 @@ public class SimulationFramework implements ActionListener {
             updateRunConfig(); //this should set runNumMax;
             reset();
         }
-        timer.start();
         simStartTime = System.currentTimeMillis();
+        if (isHeadless()) {
+            runHeadless();
+        } else {
+            timer.start();
+        }
+    }
+
+    /**
+     * Runs cycles back to back on the calling thread until the last run is finished. Only for
+     * simulations created without a GUI.
+     */
+    public void runHeadless() {
+        if (!isHeadless()) {
+            throw new IllegalStateException(this.toString() + "Simulation has a GUI, use start().");
+        }
+        while (!runFinished) {
+            simulationCycle();
+        }
     }
 
     private void restart() {
@@ -504,7 +577,9 @@ public class SimulationFramework implements ActionListener {
         }
         reset();
         simStartTime = System.currentTimeMillis();
-        timer.start();
+        if (!isHeadless()) {
+            timer.start();
+        }
     }
 
     public void takeOneStep() {
@@ -512,6 +587,9 @@ public class SimulationFramework implements ActionListener {
     }
 
     private void checkPause() {
+        if (isHeadless()) {
+            return;
+        }
         if (pauseSimulation || timeElapsed % 15000 == 0) {
             pauseSimulation = false;
             this.pause();
@@ -533,11 +611,21 @@ public class SimulationFramework implements ActionListener {
         }
 
         if (timeElapsed >= SimConstants.MAXIMUM_TIME || baseStationDone() || allAgentsAtBase) {
-            updateGUI();
-            timer.stop();
+            closeRecorders();
+            closeAgentDebugLogs();
+            if (!isHeadless()) {
+                updateGUI(true);
+                timer.stop();
+            }
             runNumber++;
+            for (SimulationObserver observer : observers) {
+                observer.runCompleted(agent, timeElapsed, pctAreaKnownTeam, avgCycleTime);
+            }
             if (isBatch && (runNumber < runNumMax)) {
                 restart();
+            } else if (isHeadless()) {
+                runFinished = true;
+                return true;
             } else {
                 mainGUI.runComplete(agent, timeElapsed, pctAreaKnownTeam, avgCycleTime);
             }
@@ -546,7 +634,11 @@ public class SimulationFramework implements ActionListener {
     }
 
     public void pause() {
+        if (isHeadless()) {
+            return;
+        }
         timer.stop();
+        updateImage(false);     // frames may have been skipped, show the paused state
         if (SimConstants.DEBUG_OUTPUT) {
             System.out.println(this.toString() + "Pausing exploration!");
         }
@@ -554,6 +646,10 @@ public class SimulationFramework implements ActionListener {
 
     public void kill() {
         reset();
+        if (isHeadless()) {
+            runFinished = true;
+            return;
+        }
         timer.stop();
         if (SimConstants.DEBUG_OUTPUT) {
             System.out.println(this.toString() + "Resetting exploration!");
@@ -568,28 +664,28 @@ public class SimulationFramework implements ActionListener {
     private void agentSteps() {
         agent[0].flush();
 
-        List<Thread> threads = new ArrayList<Thread>();
+        List<AgentStepRunnable> steps = new ArrayList<AgentStepRunnable>();
         for (RealAgent agent1 : agent) {
             // If the agent is a Comm Station it doesn't move
             if (agent1.getClass().toString().equals(ComStation.class.toString())) {
                 continue;
             }
-            Runnable task = new AgentStepRunnable(agent1, simConfig, timeElapsed, env, this);
-            Thread worker = new Thread(task);
-            worker.setName(agent1.toString());
-            worker.start();
-            threads.add(worker);
+            steps.add(new AgentStepRunnable(agent1, simConfig, timeElapsed, env, this));
         }
 
-        for (int i = 0; i < threads.size(); i++) {
-            try {
-                threads.get(i).join();
-            } catch (Exception e) {
-                System.err.println("Thread " + i + " threw exception " + e.getMessage());
-            }
+        lastStepTiming = AgentStepExecutor.getShared().runAll(steps);
+        if (SimConstants.PROFILING) {
+            System.out.println(this.toString() + "Cycle " + timeElapsed + " agent steps: " + lastStepTiming);
         }
     }
 
+    /**
+     * @return timing of the agent steps in the last cycle, null before the first cycle
+     */
+    public AgentStepExecutor.StepTiming getLastStepTiming() {
+        return lastStepTiming;
+    }
+
     /**
      * Simulates data from laser range finder
      *
@@ -598,10 +694,7 @@ public class SimulationFramework implements ActionListener {
      * @return
      */
     protected double[] findSensorData(RealAgent agent, Point nextLoc) {
-        double currRayAngle, heading;
-        int prevRayX, prevRayY;
-        int currRayX, currRayY;
-        double sensorData[] = new double[181];
+        double heading;
 
         if (agent.getLocation().equals(nextLoc)) {
             heading = agent.getHeading();
@@ -609,34 +702,11 @@ public class SimulationFramework implements ActionListener {
             heading = Math.atan2(nextLoc.y - agent.getY(), nextLoc.x - agent.getX());
         }
 
-        //For every degree
-        for (int i = 0; i <= 180; i += 1) {
-            prevRayX = nextLoc.x;
-            prevRayY = nextLoc.y;
-
-            currRayAngle = heading - Math.PI / 2 + Math.PI / 180 * i;
-
-            for (double m = 1; m <= agent.getSenseRange(); m++) {
-                currRayX = nextLoc.x + (int) (m * Math.cos(currRayAngle));
-                currRayY = nextLoc.y + (int) (m * Math.sin(currRayAngle));
-
-                if (!env.locationExists(currRayX, currRayY)) {
-                    sensorData[i] = nextLoc.distance(prevRayX, prevRayY);
-                    break;
-                } else if (env.statusAt(currRayX, currRayY).ordinal() >= Environment.Status.obstacle.ordinal()) {
-                    sensorData[i] = nextLoc.distance(currRayX, currRayY);
-                    break;
-                } else if (m >= agent.getSenseRange()) {
-                    sensorData[i] = nextLoc.distance(currRayX, currRayY);
-                    break;
-                } else {
-                    prevRayX = currRayX;
-                    prevRayY = currRayY;
-                }
-            }
+        if (SimConstants.FAST_SENSOR) {
+            return SensorEngine.scan(env, nextLoc, heading, agent.getSenseRange());
+        } else {
+            return SensorEngine.scanReference(env, nextLoc, heading, agent.getSenseRange());
         }
-
-        return sensorData;
     }
 
     /**
@@ -655,15 +725,24 @@ public class SimulationFramework implements ActionListener {
 
     private void simulateCommunication() {
         // Exchange data
+        // only pairs in the same component can talk, visit them in the same (i, j) order as a scan
+        // of the whole table would
         for (int i = 0; i < numRobots - 1; i++) {
-            for (int j = i + 1; j < numRobots; j++) {
-                if (multihopCommTable[i][j] >= 1) {
-                    DataMessage msgFromFirst = new DataMessage(agent[i], directCommTable[i][j], multihopCommTable[0][i] > 0);
-                    DataMessage msgFromSecond = new DataMessage(agent[j], directCommTable[j][i], multihopCommTable[j][0] > 0);
-
-                    agent[i].receiveMessage(msgFromSecond);
-                    agent[j].receiveMessage(msgFromFirst);
+            boolean firstAtBase = connectivity.connected(0, i);
+            for (int j = connectivity.nextInComponent(i); j >= 0; j = connectivity.nextInComponent(j)) {
+                DataMessage msgFromFirst;
+                DataMessage msgFromSecond;
+                // j is connected to i, so also to the base station iff i is
+                if (SimConstants.DELTA_MAP_EXCHANGE) {
+                    msgFromFirst = new DataMessage(agent[i], agent[j], directCommTable[i][j], firstAtBase);
+                    msgFromSecond = new DataMessage(agent[j], agent[i], directCommTable[j][i], firstAtBase);
+                } else {
+                    msgFromFirst = new DataMessage(agent[i], directCommTable[i][j], firstAtBase);
+                    msgFromSecond = new DataMessage(agent[j], directCommTable[j][i], firstAtBase);
                 }
+
+                agent[i].receiveMessage(msgFromSecond);
+                agent[j].receiveMessage(msgFromFirst);
             }
         }
 
@@ -671,51 +750,43 @@ public class SimulationFramework implements ActionListener {
         for (int q = 0; q < numRobots; q++) {
             agent[q].updateAfterCommunication();
         }
-    }
 
-    private void detectMultiHopLinks() {
-        for (int i = 0; i < directCommTable.length; i++) {
-            System.arraycopy(directCommTable[i], 0, multihopCommTable[i], 0, directCommTable.length);
-        }
-        for (int i = 0; i < multihopCommTable.length; i++) {
-            for (int j = 0; j < multihopCommTable[0].length; j++) {
-                if (multihopCommTable[i][j] >= 1 || multihopCommTable[j][i] >= 1) {
-                    for (int k = 0; k < multihopCommTable.length; k++) {
-                        if (multihopCommTable[k][i] >= 1 || multihopCommTable[i][k] >= 1) {
-                            multihopCommTable[k][j] = 1;
-                            multihopCommTable[j][k] = 1;
-                        }
-                    }
-                }
+        if (SimConstants.PROFILING) {
+            List<OccupancyGrid> grids = new ArrayList<OccupancyGrid>();
+            for (RealAgent agent1 : agent) {
+                grids.add(agent1.getOccupancyGrid());
+                agent1.getAllTeammates().values().forEach(mate -> grids.add(mate.getOccupancyGrid()));
             }
+            System.out.println(this.toString() + "Cycle " + timeElapsed + " map storage: " + OccupancyGrid.tileStats(grids));
         }
     }
 
     private void detectCommunication() {
-        directCommTable = new int[numRobots][numRobots];
-        multihopCommTable = new int[numRobots][numRobots];
+        if (directCommTable == null || directCommTable.length != numRobots) {
+            directCommTable = new int[numRobots][numRobots];
+        }
 
         switch (simConfig.getCommModel()) {
             case StaticCircle:
-                directCommTable = StaticCircle.detectCommunication(env, agent);
+                StaticCircle.detectCommunication(env, agent, directCommTable);
                 for (int i = 0; i < numRobots; i++) {
-                    if (mainGUI.getRobotPanel(i).showCommRange()) {
+                    if (showCommRange(i)) {
                         agentRange[i] = null;
                     }
                 }
                 break;
             case DirectLine:
-                directCommTable = DirectLine.detectCommunication(env, agent);
+                DirectLine.detectCommunication(env, agent, directCommTable);
                 for (int i = 0; i < numRobots; i++) {
-                    if (mainGUI.getRobotPanel(i).showCommRange()) {
+                    if (showCommRange(i)) {
                         agentRange[i] = null;
                     }
                 }
                 break;
             case PropModel1:
-                directCommTable = PropModel1.detectCommunication(env, agent);
+                PropModel1.detectCommunication(env, agent, directCommTable);
                 for (int i = 0; i < numRobots; i++) {
-                    if (mainGUI.getRobotPanel(i).showCommRange()) {
+                    if (showCommRange(i)) {
                         agentRange[i] = PropModel1.getRange(env, agent[i]);
                     } else {
                         agentRange[i] = null;
@@ -725,14 +796,26 @@ public class SimulationFramework implements ActionListener {
             default:
                 break;
         }
-        detectMultiHopLinks();
+        connectivity.update(directCommTable);
+    }
+
+    /**
+     * @return multi-hop connectivity of the team in the current cycle
+     */
+    public CommConnectivity getConnectivity() {
+        return connectivity;
+    }
+
+    // comm ranges are only computed for display
+    private boolean showCommRange(int robot) {
+        return !isHeadless() && mainGUI.getRobotPanel(robot).showCommRange();
     }
 
     private void logging() {
         // Note, logging of data is performed in updateGlobalData, should change to here when i have the time
 
         // Log screenshot
-        if (simConfig.logScreenshots()) {
+        if (simConfig.logScreenshots() && !isHeadless()) {
             logScreenshot();
         }
 
@@ -747,6 +830,26 @@ public class SimulationFramework implements ActionListener {
     }
 
     private void logAgents() {
+        if (SimConstants.BINARY_RUN_LOGS) {
+            try {
+                if (agentRecorder == null) {
+                    agentRecorder = new RunRecorder(RunRecorder.binaryFileName(simConfig.getLogAgentFilename()),
+                            RunRecorder.KIND_AGENTS, numRobots);
+                }
+                agentRecorder.beginRecord().putInt(timeElapsed);
+                for (int i = 0; i < numRobots; i++) {
+                    Point goal = agent[i].getCurrentGoal();
+                    agentRecorder.putInt(agent[i].getX()).putInt(agent[i].getY())
+                            .putInt(goal.x).putInt(goal.y)
+                            .putOrdinal(agent[i].getRole()).putOrdinal(agent[i].getState())
+                            .putInt(agent[i].totalSpareTime);
+                }
+                agentRecorder.endRecord();
+            } catch (IOException e) {
+                System.err.println(this.toString() + "Agent logging - error writing data to file!" + e);
+            }
+            return;
+        }
         try (PrintWriter outFile = new PrintWriter(new FileWriter(simConfig.getLogAgentFilename(), true))) {
 
             outFile.print(timeElapsed + " ");
@@ -771,6 +874,9 @@ public class SimulationFramework implements ActionListener {
     }
 
     public void logScreenshot(String dirname) {
+        if (isHeadless()) {
+            return;
+        }
         image.fullUpdate(mainGUI.getShowSettings(), mainGUI.getShowSettingsAgents(), env, agent, agentRange);
         image.saveScreenshot(dirname, timeElapsed);
     }
@@ -788,20 +894,33 @@ public class SimulationFramework implements ActionListener {
         }
     }
 
-    private void updateGUI() {
+    private void updateGUI(boolean forceFrame) {
         mainGUI.updateFromData(agent, timeElapsed, pctAreaKnownTeam, avgCycleTime);
-        updateImage(false); //was false
-
+        // redraw at most TARGET_FRAME_RATE times a second, the agents keep collecting dirty cells
+        // in between
+        if (forceFrame || System.currentTimeMillis() - lastFrameTime >= 1000 / SimConstants.TARGET_FRAME_RATE) {
+            updateImage(false); //was false
+        }
     }
 
     public void updateImage(boolean full) {
+        if (isHeadless()) {
+            return;
+        }
 
         if (full || this.force_full_update) {
             image.fullUpdate(mainGUI.getShowSettings(), mainGUI.getShowSettingsAgents(), env, agent, agentRange);
         } else {
             image.dirtyUpdate(mainGUI.getShowSettings(), mainGUI.getShowSettingsAgents(), env, agent, agentRange);
         }
-        mainGUI.getLabelImageHolder().setIcon(new ImageIcon(image.getImage()));
+        lastFrameTime = System.currentTimeMillis();
+        // the image is drawn in place, so the icon only needs a new one when the image was replaced
+        Icon icon = mainGUI.getLabelImageHolder().getIcon();
+        if (icon instanceof ImageIcon && ((ImageIcon) icon).getImage() == image.getImage()) {
+            mainGUI.getLabelImageHolder().repaint();
+        } else {
+            mainGUI.getLabelImageHolder().setIcon(new ImageIcon(image.getImage()));
+        }
 
     }
 
@@ -879,6 +998,11 @@ public class SimulationFramework implements ActionListener {
             }
             pctAreaKnownTeam = 100 * (double) jointAreaKnown / (double) totalArea;
 
+            if (SimConstants.BINARY_RUN_LOGS) {
+                recordData(pctAreaKnownBase, maxTeamLatency, avgTeamLatency, totalTeamTimeSpentSensing,
+                        totalTeamTimeSpentDoubleSensing, totalRelayingTime, totalNotSensingTime, totalTeamTime);
+                return;
+            }
             try (PrintWriter outFile = new PrintWriter(new FileWriter(simConfig.getLogDataFilename(), true))) {
 
                 outFile.print(timeElapsed + " ");
@@ -921,6 +1045,88 @@ public class SimulationFramework implements ActionListener {
         }
     }
 
+    /**
+     * Binary counterpart of the data log line written by updateGlobalData, see RunRecorder.
+     */
+    private void recordData(double pctAreaKnownBase, int maxTeamLatency, double avgTeamLatency,
+            int totalTeamTimeSpentSensing, int totalTeamTimeSpentDoubleSensing, int totalRelayingTime,
+            int totalNotSensingTime, int totalTeamTime) {
+        try {
+            if (dataRecorder == null) {
+                dataRecorder = new RunRecorder(RunRecorder.binaryFileName(simConfig.getLogDataFilename()),
+                        RunRecorder.KIND_DATA, agent.length);
+            }
+            dataRecorder.beginRecord()
+                    .putInt(timeElapsed)
+                    .putLong(System.currentTimeMillis())
+                    .putDouble(pctAreaKnownTeam)
+                    .putDouble(pctAreaKnownBase)
+                    .putInt(totalArea)
+                    .putDouble(avgAgentKnowledge)
+                    .putDouble(avgTimeLastCommand)
+                    .putDouble(totalDistanceTraveled / (agent.length - 1))
+                    .putInt(numSwaps)
+                    .putInt(jointAreaKnown)
+                    .putInt(agent[0].getStats().getAreaKnown())
+                    .putDouble(100 * (double) agent[0].getStats().getAreaKnown() / (double) jointAreaKnown)
+                    .putInt(maxTeamLatency)
+                    .putDouble(avgTeamLatency)
+                    .putInt(totalTeamTimeSpentSensing)
+                    .putInt(totalTeamTimeSpentDoubleSensing)
+                    .putInt(totalRelayingTime)
+                    .putInt(totalNotSensingTime)
+                    .putInt(totalTeamTime);
+            for (int i = 1; i < agent.length; i++) {
+                AgentStats stats = agent[i].getStats();
+                dataRecorder.putInt(stats.getAreaKnown())
+                        .putInt(stats.getNewInfo())
+                        .putDouble(stats.getCurrentTotalKnowledgeBelief())
+                        .putDouble(stats.getCurrentBaseKnowledgeBelief())
+                        .putInt(stats.getMaxLatency())
+                        .putDouble(stats.getAvgLatency())
+                        .putInt(stats.getTimeSensing())
+                        .putInt(stats.getTimeDoubleSensing())
+                        .putInt(stats.getTimeReturning())
+                        .putInt(timeElapsed - stats.getTimeSensing() - stats.getTimeDoubleSensing());
+            }
+            dataRecorder.endRecord();
+        } catch (IOException e) {
+            System.err.println(this.toString() + "Error writing data to file!" + e);
+        }
+    }
+
+    // console channel of the simulator itself, opened on first use
+    private DebugLog.Channel debugLog() {
+        if (debugLog == null) {
+            debugLog = DebugLog.open("", DebugLog.STDOUT);
+        }
+        return debugLog;
+    }
+
+    private void closeAgentDebugLogs() {
+        if (agent != null) {
+            Arrays.stream(agent).forEach(RealAgent::closeDebugLog);
+        }
+    }
+
+    /**
+     * Flushes and closes the binary logs of the current run, the next run starts new files.
+     */
+    private void closeRecorders() {
+        for (RunRecorder recorder : new RunRecorder[]{agentRecorder, dataRecorder}) {
+            if (recorder == null) {
+                continue;
+            }
+            try {
+                recorder.close();
+            } catch (IOException e) {
+                System.err.println(this.toString() + "Error closing log file!" + e);
+            }
+        }
+        agentRecorder = null;
+        dataRecorder = null;
+    }
+
     @Override
     public String toString() {
         return ("[Simulator] ");
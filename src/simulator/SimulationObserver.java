@@ -0,0 +1,69 @@
+/*
+ *     Copyright 2010, 2015, 2017 Julian de Hoog (julian@dehoog.ca),
+ *     Victor Spirin (victor.spirin@cs.ox.ac.uk),
+ *     Christian Clausen (christian.clausen@uni-bremen.de
+ *
+ *     This file is part of MRESim 2.3, a simulator for testing the behaviour
+ *     of multiple robots exploring unknown environments.
+ *
+ *     If you use MRESim, I would appreciate an acknowledgement and/or a citation
+ *     of our papers:
+ *
+ *     @inproceedings{deHoog2009,
+ *         title = "Role-Based Autonomous Multi-Robot Exploration",
+ *         author = "Julian de Hoog, Stephen Cameron and Arnoud Visser",
+ *         year = "2009",
+ *         booktitle =
+ *     "International Conference on Advanced Cognitive Technologies and Applications (COGNITIVE)",
+ *         location = "Athens, Greece",
+ *         month = "November",
+ *     }
+ *
+ *     @incollection{spirin2015mresim,
+ *       title={MRESim, a Multi-robot Exploration Simulator for the Rescue Simulation League},
+ *       author={Spirin, Victor and de Hoog, Julian and Visser, Arnoud and Cameron, Stephen},
+ *       booktitle={RoboCup 2014: Robot World Cup XVIII},
+ *       pages={106--117},
+ *       year={2015},
+ *       publisher={Springer}
+ *     }
+ *
+ *     MRESim is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     MRESim is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License along with MRESim.
+ *     If not, see <http://www.gnu.org/licenses/>.
+ */
+package simulator;
+
+import agents.RealAgent;
+
+/**
+ * Receives the state of a running simulation, for logging or anything else that wants data per
+ * cycle. Used instead of the GUI callbacks when the simulation runs headless, and called in GUI
+ * mode as well.
+ */
+public interface SimulationObserver {
+
+    /**
+     * Called at the end of every simulation cycle.
+     *
+     * @param agent all agents, the base station first
+     * @param timeElapsed number of cycles simulated so far
+     * @param pctAreaKnownTeam percentage of the environment known to the team
+     * @param avgCycleTime average wall time per cycle in ms
+     */
+    void cycleCompleted(RealAgent[] agent, int timeElapsed, double pctAreaKnownTeam, int avgCycleTime);
+
+    /**
+     * Called once when the run is finished, after the last cycleCompleted.
+     */
+    void runCompleted(RealAgent[] agent, int timeElapsed, double pctAreaKnownTeam, int avgCycleTime);
+}